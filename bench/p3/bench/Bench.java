@@ -0,0 +1,155 @@
+package p3.bench;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntToLongFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Mini arnés de benchmarks (sin dependencias externas).
+ *
+ * Cada caso es un LongSupplier que hace 'opsPerCall' operaciones y devuelve
+ * un valor cualquiera (se acumula para que el JIT no elimine el trabajo).
+ * Por caso se hace un calentamiento y luego varias iteraciones medidas, y se imprime:
+ *  - ops/s y ns/op (media de las iteraciones medidas)
+ *  - B/op y MB/s de memoria reservada por el hilo (tasa de asignación para el GC)
+ *  - nº de recolecciones del GC durante la medida
+ */
+public final class Bench {
+
+    // Sumidero: evita que el JIT descarte el resultado de las operaciones
+    private static volatile long sink;
+
+    private final String filter;
+    private final long warmupMillis;
+    private final long measureMillis;
+    private final int iterations;
+
+    /**
+     * @param filter        solo se ejecutan los casos cuyo nombre contiene este texto (null = todos)
+     * @param warmupMillis  tiempo de calentamiento por caso
+     * @param measureMillis tiempo de cada iteración medida
+     * @param iterations    nº de iteraciones medidas
+     */
+    public Bench(String filter, long warmupMillis, long measureMillis, int iterations) {
+        this.filter = filter;
+        this.warmupMillis = warmupMillis;
+        this.measureMillis = measureMillis;
+        this.iterations = iterations;
+    }
+
+    /** Imprime la cabecera de la tabla de resultados. */
+    public static void header() {
+        System.out.printf(Locale.ROOT, "%-48s %14s %14s %12s %10s %6s%n",
+                "Benchmark", "ops/s", "ns/op", "B/op", "MB/s", "GCs");
+    }
+
+    /** ¿Se ejecutaría un caso con este nombre (pasa el filtro)? */
+    public boolean matches(String name) {
+        return filter == null || name.contains(filter);
+    }
+
+    /** Ejecuta un caso (si pasa el filtro) e imprime su fila. */
+    public void run(String name, long opsPerCall, LongSupplier body) {
+        if (!matches(name)) return;
+
+        // Calentamiento
+        long acc = 0;
+        long end = System.nanoTime() + warmupMillis * 1_000_000L;
+        while (System.nanoTime() < end) acc += body.getAsLong();
+
+        // Medida
+        long ops = 0, nanos = 0, bytes = 0, gcs = 0;
+        for (int it = 0; it < iterations; it++) {
+            long gc0 = gcCount();
+            long b0 = allocatedBytes();
+            long t0 = System.nanoTime();
+            long stop = t0 + measureMillis * 1_000_000L;
+            long t;
+            do {
+                acc += body.getAsLong();
+                ops += opsPerCall;
+            } while ((t = System.nanoTime()) < stop);
+            nanos += t - t0;
+            bytes += allocatedBytes() - b0;
+            gcs += gcCount() - gc0;
+        }
+        sink = acc;
+
+        double seconds = nanos / 1e9;
+        System.out.printf(Locale.ROOT, "%-48s %14.1f %14.1f %12.1f %10.1f %6d%n",
+                name, ops / seconds, nanos / (double) ops, bytes / (double) ops,
+                bytes / seconds / (1024 * 1024), gcs);
+    }
+
+    /**
+     * Comprueba que un bucle no reserva memoria en régimen estable.
+     *
+     * Ejecuta body con 'small' y con 'large' operaciones (tras calentar) y resta los
+     * bytes reservados: lo que cuesta preparar la llamada se cancela y queda solo lo
+     * que reserva cada operación del bucle. Se toma el mínimo de 'iterations' repeticiones
+     * para no contar reservas puntuales ajenas al bucle. La fila acaba en OK si sale 0 B/op.
+     *
+     * @return true si el bucle no reserva nada por operación (o si el caso no pasa el filtro)
+     */
+    public boolean zeroAllocation(String name, int small, int large, IntToLongFunction body) {
+        if (!matches(name)) return true;
+
+        long acc = 0;
+        long end = System.nanoTime() + warmupMillis * 1_000_000L;
+        while (System.nanoTime() < end) acc += body.applyAsLong(small) + body.applyAsLong(large);
+
+        long best = Long.MAX_VALUE;
+        for (int it = 0; it < Math.max(1, iterations); it++) {
+            long b0 = allocatedBytes();
+            acc += body.applyAsLong(small);
+            long b1 = allocatedBytes();
+            acc += body.applyAsLong(large);
+            long b2 = allocatedBytes();
+            best = Math.min(best, (b2 - b1) - (b1 - b0));
+        }
+        sink = acc;
+
+        double perOp = Math.max(0, best) / (double) (large - small);
+        boolean ok = best <= 0;
+        System.out.printf(Locale.ROOT, "%-48s %14s %14s %12.4f %10s %6s%n",
+                name, "-", "-", perOp, "-", ok ? "OK" : "FALLO");
+        return ok;
+    }
+
+    /**
+     * Comprobación de resultados (no mide nada): la fila acaba en OK si 'body'
+     * devuelve true y en FALLO si no.
+     *
+     * @return lo que devuelve 'body' (true si el caso no pasa el filtro)
+     */
+    public boolean check(String name, BooleanSupplier body) {
+        if (!matches(name)) return true;
+        boolean ok = body.getAsBoolean();
+        System.out.printf(Locale.ROOT, "%-48s %14s %14s %12s %10s %6s%n",
+                name, "-", "-", "-", "-", ok ? "OK" : "FALLO");
+        return ok;
+    }
+
+    // ===== Métricas de la JVM =====
+
+    /** Bytes reservados por el hilo actual (-1 si la JVM no lo soporta). */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        if (mx instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) mx).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /** Nº total de recolecciones de todos los colectores. */
+    private static long gcCount() {
+        long n = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            n += Math.max(0, gc.getCollectionCount());
+        }
+        return n;
+    }
+}
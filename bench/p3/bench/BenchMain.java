@@ -0,0 +1,28 @@
+package p3.bench;
+
+/**
+ * Punto de entrada de los benchmarks.
+ *
+ * Uso:
+ *   java -cp bin p3.bench.BenchMain [filtro] [ms calentamiento] [ms por iteración] [iteraciones]
+ *
+ * El filtro es un trozo del nombre del caso (por ejemplo "evaluator" o "equity.real.TURN").
+ */
+public final class BenchMain {
+
+    private BenchMain() {}
+
+    public static void main(String[] args) {
+        String filter = args.length > 0 && !args[0].isBlank() ? args[0] : null;
+        long warmup  = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+        long measure = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+        int iters    = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        Bench b = new Bench(filter, warmup, measure, iters);
+        Bench.header();
+        EvaluatorBench.run(b);
+        DeckBench.run(b);
+        RangeParserBench.run(b);
+        EquityBench.run(b);
+    }
+}
@@ -0,0 +1,42 @@
+package p3.bench;
+
+import java.util.List;
+import java.util.Random;
+
+import p3.logic.Deck;
+import p3.model.Cards;
+
+/** Benchmarks de Deck: crear+mezclar, robar el mazo entero y quitar cartas usadas. */
+public final class DeckBench {
+
+    private DeckBench() {}
+
+    public static void run(Bench b) {
+        Random rnd = new Random(3);
+
+        b.run("deck.newShuffled", 1, () -> new Deck(rnd).remaining());
+
+        b.run("deck.drawAll", Cards.COUNT, () -> {
+            Deck d = new Deck(rnd);
+            long acc = 0;
+            while (d.remaining() > 0) acc += d.drawId();
+            return acc;
+        });
+
+        // 6 manos + flop, como tras un Deal y un Flop en la GUI
+        List<String> used = List.of("Ah", "Kd", "Qs", "Qc", "7c", "8c", "2s", "2d", "As", "Jd", "9h", "9s",
+                "3h", "4h", "Kc");
+        b.run("deck.removeCards.strings", 1, () -> {
+            Deck d = new Deck(rnd);
+            d.removeCards(used);
+            return d.remaining();
+        });
+
+        long usedMask = Cards.maskOf(used);
+        b.run("deck.removeMask", 1, () -> {
+            Deck d = new Deck(rnd);
+            d.removeMask(usedMask);
+            return d.remaining();
+        });
+    }
+}
@@ -0,0 +1,486 @@
+package p3.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+
+import p3.gui.Phase;
+import p3.gui.PokerEquityGUI;
+import p3.logic.CachingEquityCalculator;
+import p3.logic.CompiledRange;
+import p3.logic.EquityCalculator;
+import p3.logic.EquityGridCalculator;
+import p3.logic.ExhaustiveEquityCalculator;
+import p3.logic.HandStrength;
+import p3.logic.HandStrengthCalculator;
+import p3.logic.PokerHandEvaluator;
+import p3.logic.OutsCalculator;
+import p3.logic.PreflopEquityTable;
+import p3.logic.PreflopTableEquityCalculator;
+import p3.logic.RangeEquityCalculator;
+import p3.logic.RealEquityCalculator;
+import p3.logic.SpeculativeEquityCalculator;
+import p3.logic.StoppingPolicy;
+import p3.model.Cards;
+import p3.model.Hand;
+
+/**
+ * Benchmarks de calcularEquity completos: cada fase con 2 y 6 jugadores,
+ * con el mismo nº de simulaciones que usa la GUI (PokerEquityGUI.trialsFor).
+ */
+public final class EquityBench {
+
+    static final List<String> NAMES = List.of("Button", "Small Blind", "Big Blind", "UTG", "Highjack", "Cut-off");
+    static final List<Hand> HANDS = List.of(
+            Hand.fromString("AhKh"), Hand.fromString("QdQc"), Hand.fromString("7c8c"),
+            Hand.fromString("2s2d"), Hand.fromString("AsJd"), Hand.fromString("9h9s"));
+    static final List<String> BOARD = List.of("3h", "4h", "Kc", "5d", "Td");
+
+    // Pruebas de la rejilla preflop (las fases con board se enumeran)
+    static final int GRID_TRIALS = 20_000;
+
+    private EquityBench() {}
+
+    public static void run(Bench b) {
+        run(b, "real", new RealEquityCalculator());
+        run(b, "realParallel", new RealEquityCalculator(Runtime.getRuntime().availableProcessors()));
+        run(b, "exhaustive", new ExhaustiveEquityCalculator());
+        policies(b);
+        streaming(b);
+        speculation(b);
+        cache(b);
+        preflopTable(b);
+        ranges(b);
+        grid(b);
+        distribution(b);
+        outs(b);
+        strength(b);
+        strengthCheck(b);
+        trialAllocation(b);
+    }
+
+    /**
+     * Caché por situación canónica: se piden en bucle las 24 variantes con los
+     * palos cambiados de la misma situación (FLOP, 6 jugadores). Tras la primera,
+     * todas son aciertos, así que mide el coste de canonicalizar + buscar.
+     */
+    static void cache(Bench b) {
+        String name = "equity.cached.isomorphic.FLOP.6p";
+        if (!b.matches(name)) return;
+        CachingEquityCalculator calc = new CachingEquityCalculator(new RealEquityCalculator());
+        List<List<Hand>> hands = new ArrayList<>();
+        List<List<String>> boards = new ArrayList<>();
+        for (String perm : suitPermutations()) {
+            List<Hand> hs = new ArrayList<>();
+            for (Hand h : HANDS) hs.add(Hand.fromString(relabel(h.toString(), perm)));
+            List<String> bd = new ArrayList<>();
+            for (String c : BOARD.subList(0, 3)) bd.add(relabel(c, perm));
+            hands.add(hs);
+            boards.add(bd);
+        }
+        int trials = PokerEquityGUI.trialsFor(Phase.FLOP);
+        int[] next = {0};
+        b.run(name, 1, () -> {
+            int i = next[0]++ % hands.size();
+            return calc.calcularEquity(NAMES, hands.get(i), boards.get(i), trials, i).size();
+        });
+        System.out.printf(Locale.ROOT, "  (caché: %d aciertos, %d fallos, %.4f de acierto)%n",
+                calc.hits(), calc.misses(), calc.hitRate());
+    }
+
+    /**
+     * Rango contra rango (rangos de RangeParserBench, cada jugador con el siguiente)
+     * en cada fase con 2 y 6 jugadores, con el nº de pruebas de la GUI.
+     */
+    static void ranges(Bench b) {
+        RangeEquityCalculator calc = new RangeEquityCalculator();
+        List<CompiledRange> all = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            all.add(CompiledRange.parse(RangeParserBench.RANGES[(i + 1) % RangeParserBench.RANGES.length]));
+        }
+        for (Phase phase : new Phase[] {Phase.PREFLOP, Phase.FLOP, Phase.TURN}) {
+            for (int players : new int[] {2, 6}) {
+                List<String> names = NAMES.subList(0, players);
+                List<CompiledRange> ranges = all.subList(0, players);
+                List<String> board = BOARD.subList(0, boardSize(phase));
+                StoppingPolicy policy = StoppingPolicy.fixedTrials(PokerEquityGUI.trialsFor(phase));
+                b.run("equity.ranges." + phase + "." + players + "p", 1,
+                        () -> calc.calcularEquityRangos(names, ranges, board, policy, 42L).trials());
+            }
+        }
+
+        // Mismo nº de pruebas con rangos estrechos y solapados que con rangos anchos:
+        // el coste por prueba no debe depender de lo bloqueados que estén
+        List<String> names = NAMES.subList(0, 3);
+        StoppingPolicy policy = StoppingPolicy.fixedTrials(PokerEquityGUI.trialsFor(Phase.PREFLOP));
+        List<CompiledRange> tight = List.of(
+                CompiledRange.parse("QQ+"), CompiledRange.parse("AK"), CompiledRange.parse("JJ+"));
+        List<CompiledRange> wide = all.subList(2, 5);
+        b.run("equity.ranges.PREFLOP.3p.tight", 1,
+                () -> calc.calcularEquityRangos(names, tight, List.of(), policy, 42L).trials());
+        b.run("equity.ranges.PREFLOP.3p.wide", 1,
+                () -> calc.calcularEquityRangos(names, wide, List.of(), policy, 42L).trials());
+    }
+
+    /** Consulta a la tabla preflop heads-up (solo si está generado el fichero). */
+    static void preflopTable(Bench b) {
+        String name = "equity.preflopTable.PREFLOP.2p";
+        if (!b.matches(name)) return;
+        PreflopEquityTable table = PreflopEquityTable.getDefault();
+        if (table == null) {
+            System.out.println("  (sin tabla preflop: genera resources/" + PreflopEquityTable.DEFAULT_FILE
+                    + " con p3.logic.PreflopTableGenerator)");
+            return;
+        }
+        EquityCalculator calc = new PreflopTableEquityCalculator(new RealEquityCalculator(), table);
+        List<String> names = NAMES.subList(0, 2);
+        List<Hand> hands = HANDS.subList(0, 2);
+        b.run(name, 1,
+                () -> calc.calcularEquity(names, hands, List.of(), PokerEquityGUI.trialsFor(Phase.PREFLOP), 42L).size());
+    }
+
+    /** Las 24 reordenaciones de "hdcs" (palo i → perm.charAt(i)). */
+    private static List<String> suitPermutations() {
+        List<String> out = new ArrayList<>();
+        String s = "hdcs";
+        for (char a : s.toCharArray()) for (char b : s.toCharArray()) for (char c : s.toCharArray()) for (char d : s.toCharArray()) {
+            String p = "" + a + b + c + d;
+            if (p.chars().distinct().count() == 4) out.add(p);
+        }
+        return out;
+    }
+
+    /** Cambia los palos de un texto de cartas ("AhKd") según la permutación. */
+    private static String relabel(String cards, String perm) {
+        StringBuilder sb = new StringBuilder(cards);
+        for (int i = 1; i < sb.length(); i += 2) sb.setCharAt(i, perm.charAt("hdcs".indexOf(sb.charAt(i))));
+        return sb.toString();
+    }
+
+    /** Monte Carlo con política de parada (error objetivo de la GUI y 30 ms) en cada fase con 2 y 6 jugadores. */
+    static void policies(Bench b) {
+        RealEquityCalculator calc = new RealEquityCalculator();
+        StoppingPolicy[] policies = {
+            StoppingPolicy.targetStdError(0.1, 1_000_000),
+            StoppingPolicy.deadline(30, 10_000_000),
+        };
+        String[] labels = {"se0.1", "30ms"};
+        for (int p = 0; p < policies.length; p++) {
+            StoppingPolicy policy = policies[p];
+            for (Phase phase : new Phase[] {Phase.PREFLOP, Phase.FLOP, Phase.TURN}) {
+                for (int players : new int[] {2, 6}) {
+                    List<String> names = NAMES.subList(0, players);
+                    List<Hand> hands = HANDS.subList(0, players);
+                    List<String> board = BOARD.subList(0, boardSize(phase));
+                    b.run("equity.policy." + labels[p] + "." + phase + "." + players + "p", 1,
+                            () -> calc.calcularEquity(names, hands, board, policy, 42L).trials());
+                }
+            }
+        }
+    }
+
+    /**
+     * Tiempo hasta la primera instantánea con listener (6 jugadores, preflop, error
+     * objetivo de la GUI): el listener corta el cálculo en cuanto llega, así que cada
+     * operación es lo que tarda la GUI en enseñar el primer número. Con Monte Carlo
+     * y con la enumeración exacta (que antes hace la vista previa).
+     */
+    static void streaming(Bench b) {
+        StoppingPolicy policy = StoppingPolicy.targetStdError(0.1, 1_000_000);
+        List<String> names = NAMES.subList(0, 6);
+        List<Hand> hands = HANDS.subList(0, 6);
+        CancellationException first = new CancellationException();
+        EquityCalculator[] calcs = { new RealEquityCalculator(), new ExhaustiveEquityCalculator() };
+        String[] labels = {"real", "exhaustive"};
+        for (int c = 0; c < calcs.length; c++) {
+            EquityCalculator calc = calcs[c];
+            b.run("equity.stream.firstSnapshot." + labels[c] + ".PREFLOP.6p", 1, () -> {
+                try {
+                    calc.calcularEquity(names, hands, List.of(), policy, 42L, s -> { throw first; });
+                    return 0;
+                } catch (CancellationException e) {
+                    return 1;
+                }
+            });
+        }
+    }
+
+    /**
+     * Tabla entera de la siguiente calle (SpeculativeEquityCalculator sobre la
+     * enumeración exacta, sin caché): los flops más probables desde el preflop, las
+     * cartas del turn desde el flop y las del river desde el turn, con 2 y 6
+     * jugadores. Es lo que tarda en estar lista en segundo plano.
+     */
+    static void speculation(Bench b) {
+        StoppingPolicy policy = StoppingPolicy.targetStdError(0.1, 1_000_000);
+        for (Phase phase : new Phase[] {Phase.PREFLOP, Phase.FLOP, Phase.TURN}) {
+            for (int players : new int[] {2, 6}) {
+                List<String> names = NAMES.subList(0, players);
+                List<Hand> hands = HANDS.subList(0, players);
+                List<String> board = BOARD.subList(0, boardSize(phase));
+                b.run("equity.speculate." + phase + "." + players + "p", 1, () -> {
+                    try (SpeculativeEquityCalculator spec = new SpeculativeEquityCalculator(new ExhaustiveEquityCalculator())) {
+                        return spec.speculate(names, hands, board, policy, 42L).get().computed();
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Bytes por prueba del bucle Monte Carlo (versión secuencial, todo en este hilo):
+     * tras el calentamiento tiene que salir 0, solo se reserva al preparar la llamada.
+     */
+    /**
+     * Rejilla de equity del héroe (1326 combos / 169 clases) contra una mano conocida:
+     * flop, turn y river enumerados, y preflop por Monte Carlo. Para comparar, el flop
+     * con una llamada a calcularEquity por cada combo posible del héroe.
+     */
+    static void grid(Bench b) {
+        EquityGridCalculator grid = new EquityGridCalculator();
+        List<Hand> villain = HANDS.subList(1, 2);
+        for (Phase phase : Phase.values()) {
+            List<String> board = BOARD.subList(0, boardSize(phase));
+            StoppingPolicy policy = StoppingPolicy.fixedTrials(GRID_TRIALS);
+            b.run("equity.grid." + phase + ".1326combos", 1,
+                    () -> grid.calcularGrid(villain, board, policy, 42L).trials());
+        }
+
+        String name = "equity.grid.FLOP.perComboCalls";
+        if (!b.matches(name)) return;
+        ExhaustiveEquityCalculator exhaustive = new ExhaustiveEquityCalculator();
+        List<String> flop = BOARD.subList(0, 3);
+        long dead = villain.get(0).mask() | Cards.maskOf(flop);
+        List<List<Hand>> spots = new ArrayList<>();
+        for (int k = 0; k < Cards.COMBOS; k++) {
+            if ((Cards.comboMask(k) & dead) == 0)
+                spots.add(List.of(Hand.of(Cards.comboHigh(k), Cards.comboLow(k)), villain.get(0)));
+        }
+        List<String> names = NAMES.subList(0, 2);
+        b.run(name, 1, () -> {
+            long n = 0;
+            for (List<Hand> hands : spots) n += exhaustive.calcularEquity(names, hands, flop, 1, 42L).size();
+            return n;
+        });
+    }
+
+    /**
+     * Distribución de equities de un rango medio (RANGES[3]) contra uno estrecho
+     * (RANGES[2]) y contra uno ancho (RANGES[4]) en cada fase con board: la estrecha
+     * se enumera (salvo preflop), la ancha pasa a Monte Carlo en el flop.
+     */
+    static void distribution(Bench b) {
+        EquityGridCalculator grid = new EquityGridCalculator();
+        CompiledRange hero = CompiledRange.parse(RangeParserBench.RANGES[3]);
+        StoppingPolicy policy = StoppingPolicy.fixedTrials(GRID_TRIALS);
+        for (int v : new int[] {2, 4}) {
+            List<CompiledRange> villain = List.of(CompiledRange.parse(RangeParserBench.RANGES[v]));
+            for (Phase phase : new Phase[] {Phase.FLOP, Phase.TURN, Phase.RIVER}) {
+                List<String> board = BOARD.subList(0, boardSize(phase));
+                b.run("equity.distribution." + phase + ".vsRange" + v, 1,
+                        () -> grid.calcularDistribucion(hero, villain, board, policy, 42L).size());
+            }
+        }
+    }
+
+    /**
+     * Outs del héroe (AhKh) en flop y turn: contra un rango de 1 rival (JJ+,AQ) y
+     * contra 5 rivales con todas las manos posibles (el peor caso de la GUI).
+     */
+    static void outs(Bench b) {
+        OutsCalculator outs = new OutsCalculator();
+        Hand hero = HANDS.get(0);
+        List<CompiledRange> tight = List.of(CompiledRange.parse("JJ+,AQ"));
+        List<CompiledRange> all = new ArrayList<>();
+        for (int i = 0; i < 5; i++) all.add(CompiledRange.all());
+        for (Phase phase : new Phase[] {Phase.FLOP, Phase.TURN}) {
+            List<String> board = BOARD.subList(0, boardSize(phase));
+            b.run("outs." + phase + ".1rival.range", 1,
+                    () -> outs.calcularOuts(hero, board, tight).unseen());
+            b.run("outs." + phase + ".5rivals.all", 1,
+                    () -> outs.calcularOuts(hero, board, all).unseen());
+        }
+    }
+
+    /**
+     * HS / PPot / NPot / E[HS²] de AhKh contra un rango medio en flop y turn:
+     * 'board' construye la tabla del board en cada operación (caché vaciada) y
+     * 'perHand' reutiliza la tabla, que es lo que cuesta cada mano del héroe después.
+     */
+    static void strength(Bench b) {
+        Hand hero = HANDS.get(0);
+        CompiledRange range = CompiledRange.parse(RangeParserBench.RANGES[3]);
+        for (Phase phase : new Phase[] {Phase.FLOP, Phase.TURN}) {
+            List<String> board = BOARD.subList(0, boardSize(phase));
+            for (int runouts : new int[] {HandStrengthCalculator.DEFAULT_MAX_RUNOUTS, Integer.MAX_VALUE}) {
+                if (phase == Phase.TURN && runouts == Integer.MAX_VALUE) continue;
+                String suffix = runouts == Integer.MAX_VALUE ? ".exact" : "";
+                HandStrengthCalculator calc = new HandStrengthCalculator(runouts, 1);
+                b.run("strength." + phase + suffix + ".board", 1, () -> {
+                    calc.clear();
+                    return calc.calcular(hero, range, board).runouts();
+                });
+                b.run("strength." + phase + suffix + ".perHand", 1,
+                        () -> calc.calcular(hero, range, board).runouts());
+            }
+        }
+    }
+
+    /**
+     * Comprueba HandStrengthCalculator (flop exacto) contra una cuenta directa con
+     * PokerHandEvaluator.score en boards de un solo palo, donde el board o el runout
+     * ya es color y todos los combos lo juegan: HS, PPot, NPot y E[HS²] de cada mano
+     * del héroe (una de cada 7 en el flop) contra todos los combos.
+     */
+    static void strengthCheck(Bench b) {
+        List<String> monotone = List.of("Ah", "Kh", "7h", "4h", "2h");
+        for (int size = 5; size >= 3; size--) {
+            List<String> board = monotone.subList(0, size);
+            int stride = size == 3 ? 7 : 1;
+            b.check("strength.check.monotone." + size + "cards", () -> {
+                HandStrengthCalculator calc = new HandStrengthCalculator(Integer.MAX_VALUE, 1);
+                long boardMask = Cards.maskOf(board);
+                long[][] scores = referenceScores(board);
+                for (int hero = 0; hero < Cards.COMBOS; hero += stride) {
+                    long heroMask = Cards.comboMask(hero);
+                    if ((heroMask & boardMask) != 0) continue;
+                    HandStrength hs = calc.calcular(Hand.of(Cards.comboHigh(hero), Cards.comboLow(hero)),
+                            CompiledRange.all(), board);
+                    double[] ref = referenceStrength(hero, boardMask, scores);
+                    if (Math.abs(hs.hs() - ref[0]) > 1e-9 || Math.abs(hs.ppot() - ref[1]) > 1e-9
+                            || Math.abs(hs.npot() - ref[2]) > 1e-9 || Math.abs(hs.ehs2() - ref[3]) > 1e-9) {
+                        System.out.printf(Locale.ROOT, "  %s en %s: %s, esperado HS=%.4f PPot=%.4f NPot=%.4f E[HS²]=%.4f%n",
+                                Hand.of(Cards.comboHigh(hero), Cards.comboLow(hero)), board, hs,
+                                ref[0], ref[1], ref[2], ref[3]);
+                        return false;
+                    }
+                }
+                return true;
+            });
+        }
+    }
+
+    /**
+     * Valor (score) de cada combo con el board y con cada runout hasta el river:
+     * fila 0 el board actual, fila r + 1 el runout r de runoutsOf; Long.MIN_VALUE
+     * si el combo choca con esas cartas.
+     */
+    private static long[][] referenceScores(List<String> board) {
+        long boardMask = Cards.maskOf(board);
+        long[] runouts = runoutsOf(boardMask, 5 - board.size());
+        long[][] scores = new long[runouts.length + 1][];
+        for (int r = 0; r <= runouts.length; r++) {
+            long mask = boardMask | (r == 0 ? 0 : runouts[r - 1]);
+            int state = PokerHandEvaluator.EMPTY_STATE;
+            for (long m = mask; m != 0; m &= m - 1)
+                state = PokerHandEvaluator.addCard(state, Long.numberOfTrailingZeros(m));
+            long[] row = new long[Cards.COMBOS + 1];
+            row[Cards.COMBOS] = mask;
+            for (int k = 0; k < Cards.COMBOS; k++) {
+                long cm = Cards.comboMask(k);
+                if ((cm & mask) != 0) {
+                    row[k] = Long.MIN_VALUE;
+                    continue;
+                }
+                int s = PokerHandEvaluator.addCard(PokerHandEvaluator.addCard(state, Cards.comboHigh(k)), Cards.comboLow(k));
+                row[k] = PokerHandEvaluator.score(s, mask | cm);
+            }
+            scores[r] = row;
+        }
+        return scores;
+    }
+
+    /** HS, PPot, NPot y E[HS²] de 'hero' contra todos los combos, con las definiciones de HandStrength. */
+    private static double[] referenceStrength(int hero, long boardMask, long[][] scores) {
+        long heroMask = Cards.comboMask(hero);
+        int[] before = new int[Cards.COMBOS];
+        double ahead = 0, tied = 0, total = 0;
+        for (int k = 0; k < Cards.COMBOS; k++) {
+            if ((Cards.comboMask(k) & (boardMask | heroMask)) != 0) continue;
+            before[k] = Long.compare(scores[0][hero], scores[0][k]);
+            if (before[k] > 0) ahead++;
+            else if (before[k] == 0) tied++;
+            total++;
+        }
+        double hs = (ahead + tied / 2) / total;
+
+        double[][] hp = new double[3][3];       // [antes][después]: 0 delante, 1 empate, 2 detrás
+        double sumHs2 = 0;
+        int used = 0;
+        for (int r = 1; r < scores.length; r++) {
+            long[] row = scores[r];
+            if ((row[Cards.COMBOS] & heroMask) != 0) continue;
+            double a = 0, t = 0, live = 0;
+            for (int k = 0; k < Cards.COMBOS; k++) {
+                if ((Cards.comboMask(k) & (boardMask | heroMask)) != 0 || row[k] == Long.MIN_VALUE) continue;
+                int after = Long.compare(row[hero], row[k]);
+                hp[1 - Integer.signum(before[k])][1 - Integer.signum(after)]++;
+                live++;
+                if (after > 0) a++;
+                else if (after == 0) t++;
+            }
+            double h = (a + t / 2) / live;
+            sumHs2 += h * h;
+            used++;
+        }
+        if (used == 0) return new double[] {hs, 0, 0, hs * hs};
+        double[] row = new double[3];
+        for (int i = 0; i < 3; i++) row[i] = hp[i][0] + hp[i][1] + hp[i][2];
+        double ppotDen = row[2] + row[1] / 2, npotDen = row[0] + row[1] / 2;
+        double ppot = ppotDen > 0 ? (hp[2][0] + hp[2][1] / 2 + hp[1][0] / 2) / ppotDen : 0;
+        double npot = npotDen > 0 ? (hp[0][2] + hp[1][2] / 2 + hp[0][1] / 2) / npotDen : 0;
+        return new double[] {hs, ppot, npot, sumHs2 / used};
+    }
+
+    /** Conjuntos de 'n' cartas (0, 1 o 2) fuera de 'dead', como máscaras. */
+    private static long[] runoutsOf(long dead, int n) {
+        List<Long> out = new ArrayList<>();
+        for (int a = 0; a < Cards.COUNT && n > 0; a++) {
+            if ((dead & (1L << a)) != 0) continue;
+            if (n == 1) {
+                out.add(1L << a);
+                continue;
+            }
+            for (int c = a + 1; c < Cards.COUNT; c++)
+                if ((dead & (1L << c)) == 0) out.add((1L << a) | (1L << c));
+        }
+        return out.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    static void trialAllocation(Bench b) {
+        RealEquityCalculator calc = new RealEquityCalculator();
+        for (int players : new int[] {2, 6}) {
+            List<String> names = NAMES.subList(0, players);
+            List<Hand> hands = HANDS.subList(0, players);
+            List<String> flop = BOARD.subList(0, 3);
+            b.zeroAllocation("equity.real.trialLoop." + players + "p", 1_000, 101_000,
+                    trials -> calc.calcularEquity(names, hands, flop, trials, 42L).size());
+        }
+    }
+
+    /** Todas las fases x {2, 6} jugadores para un motor concreto. */
+    static void run(Bench b, String engine, EquityCalculator calc) {
+        for (Phase phase : Phase.values()) {
+            for (int players : new int[] {2, 6}) {
+                List<String> names = NAMES.subList(0, players);
+                List<Hand> hands = HANDS.subList(0, players);
+                List<String> board = BOARD.subList(0, boardSize(phase));
+                int trials = PokerEquityGUI.trialsFor(phase);
+                b.run("equity." + engine + "." + phase + "." + players + "p", 1,
+                        () -> calc.calcularEquity(names, hands, board, trials, 42L).size());
+            }
+        }
+    }
+
+    static int boardSize(Phase phase) {
+        return switch (phase) {
+            case PREFLOP -> 0;
+            case FLOP    -> 3;
+            case TURN    -> 4;
+            case RIVER   -> 5;
+        };
+    }
+}
@@ -0,0 +1,93 @@
+package p3.bench;
+
+import java.util.List;
+import java.util.Random;
+
+import p3.logic.PokerHandEvaluator;
+import p3.model.Cards;
+
+/**
+ * Benchmarks de PokerHandEvaluator:
+ *  - una mano fija (API de Strings y de ids)
+ *  - un flujo de manos de 7 cartas aleatorias (precalculadas, para no medir el Random)
+ *  - evaluación incremental con el board fijado (como en RealEquityCalculator)
+ */
+public final class EvaluatorBench {
+
+    private static final int STREAM = 1 << 16;
+
+    private EvaluatorBench() {}
+
+    public static void run(Bench b) {
+        List<String> board = List.of("Qs", "Jd", "2c", "7h", "Th");
+        b.run("evaluator.evaluate7.strings", 1,
+                () -> PokerHandEvaluator.evaluate7("Ah", "Kd", board));
+
+        int[] fixed = ids("Ah", "Kd", "Qs", "Jd", "2c", "7h", "Th");
+        b.run("evaluator.evaluate7.ids", 1,
+                () -> PokerHandEvaluator.evaluate7(fixed[0], fixed[1], fixed[2], fixed[3], fixed[4], fixed[5], fixed[6]));
+
+        int[] stream = randomHands(new Random(1), STREAM);
+        b.run("evaluator.evaluate7.randomStream", STREAM, () -> {
+            long acc = 0;
+            for (int i = 0; i < STREAM * 7; i += 7) {
+                acc += PokerHandEvaluator.evaluate7(stream[i], stream[i + 1], stream[i + 2],
+                        stream[i + 3], stream[i + 4], stream[i + 5], stream[i + 6]);
+            }
+            return acc;
+        });
+
+        // Board de 5 fijo (prefijo) + 2 cartas de mano variables
+        int boardState = PokerHandEvaluator.stateOf(fixed, 2, 7);
+        long boardMask = 0L;
+        for (int i = 2; i < 7; i++) boardMask |= 1L << fixed[i];
+        final long bm = boardMask;
+        int[] holes = randomHoles(new Random(2), bm, STREAM);
+        b.run("evaluator.incremental.holeCards", STREAM, () -> {
+            long acc = 0;
+            for (int i = 0; i < STREAM * 2; i += 2) {
+                int c1 = holes[i], c2 = holes[i + 1];
+                acc += PokerHandEvaluator.score(
+                        PokerHandEvaluator.addCard(PokerHandEvaluator.addCard(boardState, c1), c2),
+                        bm | (1L << c1) | (1L << c2));
+            }
+            return acc;
+        });
+    }
+
+    // ===== Datos =====
+
+    static int[] ids(String... codes) {
+        int[] out = new int[codes.length];
+        for (int i = 0; i < codes.length; i++) out[i] = Cards.parse(codes[i]);
+        return out;
+    }
+
+    /** 'n' manos de 7 cartas distintas, seguidas en un solo array. */
+    static int[] randomHands(Random rnd, int n) {
+        int[] deck = new int[Cards.COUNT];
+        for (int i = 0; i < deck.length; i++) deck[i] = i;
+        int[] out = new int[n * 7];
+        for (int h = 0; h < n; h++) {
+            for (int i = 0; i < 7; i++) {
+                int j = i + rnd.nextInt(deck.length - i);
+                int tmp = deck[i]; deck[i] = deck[j]; deck[j] = tmp;
+                out[h * 7 + i] = deck[i];
+            }
+        }
+        return out;
+    }
+
+    /** 'n' pares de cartas que no chocan con 'dead'. */
+    private static int[] randomHoles(Random rnd, long dead, int n) {
+        int[] out = new int[n * 2];
+        for (int h = 0; h < n; h++) {
+            int c1, c2;
+            do { c1 = rnd.nextInt(Cards.COUNT); } while ((dead & (1L << c1)) != 0);
+            do { c2 = rnd.nextInt(Cards.COUNT); } while (c2 == c1 || (dead & (1L << c2)) != 0);
+            out[2 * h] = c1;
+            out[2 * h + 1] = c2;
+        }
+        return out;
+    }
+}
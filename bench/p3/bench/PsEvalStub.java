@@ -0,0 +1,86 @@
+package p3.bench;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import p3.logic.EquityResult;
+import p3.logic.ExhaustiveEquityCalculator;
+import p3.logic.StoppingPolicy;
+import p3.model.Cards;
+import p3.model.Hand;
+
+/**
+ * Evaluador de prueba que habla el protocolo de PsEvalPool, para usarlo en lugar
+ * de ps-eval (bench/ps-eval-stub.sh o .cmd lo lanzan con el classpath de bin).
+ *
+ * Lee peticiones "&lt;id&gt; AhAd:KcKd &lt;board|-&gt;" por stdin y responde
+ * "&lt;id&gt; OK e1 e2 ..." con ExhaustiveEquityCalculator (exacto si se puede; si no,
+ * STUB_TRIALS pruebas Monte Carlo), o "&lt;id&gt; ERR mensaje". Termina al cerrarse stdin.
+ *
+ * Para probar los fallos del pool, con variables de entorno:
+ *  - PS_EVAL_STUB_DELAY_MS: espera antes de cada respuesta (timeouts, saturación).
+ *  - PS_EVAL_STUB_CRASH_AFTER: sale con código 1 tras responder a tantas peticiones.
+ */
+public final class PsEvalStub {
+
+    // Pruebas del Monte Carlo cuando no se puede enumerar
+    static final int STUB_TRIALS = 50_000;
+
+    private PsEvalStub() {}
+
+    public static void main(String[] args) throws Exception {
+        long delay = envLong("PS_EVAL_STUB_DELAY_MS", 0);
+        long crashAfter = envLong("PS_EVAL_STUB_CRASH_AFTER", -1);
+        ExhaustiveEquityCalculator calc = new ExhaustiveEquityCalculator();
+        PrintStream out = new PrintStream(System.out, false, StandardCharsets.UTF_8);
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+
+        long answered = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            String[] parts = line.trim().split("\\s+");
+            if (parts.length != 3) continue;
+            String id = parts[0];
+            try {
+                List<String> names = new ArrayList<>();
+                List<Hand> hands = new ArrayList<>();
+                for (String h : parts[1].split(":")) {
+                    if (h.length() != 4) throw new IllegalArgumentException("mano inválida: " + h);
+                    names.add("P" + names.size());
+                    hands.add(Hand.fromString(h));
+                }
+                List<String> board = new ArrayList<>();
+                if (!parts[2].equals("-"))
+                    for (int i = 0; i + 1 < parts[2].length(); i += 2) board.add(parts[2].substring(i, i + 2));
+
+                long used = Cards.maskOf(board);
+                int cards = board.size();
+                for (Hand h : hands) {
+                    used |= h.mask();
+                    cards += 2;
+                }
+                if (Long.bitCount(used) != cards) throw new IllegalArgumentException("cartas repetidas");
+
+                if (delay > 0) Thread.sleep(delay);
+                EquityResult r = calc.calcularEquity(names, hands, board, StoppingPolicy.fixedTrials(STUB_TRIALS), 42L);
+                StringBuilder sb = new StringBuilder(id).append(" OK");
+                for (String n : names) sb.append(String.format(Locale.ROOT, " %.6f", r.equity(n)));
+                out.println(sb);
+            } catch (RuntimeException e) {
+                out.println(id + " ERR " + e.getMessage());
+            }
+            out.flush();
+            if (++answered == crashAfter) System.exit(1);
+        }
+    }
+
+    private static long envLong(String name, long def) {
+        String v = System.getenv(name);
+        return v == null || v.isBlank() ? def : Long.parseLong(v.trim());
+    }
+}
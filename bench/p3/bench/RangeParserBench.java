@@ -0,0 +1,45 @@
+package p3.bench;
+
+import p3.logic.CompiledRange;
+import p3.logic.HandUtils;
+import p3.logic.RangeCache;
+import p3.logic.RangeParser;
+import p3.logic.RankingProvider;
+import p3.model.Hand;
+
+/** Benchmarks de RangeParser con rangos típicos (cortos, medios y anchos). */
+public final class RangeParserBench {
+
+    static final String[] RANGES = {
+        "JJ+",
+        "QQ+,AKs,AKo",
+        "TT+,AQs+,KQs,AQo+",
+        "22+,A2s+,K9s+,QTs+,JTs,T9s,98s,ATo+,KJo+,QJo",
+        "55+,A2s+,K5s+,Q8s+,J8s+,T8s+,97s+,86s+,75s+,65s,54s,A7o+,K9o+,QTo+,JTo",
+    };
+
+    private RangeParserBench() {}
+
+    public static void run(Bench b) {
+        for (int i = 0; i < RANGES.length; i++) {
+            String r = RANGES[i];
+            b.run("rangeParser.parse[" + i + "]", 1, () -> RangeParser.parse(r).size());
+        }
+        String weighted = "QQ+:0.75,AKs,AKo:0.5,AhQh,AdQd:0.25,KQs-KTs:0.6,98s-65s:0.3";
+        b.run("rangeParser.compile.weighted", 1, () -> RangeParser.compile(weighted).size());
+        b.run("rangeParser.isBasicFormat", 1,
+                () -> RangeParser.isBasicFormat(RANGES[RANGES.length - 1]) ? 1 : 0);
+
+        // Comprobar si una mano está en el rango: lista de notaciones 169 contra máscara compilada
+        String wide = RANGES[RANGES.length - 1];
+        Hand hand = Hand.fromString("Kh9d");
+        b.run("rangeParser.listContains", 1,
+                () -> RangeParser.parse(wide).contains(HandUtils.to169(hand).toUpperCase()) ? 1 : 0);
+        CompiledRange compiled = CompiledRange.parse(wide);
+        b.run("rangeParser.compiled.parse", 1, () -> CompiledRange.parse(wide).size());
+        b.run("rangeParser.compiled.contains", 1, () -> compiled.contains(hand) ? 1 : 0);
+        RangeCache cache = new RangeCache(RangeCache.DEFAULT_MAX_ENTRIES);
+        b.run("rangeParser.cache.contains", 1, () -> cache.compile(wide).contains(hand) ? 1 : 0);
+        b.run("rangeParser.topPercent.contains", 1, () -> RankingProvider.isInTopPercent(hand, 25) ? 1 : 0);
+    }
+}
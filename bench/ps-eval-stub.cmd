@@ -0,0 +1,5 @@
+@echo off
+rem Evaluador de prueba para PsEvalPool: java -Dp3.psEval=bench\ps-eval-stub.cmd ...
+rem Clases compiladas en bin (o en PS_EVAL_STUB_CP).
+if "%PS_EVAL_STUB_CP%"=="" set PS_EVAL_STUB_CP=bin
+java -cp "%PS_EVAL_STUB_CP%" p3.bench.PsEvalStub
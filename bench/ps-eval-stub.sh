@@ -0,0 +1,4 @@
+#!/bin/sh
+# Evaluador de prueba para PsEvalPool: java -Dp3.psEval=bench/ps-eval-stub.sh ...
+# Clases compiladas en bin (o en PS_EVAL_STUB_CP).
+exec java -cp "${PS_EVAL_STUB_CP:-bin}" p3.bench.PsEvalStub
@@ -6,8 +6,6 @@ import java.awt.FlowLayout;
 import java.awt.Frame;
 import java.awt.GridLayout;
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Set;
 
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
@@ -18,6 +16,7 @@ import javax.swing.JTextField;
 
 import p3.logic.Deck;
 import p3.model.Board;
+import p3.model.Cards;
 import p3.model.CardValidator;
 import p3.model.GameState;
 
@@ -87,9 +86,9 @@ public class BoardEditorDialog extends JDialog {
             }
         }
 
-        Set<String> used = new HashSet<>(state.allUsedCards());
+        long used = state.usedMask();
         for (String c : entered) {
-            if (used.contains(c)) { showError("Esa carta ya está en uso: " + c); return; }
+            if (Cards.contains(used, Cards.parse(c))) { showError("Esa carta ya está en uso: " + c); return; }
         }
 
         Board board = state.getBoard();
@@ -104,7 +103,7 @@ public class BoardEditorDialog extends JDialog {
         else if (n >= 3) state.setPhase(Phase.FLOP);
         else             state.setPhase(Phase.PREFLOP);
 
-        if (deck != null) deck.removeCards(state.allUsedCards());
+        if (deck != null) deck.removeMask(state.usedMask());
 
         saved = true;
         dispose();
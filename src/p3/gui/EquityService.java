@@ -0,0 +1,173 @@
+package p3.gui;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Cálculos de equity fuera del hilo de Swing (EDT).
+ *
+ * Cada petición lleva un nº de generación creciente. Al pedir una nueva, la
+ * anterior se cancela: si aún no ha empezado no llega a ejecutarse, y si está
+ * calculando se interrumpe su hilo y el motor para al acabar el lote en curso
+ * (StoppingPolicy.checkCancelled). El resultado se entrega en el EDT con
+ * SwingUtilities.invokeLater y solo si su generación sigue siendo la última,
+ * así una respuesta atrasada nunca pisa a la de un clic posterior.
+ *
+ * Un solo hilo de trabajo (daemon): los motores ya reparten cada cálculo entre
+ * los núcleos, y con un hilo nunca hay dos cálculos compitiendo por la CPU. El
+ * EDT solo encola la petición, así que un clic no espera nunca al cálculo.
+ */
+public final class EquityService implements AutoCloseable {
+
+    private static final AtomicInteger THREADS = new AtomicInteger();
+
+    private final ExecutorService executor;
+    private final AtomicLong generation = new AtomicLong();
+    private Future<?> current;      // último cálculo enviado (guardado por this)
+    private Object currentKey;      // su clave
+    private Object lastKey;         // clave y resultado del último cálculo terminado
+    private Object lastResult;
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+
+    public EquityService() {
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "equity-service-" + THREADS.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Cálculo que, mientras trabaja, puede ir publicando resultados parciales. */
+    @FunctionalInterface
+    public interface ProgressiveJob<T, P> {
+        T call(Consumer<P> progress) throws Exception;
+    }
+
+    /**
+     * Lanza 'job' en segundo plano cancelando el anterior. Devuelve su generación.
+     *
+     * @param onResult se llama en el EDT con el resultado, si nadie ha pedido otro antes
+     * @param onError  se llama en el EDT si el cálculo falla (no si se cancela)
+     */
+    public <T> long submit(Callable<T> job, Consumer<? super T> onResult, Consumer<Throwable> onError) {
+        return submit(null, progress -> job.call(), p -> { }, onResult, onError);
+    }
+
+    /**
+     * Igual, con resultados parciales (ver submit con clave).
+     */
+    public <T, P> long submit(ProgressiveJob<T, P> job, Consumer<? super P> onProgress,
+                              Consumer<? super T> onResult, Consumer<Throwable> onError) {
+        return submit(null, job, onProgress, onResult, onError);
+    }
+
+    /**
+     * Lanza 'job' con resultados parciales: lo que el cálculo pase a su 'progress'
+     * llega a 'onProgress' en el EDT, siempre antes que el final. Si el EDT va más
+     * lento que el cálculo, los parciales se agrupan y solo se pinta el último.
+     *
+     * 'key' identifica el cálculo (null = sin clave): si es la del que está en
+     * curso, no se relanza (ese mismo publicará); si es la del último terminado, se
+     * vuelve a entregar su resultado sin calcular. Las dos cuentan en deduplicated().
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T, P> long submit(Object key, ProgressiveJob<T, P> job, Consumer<? super P> onProgress,
+                                           Consumer<? super T> onResult, Consumer<Throwable> onError) {
+        if (key != null && key.equals(currentKey) && current != null && !current.isDone()) {
+            deduplicated.incrementAndGet();
+            return generation.get();
+        }
+        long gen = generation.incrementAndGet();
+        cancelCurrent();
+        if (key != null && key.equals(lastKey)) {
+            deduplicated.incrementAndGet();
+            T result = (T) lastResult;
+            SwingUtilities.invokeLater(() -> {
+                if (gen == generation.get()) onResult.accept(result);
+            });
+            return gen;
+        }
+        currentKey = key;
+        AtomicReference<P> pending = new AtomicReference<>();
+        Consumer<P> progress = p -> {
+            if (p == null || gen != generation.get()) return;
+            if (pending.getAndSet(p) != null) return;      // ya hay un pintado en cola: lo usará
+            SwingUtilities.invokeLater(() -> {
+                P last = pending.getAndSet(null);
+                if (last != null && gen == generation.get()) onProgress.accept(last);
+            });
+        };
+        current = executor.submit(() -> {
+            if (gen != generation.get()) return;     // ya hay otro más nuevo
+            try {
+                T result = job.call(progress);
+                completed.incrementAndGet();
+                remember(key, result);
+                SwingUtilities.invokeLater(() -> {
+                    if (gen == generation.get()) onResult.accept(result);
+                });
+            } catch (CancellationException | InterruptedException e) {
+                // sustituido por una petición posterior: no se publica nada
+            } catch (Exception e) {
+                SwingUtilities.invokeLater(() -> {
+                    if (gen == generation.get()) onError.accept(e);
+                });
+            }
+        });
+        return gen;
+    }
+
+    /** Cancela el cálculo en curso (si lo hay): su resultado ya no se publicará. */
+    public synchronized void cancel() {
+        generation.incrementAndGet();
+        cancelCurrent();
+    }
+
+    /** Generación de la última petición (o cancelación). */
+    public long generation() { return generation.get(); }
+
+    /** ¿Sigue pendiente o calculando la última petición? */
+    public synchronized boolean isBusy() {
+        return current != null && !current.isDone();
+    }
+
+    /** Peticiones resueltas sin calcular: iguales a la que estaba en curso o a la última terminada. */
+    public long deduplicated() { return deduplicated.get(); }
+
+    /** Cálculos terminados (publicados o no). */
+    public long completed() { return completed.get(); }
+
+    /** Cálculos cancelados antes de terminar, por una petición posterior o por cancel(). */
+    public long cancelled() { return cancelled.get(); }
+
+    @Override public void close() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    private synchronized void remember(Object key, Object result) {
+        if (key == null) return;
+        lastKey = key;
+        lastResult = result;
+    }
+
+    private void cancelCurrent() {
+        if (current != null && !current.isDone() && current.cancel(true)) cancelled.incrementAndGet();
+        current = null;
+        currentKey = null;
+    }
+}
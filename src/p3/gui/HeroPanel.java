@@ -17,6 +17,8 @@ import javax.swing.JSpinner;
 import javax.swing.JTextField;
 import javax.swing.SpinnerNumberModel;
 import javax.swing.border.EmptyBorder;
+
+import p3.logic.RankingProvider;
 /**
  * Panel de controles del "héroe" (el jugador principal).
  * Aquí el usuario elige cómo definir su rango (texto o porcentaje),
@@ -36,7 +38,7 @@ public class HeroPanel extends JPanel {
     // Campo donde se escribe el rango en texto
     private JTextField textualRangeField;
 
-    // Desplegable para escoger el tipo de ranking (por ahora solo informativo)
+    // Desplegable para escoger el ranking con el que se cuentan los porcentajes
     private JComboBox<String> rankingCombo;
 
     // Control para elegir un número 1..100 (porcentaje del ranking)
@@ -143,8 +145,8 @@ public class HeroPanel extends JPanel {
 
     /**
      * Bloque: selector del "tipo de ranking".
-     * Por ahora solo es decorativo (no cambia el cálculo por dentro),
-     * pero deja el diseño preparado si en el futuro se añaden más tipos.
+     * Decide qué ranking usan los rangos por porcentaje (ver RankingProvider):
+     * Sklansky-Chubukov o el Custom leído de fichero.
      */
     private JPanel createRankingPanel() {
         JPanel panel = new JPanel();
@@ -156,7 +158,7 @@ public class HeroPanel extends JPanel {
         rankingLabel.setForeground(UiTheme.FG_TEXT_DIM);
         panel.add(rankingLabel);
 
-        rankingCombo = new JComboBox<>(new String[]{"Sklansky-Chubukov", "Custom"});
+        rankingCombo = new JComboBox<>(new String[]{RankingProvider.SKLANSKY_CHUBUKOV, RankingProvider.CUSTOM});
         rankingCombo.setMaximumSize(new Dimension(150, 25));
         rankingCombo.setEnabled(false); // desactivado al iniciar (solo se usa con porcentaje)
         rankingCombo.setFont(UiTheme.F_9);
@@ -276,6 +278,9 @@ public class HeroPanel extends JPanel {
     /** Devuelve el porcentaje elegido en la rueda numérica (1..100). */
     public int     getPercentage()       { return (int) percentageSpinner.getValue(); }
 
+    /** Devuelve el nombre del ranking elegido (RankingProvider.SKLANSKY_CHUBUKOV o CUSTOM). */
+    public String  getRankingName()      { return (String) rankingCombo.getSelectedItem(); }
+
     /** Devuelve true si las cartas del héroe deben salir aleatorias. */
     public boolean isRandomCards()       { return cbRandomCards.isSelected(); }
 
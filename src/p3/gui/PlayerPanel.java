@@ -32,6 +32,10 @@ public class PlayerPanel extends JPanel {
 
     private String cards = "";
     private JLabel equityField;
+    private JPanel equityChip;
+    // Equity provisional y semiancho de su intervalo (0 = valor final, sin barra)
+    private double equityPct;
+    private double equityHalfWidth;
     private CardsPanel cardsPanel;
     
     private JTextField rangeField;
@@ -165,8 +169,22 @@ public class PlayerPanel extends JPanel {
                 g2.setColor(UiTheme.CHIP_STROK);
                 g2.setStroke(new BasicStroke(2));
                 g2.drawRoundRect(0, 0, getWidth() - 1, getHeight() - 1, 20, 20);
+
+                // Barra de error mientras la equity converge: intervalo del 95% sobre 0..100%
+                if (equityHalfWidth > 0) {
+                    int w = getWidth() - 20, y = getHeight() - 6;
+                    int x1 = 10 + (int) Math.round(w * Math.max(0.0, equityPct - equityHalfWidth) / 100.0);
+                    int x2 = 10 + (int) Math.round(w * Math.min(100.0, equityPct + equityHalfWidth) / 100.0);
+                    int xm = 10 + (int) Math.round(w * equityPct / 100.0);
+                    g2.setColor(new Color(255, 255, 255, 90));
+                    g2.fillRect(10, y, w, 2);
+                    g2.setColor(Color.WHITE);
+                    g2.fillRect(x1, y - 1, Math.max(2, x2 - x1), 4);
+                    g2.fillRect(xm - 1, y - 3, 2, 8);
+                }
             }
         };
+        equityChip = chip;
         chip.setLayout(new BorderLayout());
         chip.setPreferredSize(new Dimension(120, 30));
         chip.setOpaque(false);
@@ -228,7 +246,25 @@ public class PlayerPanel extends JPanel {
     public String getCards() { return cards; }
 
     public void setEquity(double pct) {
+        equityHalfWidth = 0.0;
+        equityField.setFont(UiTheme.F_18B);
         equityField.setText(String.format(Locale.ROOT, "%.3f%%", pct));
+        equityField.setToolTipText(null);
+        equityChip.repaint();
+    }
+
+    /**
+     * Equity provisional de un cálculo que aún converge: valor ± semiancho del
+     * intervalo del 95% (puntos de equity), con la barra de error dibujada en el chip.
+     */
+    public void setEquity(double pct, double halfWidth) {
+        if (Double.isNaN(halfWidth)) halfWidth = 0.0;
+        equityPct = pct;
+        equityHalfWidth = halfWidth;
+        equityField.setFont(UiTheme.F_13B);
+        equityField.setText(String.format(Locale.ROOT, "%.1f%% ±%.1f", pct, halfWidth));
+        equityField.setToolTipText(String.format(Locale.ROOT, "Calculando: %.2f%% ± %.2f (95%%)", pct, halfWidth));
+        equityChip.repaint();
     }
 
     public String getPlayerName() { return playerName; }
@@ -236,6 +272,7 @@ public class PlayerPanel extends JPanel {
     public void reset() {
         cards = "";
         cardsPanel.setCards("");
+        setEquity(0.0);
         equityField.setText("0.0%");
         if (rangeField != null) rangeField.setText("");
         if (emField != null) emField.setText("");
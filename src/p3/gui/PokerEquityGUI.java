@@ -17,12 +17,11 @@ import java.awt.event.ComponentEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Random;
-import java.util.Set;
+import java.util.regex.Pattern;
 
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
@@ -33,12 +32,23 @@ import javax.swing.SwingUtilities;
 import javax.swing.border.CompoundBorder;
 import javax.swing.border.EmptyBorder;
 
+import p3.logic.CachingEquityCalculator;
+import p3.logic.CompiledRange;
 import p3.logic.Deck;
 import p3.logic.EquityCalculator;
-import p3.logic.HandUtils;
+import p3.logic.EquityListener;
+import p3.logic.EquityResult;
+import p3.logic.NextStreetEquities;
+import p3.logic.OutsCalculator;
+import p3.logic.OutsResult;
 import p3.logic.PokerStoveEquityCalculator;
+import p3.logic.PreflopTableEquityCalculator;
+import p3.logic.RangeCache;
 import p3.logic.RangeParser;
 import p3.logic.RankingProvider;
+import p3.logic.SpeculativeEquityCalculator;
+import p3.logic.StoppingPolicy;
+import p3.model.Cards;
 import p3.model.GameState;
 import p3.model.Hand;
 
@@ -64,7 +74,21 @@ public class PokerEquityGUI extends JFrame {
     private Deck deck;
 
     // Cálculo de equity (PokerStove con fallback a Monte Carlo)
-    private final EquityCalculator calc = new PokerStoveEquityCalculator();
+    // Preflop heads-up desde la tabla precalculada (si existe el fichero); el resto pasa
+    // por la caché por situación canónica: re-repartir o editar manos repite muchos spots isomorfos
+    // En medio, la siguiente calle calculada de antemano mientras no se hace nada; se especula
+    // con el motor sin caché, así lo especulado no echa de la caché las situaciones reales
+    private final EquityCalculator engine = new PokerStoveEquityCalculator();
+    private final SpeculativeEquityCalculator speculative = new SpeculativeEquityCalculator(
+            new CachingEquityCalculator(engine), engine, SpeculativeEquityCalculator.DEFAULT_MAX_FLOPS);
+    private final EquityCalculator calc = new PreflopTableEquityCalculator(speculative);
+
+    // Outs del héroe en flop y turn (se recalculan con las equities)
+    private final OutsCalculator outsCalc = new OutsCalculator();
+
+    // Las equities se calculan en segundo plano: el EDT nunca espera al Monte Carlo
+    private final EquityService equityService = new EquityService();
+    private final RequestCoalescer equityRequests = new RequestCoalescer(this::computeEquities);
 
     // Estado del juego
     private final GameState state = new GameState();
@@ -79,6 +103,9 @@ public class PokerEquityGUI extends JFrame {
     // Controlador
     private final Controller controller = new Controller();
 
+    // Rango escrito como número entero (se toma como porcentaje)
+    private static final Pattern NUMERIC_RANGE = Pattern.compile("\\d+");
+
     public PokerEquityGUI() {
         setTitle("Poker Equity Calculator");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -329,7 +356,18 @@ public class PokerEquityGUI extends JFrame {
     // =========================
     //   Equity y utilidades
     // =========================
+
+    /**
+     * Pide recalcular las equities. Una misma acción puede pedirlo varias veces
+     * seguidas (editar, sincronizar el mazo...): las peticiones se juntan y se
+     * calcula una sola vez, con el estado que haya al final de la ráfaga.
+     */
     private void updateEquities() {
+        equityRequests.request();
+    }
+
+    private void computeEquities() {
+        speculative.cancel();       // el cálculo de verdad va primero
         state.ensurePlayersCount(playerPanels.size());
 
         List<String> allNames = new ArrayList<>();
@@ -352,22 +390,81 @@ public class PokerEquityGUI extends JFrame {
 
         // Si no hay al menos 2 jugadores activos, no tiene sentido calcular equity
         if (activeHands.size() < 2) {
+            equityService.cancel();     // un cálculo anterior ya no debe pintarse
             for (PlayerPanel pp : playerPanels) pp.setEquity(0.0);
             return;
         }
 
-        int trials = switch (phase) {
-            case PREFLOP -> 100000;
-            case FLOP    -> 200000;
-            case TURN    -> 300000;
-            case RIVER   -> 1;
-        };
+        StoppingPolicy policy = policyFor(phase);
 
         String seedKey = String.join("-", activeNames) + "|" + activeHands + "|" + board + "|" + phase;
         long seed = seedKey.hashCode();
 
-        Map<String, Double> equities = calc.calcularEquity(activeNames, activeHands, board, trials, seed);
+        // El cálculo va fuera del EDT con copias de la situación; si entretanto se pide
+        // otro, este se cancela y su resultado no llega a aplicarse. Mientras converge,
+        // los paneles enseñan las instantáneas con su barra de error
+        List<String> names = List.copyOf(activeNames);
+        List<Hand> hands = List.copyOf(activeHands);
+        List<String> boardCopy = List.copyOf(board);
+        equityService.<Map<String, Double>, EquityResult>submit(seedKey,
+                progress -> {
+                    EquityListener listener = progress::accept;
+                    return calc.calcularEquity(names, hands, boardCopy, policy, seed,
+                            listener.atMostEvery(SNAPSHOT_MILLIS)).equities();
+                },
+                snapshot -> applySnapshot(snapshot, activeIndices),
+                equities -> {
+                    applyEquities(equities, activeIndices);
+                    speculateNextStreet(names, hands, boardCopy);
+                },
+                ex -> statusBar.setMessage("Error calculando equity: " + ex.getMessage()));
+        statusBar.setToolTipText(equityStats());
+    }
 
+    /**
+     * Con las equities ya pintadas, calcula en segundo plano las de todas las cartas
+     * posibles de la siguiente calle: si el usuario pulsa Flop/Turn/River antes de
+     * cambiar nada, la respuesta sale de esa tabla. Al acabar, la barra de estado
+     * dice cuántas cartas ayudan o perjudican al héroe.
+     */
+    private void speculateNextStreet(List<String> names, List<Hand> hands, List<String> board) {
+        if (phase == Phase.RIVER || (board.size() != 0 && board.size() != 3 && board.size() != 4)) return;
+        Phase next = Phase.values()[phase.ordinal() + 1];
+        long seed = (String.join("-", names) + "|" + hands + "|" + board + "|" + next).hashCode();
+        speculative.speculate(names, hands, board, policyFor(next), seed)
+                .thenAccept(t -> SwingUtilities.invokeLater(() -> showNextStreet(t, next)));
+    }
+
+    /** " · TURN: 12 cartas ayudan y 30 perjudican al héroe" junto al mazo restante. */
+    private void showNextStreet(NextStreetEquities t, Phase next) {
+        if (deck == null || !t.board().equals(state.getBoard().visible())) return;   // ya se ha movido
+        String hero = playerPanels.size() > 4 ? playerPanels.get(4).getPlayerName() : null;
+        if (hero == null || !t.names().contains(hero)) return;
+        statusBar.setRight(String.format(Locale.ROOT, "Mazo restante: %d · %s: %d cartas ayudan y %d perjudican al héroe",
+                deck.remaining(), next, t.helping(hero).size(), t.hurting(hero).size()));
+    }
+
+    /** Cálculos de equity pedidos y ahorrados (por juntar ráfagas o por repetir situación). */
+    private String equityStats() {
+        long saved = equityRequests.saved() + equityService.deduplicated();
+        return String.format(Locale.ROOT, "Equity: %d peticiones, %d cálculos ahorrados",
+                equityRequests.requested(), saved);
+    }
+
+    // Como mucho una instantánea de equity cada tanto (ms) mientras converge
+    private static final long SNAPSHOT_MILLIS = 40;
+
+    /** Equities provisionales (valor ± intervalo del 95%) de los jugadores activos. */
+    private void applySnapshot(EquityResult snapshot, List<Integer> activeIndices) {
+        for (int i : activeIndices) {
+            PlayerPanel pp = playerPanels.get(i);
+            String name = pp.getPlayerName();
+            pp.setEquity(snapshot.equity(name), snapshot.halfWidth(name));
+        }
+    }
+
+    /** Pinta en los paneles las equities ya calculadas (en el EDT) y el color de rango/EM. */
+    private void applyEquities(Map<String, Double> equities, List<Integer> activeIndices) {
         // ✅ Aplicar resultados solo a los jugadores activos
         for (int i = 0; i < playerPanels.size(); i++) {
             PlayerPanel pp = playerPanels.get(i);
@@ -432,16 +529,16 @@ public class PokerEquityGUI extends JFrame {
                 try {
                     String pctTxt = rangoRaw.replace("%", "").trim();
                     double pct = Double.parseDouble(pctTxt);
-                    enRango = RankingProvider.isInTopPercent(hand, pct);
+                    enRango = RankingProvider.getIndex(heroPanel.getRankingName()).isInTop(hand, pct);
                 } catch (Exception ignore) {
                     enRango = false;
                 }
 
-            } else if (rangoRaw.matches("\\d+")) {
+            } else if (NUMERIC_RANGE.matcher(rangoRaw).matches()) {
                 // Número  → interpretarlo como porcentaje
                 try {
                     double pct = Double.parseDouble(rangoRaw);
-                    enRango = RankingProvider.isInTopPercent(hand, pct);
+                    enRango = RankingProvider.getIndex(heroPanel.getRankingName()).isInTop(hand, pct);
                 } catch (Exception ignore) {
                     enRango = false;
                 }
@@ -449,9 +546,7 @@ public class PokerEquityGUI extends JFrame {
             } else {
                 // RANGO TEXTUAL
                 try {
-                	String h169 = p3.logic.HandUtils.to169(hand).toUpperCase(Locale.ROOT);
-                	List<String> parsed = RangeParser.parse(rangoRaw.toUpperCase(Locale.ROOT));
-                	enRango = parsed.contains(h169);
+                	enRango = RangeCache.getDefault().compile(rangoRaw).contains(hand);
                 } catch (Exception ignore) {
                     enRango = false;
                 }
@@ -473,12 +568,83 @@ public class PokerEquityGUI extends JFrame {
 
     }
 
+    /**
+     * Outs medios del héroe (asiento 4) contra los rivales activos, para la barra de
+     * estado: " · Outs héroe: 8.4 de 45 (18.7%)". Cada rival cuenta con su rango si
+     * tiene uno válido escrito y, si no, con su mano. Vacío si no hay nada que calcular.
+     */
+    private String outsSummary() {
+        List<Hand> hands = state.getPlayers();
+        List<String> board = state.getBoard().visible();
+        Hand hero = hands.size() > 4 ? hands.get(4) : null;
+        if (hero == null || (board.size() != 3 && board.size() != 4)) return "";
+
+        long dead = hero.mask() | Cards.maskOf(board);
+        List<CompiledRange> rivals = new ArrayList<>();
+        for (int i = 0; i < hands.size() && i < playerPanels.size(); i++) {
+            if (i == 4 || hands.get(i) == null) continue;
+            rivals.add(rivalRange(playerPanels.get(i), hands.get(i), dead));
+        }
+        if (rivals.isEmpty()) return "";
+
+        try {
+            OutsResult outs = outsCalc.calcularOuts(hero, board, rivals);
+            return String.format(Locale.ROOT, " · Outs héroe: %.1f de %d (%.1f%%)",
+                    outs.averageOuts(), outs.unseen(), 100.0 * outs.improveProbability());
+        } catch (IllegalArgumentException ex) {
+            return "";      // algún rango sin combos posibles con este board
+        }
+    }
+
+    /**
+     * Rango de un rival: el escrito en su panel (%, número o texto) o, si no hay o no
+     * le queda ningún combo posible con las cartas 'dead', su mano.
+     */
+    private CompiledRange rivalRange(PlayerPanel pp, Hand hand, long dead) {
+        String raw = pp.getRangeInput().trim();
+        CompiledRange range = null;
+        try {
+            if (raw.endsWith("%") || NUMERIC_RANGE.matcher(raw).matches()) {
+                double pct = Double.parseDouble(raw.replace("%", "").trim());
+                range = CompiledRange.of169(RankingProvider.getIndex(heroPanel.getRankingName()).top(pct));
+            } else if (!raw.isEmpty()) {
+                range = RangeCache.getDefault().compile(raw);
+            }
+        } catch (RuntimeException ignore) {
+            range = null;   // rango mal escrito: se usa la mano
+        }
+        if (range == null || range.removeBlockers(dead).isEmpty()) return CompiledRange.of(hand);
+        return range;
+    }
+
+    /** Nº fijo de simulaciones Monte Carlo por fase (river y benchmarks). */
+    public static int trialsFor(Phase phase) {
+        return switch (phase) {
+            case PREFLOP -> 100000;
+            case FLOP    -> 200000;
+            case TURN    -> 300000;
+            case RIVER   -> 1;
+        };
+    }
+
+    // Error estándar objetivo (puntos de equity) y tope de simulaciones para la GUI
+    private static final double GUI_STD_ERROR = 0.1;
+    private static final int GUI_MAX_TRIALS = 1_000_000;
+
+    /**
+     * Cuándo parar el Monte Carlo en cada fase: hasta ±0.1 de error estándar en
+     * todos los jugadores (los spots desequilibrados acaban antes, los multiway
+     * igualados siguen hasta GUI_MAX_TRIALS). Sin límite de tiempo, para que con
+     * el mismo seedKey el resultado sea siempre el mismo.
+     */
+    public static StoppingPolicy policyFor(Phase phase) {
+        if (phase == Phase.RIVER) return StoppingPolicy.fixedTrials(trialsFor(phase));
+        return StoppingPolicy.targetStdError(GUI_STD_ERROR, GUI_MAX_TRIALS);
+    }
 
     private void syncDeckAfterChange() {
         if (deck != null) {
-            List<String> used = new ArrayList<>(state.allUsedCards());
-            used.addAll(state.getFoldedCards());
-            deck.removeCards(used);
+            deck.removeMask(state.usedMask() | state.foldedMask());
             statusBar.setRight("Mazo restante: " + deck.remaining());
         }
     }
@@ -502,13 +668,12 @@ public class PokerEquityGUI extends JFrame {
         }
 
         // Evitar colisiones (excluye la mano previa del propio asiento)
-        Set<String> usadas = new HashSet<>(state.allUsedCards());
+        long usadas = state.usedMask();
         Hand previa = stateGetPlayerHand(seat);
         if (previa != null) {
-            usadas.remove(previa.card1());
-            usadas.remove(previa.card2());
+            usadas &= ~previa.mask();
         }
-        if (usadas.contains(hand.card1()) || usadas.contains(hand.card2())) {
+        if ((usadas & hand.mask()) != 0) {
             return HandEditorDialog.ValidationResult.error("Carta ya usada en mesa u otro jugador.");
         }
         return HandEditorDialog.ValidationResult.ok(hand);
@@ -599,13 +764,13 @@ public class PokerEquityGUI extends JFrame {
                 }
                 if (!RangeParser.isBasicFormat(rango)) {
                     JOptionPane.showMessageDialog(PokerEquityGUI.this,
-                            "Formato no válido. Ej: AA,KK,AKs,AQo",
+                            "Formato no válido. Ej: AA,KK,AKs:0.5,AhQh",
                             "Error", JOptionPane.ERROR_MESSAGE);
                     return;
                 }
             } else {
                 int pct = heroPanel.getPercentage();
-                List<String> top = RankingProvider.getTopByPercent(pct);
+                List<String> top = RankingProvider.getIndex(heroPanel.getRankingName()).top(pct);
                 if (top.isEmpty()) {
                     JOptionPane.showMessageDialog(PokerEquityGUI.this,
                             "Porcentaje demasiado bajo.",
@@ -628,12 +793,11 @@ public class PokerEquityGUI extends JFrame {
 
                 boolean enRango;
                 if (heroPanel.isTextualSelected()) {
-                	String normalizada = HandUtils.to169(hand).toUpperCase(Locale.ROOT);
-                	enRango = RangeParser.parse(rango.toUpperCase(Locale.ROOT)).contains(normalizada);
+                	enRango = RangeCache.getDefault().compile(rango).contains(hand);
 
                 } else {
                     int pct = heroPanel.getPercentage();
-                    enRango = RankingProvider.isInTopPercent(hand, pct);
+                    enRango = RankingProvider.getIndex(heroPanel.getRankingName()).isInTop(hand, pct);
                 }
 
                 // ✅ Solo colorea, no cambia la mano
@@ -663,7 +827,7 @@ public class PokerEquityGUI extends JFrame {
             char r1 = base.charAt(0);
             char r2 = base.charAt(1);
 
-            Set<String> used = new HashSet<>(state.allUsedCards());
+            long used = state.usedMask();
 
             for (int intentos = 0; intentos < 100; intentos++) {
                 String c1, c2;
@@ -683,7 +847,7 @@ public class PokerEquityGUI extends JFrame {
                     c2 = "" + r2 + p2;
                 }
 
-                if (!c1.equals(c2) && !used.contains(c1) && !used.contains(c2)) {
+                if (!c1.equals(c2) && !Cards.contains(used, Cards.parse(c1)) && !Cards.contains(used, Cards.parse(c2))) {
                     return c1 + c2;
                 }
             }
@@ -694,7 +858,7 @@ public class PokerEquityGUI extends JFrame {
             deck = new Deck();
             state.reset();
             state.ensurePlayersCount(playerPanels.size());
-            deck.removeCards(state.allUsedCards());
+            deck.removeMask(state.usedMask());
 
             for (int i = 0; i < playerPanels.size(); i++) {
                 PlayerPanel pp = playerPanels.get(i);
@@ -731,7 +895,7 @@ public class PokerEquityGUI extends JFrame {
                 return;
             }
             if (phase == Phase.PREFLOP) {
-                deck.removeCards(state.allUsedCards());
+                deck.removeMask(state.usedMask());
                 String c1 = drawUnique(), c2 = drawUnique(), c3 = drawUnique();
                 state.getBoard().setFlop(c1, c2, c3);
 
@@ -740,7 +904,7 @@ public class PokerEquityGUI extends JFrame {
                 tablePanel.repaint();
                 updateButtonsState();
                 updateEquities();
-                statusBar.setMessage("Mostrando FLOP");
+                statusBar.setMessage("Mostrando FLOP" + outsSummary());
                 statusBar.setRight("Mazo restante: " + deck.remaining());
             }
         }
@@ -753,7 +917,7 @@ public class PokerEquityGUI extends JFrame {
                 return;
             }
             if (phase == Phase.FLOP) {
-                deck.removeCards(state.allUsedCards());
+                deck.removeMask(state.usedMask());
                 String c4 = drawUnique();
                 state.getBoard().setTurn(c4);
 
@@ -762,7 +926,7 @@ public class PokerEquityGUI extends JFrame {
                 tablePanel.repaint();
                 updateButtonsState();
                 updateEquities();
-                statusBar.setMessage("Mostrando TURN");
+                statusBar.setMessage("Mostrando TURN" + outsSummary());
                 statusBar.setRight("Mazo restante: " + deck.remaining());
             }
         }
@@ -775,7 +939,7 @@ public class PokerEquityGUI extends JFrame {
                 return;
             }
             if (phase == Phase.TURN) {
-                deck.removeCards(state.allUsedCards());
+                deck.removeMask(state.usedMask());
                 String c5 = drawUnique();
                 state.getBoard().setRiver(c5);
 
@@ -838,14 +1002,14 @@ public class PokerEquityGUI extends JFrame {
         }
 
         private String drawUnique() {
-            Set<String> used = new HashSet<>(state.allUsedCards());
-            String c;
+            long used = state.usedMask();
+            int c;
             int guard = 0;
             do {
-                c = deck.draw();
+                c = deck.drawId();
                 if (++guard > 200) throw new IllegalStateException("No hay cartas únicas disponibles");
-            } while (used.contains(c));
-            return c;
+            } while (Cards.contains(used, c));
+            return Cards.code(c);
         }
     }
 
@@ -0,0 +1,68 @@
+package p3.gui;
+
+import javax.swing.Timer;
+
+/**
+ * Agrupa ráfagas de peticiones hechas desde el EDT en una sola ejecución.
+ *
+ * Cada request() pospone la acción 'windowMillis' milisegundos; si llega otra
+ * antes, vuelve a empezar la espera. Así una acción del usuario que pide el mismo
+ * recálculo varias veces seguidas (quitar una mano, sincronizar el mazo, editar
+ * el board...) acaba en una sola ejecución, con el estado que haya al final.
+ *
+ * Todo en el EDT (javax.swing.Timer): no hace falta sincronizar nada.
+ */
+public final class RequestCoalescer {
+
+    /** Ventana por defecto: imperceptible, pero junta todo lo que dispara un mismo clic. */
+    public static final int DEFAULT_WINDOW_MILLIS = 25;
+
+    private final Runnable action;
+    private final Timer timer;
+
+    private long requested;
+    private long executed;
+
+    public RequestCoalescer(Runnable action) {
+        this(DEFAULT_WINDOW_MILLIS, action);
+    }
+
+    public RequestCoalescer(int windowMillis, Runnable action) {
+        if (action == null) throw new IllegalArgumentException("action no puede ser null");
+        if (windowMillis < 0) throw new IllegalArgumentException("windowMillis debe ser >= 0");
+        this.action = action;
+        this.timer = new Timer(windowMillis, e -> run());
+        this.timer.setRepeats(false);
+    }
+
+    /** Pide la acción: se ejecutará cuando pasen 'windowMillis' sin más peticiones. */
+    public void request() {
+        requested++;
+        timer.restart();
+    }
+
+    /** Si hay una petición pendiente, la ejecuta ya. */
+    public void flush() {
+        if (timer.isRunning()) {
+            timer.stop();
+            run();
+        }
+    }
+
+    /** Descarta la petición pendiente (si la hay). */
+    public void cancel() { timer.stop(); }
+
+    /** Peticiones recibidas. */
+    public long requested() { return requested; }
+
+    /** Veces que se ha ejecutado la acción. */
+    public long executed() { return executed; }
+
+    /** Ejecuciones ahorradas al juntar peticiones. */
+    public long saved() { return Math.max(0, requested - executed - (timer.isRunning() ? 1 : 0)); }
+
+    private void run() {
+        executed++;
+        action.run();
+    }
+}
@@ -0,0 +1,183 @@
+package p3.logic;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import p3.model.Hand;
+
+/**
+ * Decorador de EquityCalculator con caché LRU por situación canónica.
+ *
+ * La clave es la situación salvo cambio de palos (SuitCanonicalizer) más las
+ * pruebas pedidas (o la StoppingPolicy). En un fallo se calcula la situación
+ * canónica, con una semilla derivada de su clave, así que todas las variantes
+ * isomorfas reciben exactamente el mismo resultado, se pida primero la que se pida.
+ * La semilla del llamador no se usa.
+ *
+ * La caché guarda como mucho 'maxEntries' resultados (cada uno son unos pocos
+ * double por jugador) y descarta el usado hace más tiempo. Es segura entre hilos;
+ * el cálculo se hace fuera del cerrojo.
+ */
+public class CachingEquityCalculator implements EquityCalculator {
+
+    /** Tamaño por defecto: de sobra para una sesión de la GUI. */
+    public static final int DEFAULT_MAX_ENTRIES = 4096;
+
+    private final EquityCalculator delegate;
+    private final int maxEntries;
+    private final Map<Object, Cached> cache;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public CachingEquityCalculator(EquityCalculator delegate) {
+        this(delegate, DEFAULT_MAX_ENTRIES);
+    }
+
+    public CachingEquityCalculator(EquityCalculator delegate, int maxEntries) {
+        if (delegate == null) throw new IllegalArgumentException("delegate no puede ser null");
+        if (maxEntries < 1) throw new IllegalArgumentException("maxEntries debe ser >= 1");
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+        // accessOrder = true → orden LRU
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<Object, Cached> eldest) {
+                return size() > CachingEquityCalculator.this.maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public Map<String, Double> calcularEquity(
+            List<String> names, List<Hand> hands, List<String> board, int trials, long seed) {
+        if (names.size() != hands.size())
+            throw new IllegalArgumentException("names y hands deben tener misma longitud");
+
+        SuitCanonicalizer.Spot spot = SuitCanonicalizer.canonicalize(hands, board);
+        Key key = new Key(spot, trials);
+        Cached c = lookup(key);
+        if (c == null) {
+            Map<String, Double> eq = delegate.calcularEquity(
+                    names, spot.hands(), spot.board(), trials, spot.seed());
+            c = store(key, Cached.of(names, EquityResult.withoutError(eq, trials)));
+        }
+        return c.toResult(names).equities();
+    }
+
+    @Override
+    public EquityResult calcularEquity(
+            List<String> names, List<Hand> hands, List<String> board, StoppingPolicy policy, long seed) {
+        return calcularEquity(names, hands, board, policy, seed, null);
+    }
+
+    /**
+     * En un fallo las instantáneas del delegado llegan tal cual (el cambio de palos
+     * no cambia el orden de los jugadores); en un acierto solo está el final. Las
+     * instantáneas no se guardan.
+     */
+    @Override
+    public EquityResult calcularEquity(List<String> names, List<Hand> hands, List<String> board,
+                                       StoppingPolicy policy, long seed, EquityListener listener) {
+        if (names.size() != hands.size())
+            throw new IllegalArgumentException("names y hands deben tener misma longitud");
+
+        SuitCanonicalizer.Spot spot = SuitCanonicalizer.canonicalize(hands, board);
+        Key key = new Key(spot, policy);
+        Cached c = lookup(key);
+        if (c == null) {
+            EquityResult r = listener == null
+                    ? delegate.calcularEquity(names, spot.hands(), spot.board(), policy, spot.seed())
+                    : delegate.calcularEquity(names, spot.hands(), spot.board(), policy, spot.seed(), listener);
+            c = store(key, Cached.of(names, r));
+        }
+        return c.toResult(names);
+    }
+
+    // ===== Métricas =====
+
+    public long hits() { return hits.get(); }
+    public long misses() { return misses.get(); }
+
+    /** Aciertos / consultas (0 si aún no hay consultas). */
+    public double hitRate() {
+        long h = hits.get(), total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    public synchronized int size() { return cache.size(); }
+
+    public synchronized void clear() {
+        cache.clear();
+        hits.set(0);
+        misses.set(0);
+    }
+
+    // ===== helpers =====
+
+    private synchronized Cached lookup(Key key) {
+        Cached c = cache.get(key);
+        (c != null ? hits : misses).incrementAndGet();
+        return c;
+    }
+
+    private synchronized Cached store(Key key, Cached c) {
+        cache.put(key, c);
+        return c;
+    }
+
+    /** Situación canónica + cómo se pidió el cálculo (trials o política). */
+    private static final class Key {
+        final SuitCanonicalizer.Spot spot;
+        final Object mode;
+
+        Key(SuitCanonicalizer.Spot spot, Object mode) {
+            this.spot = spot;
+            this.mode = mode;
+        }
+
+        @Override public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return spot.equals(k.spot) && mode.equals(k.mode);
+        }
+
+        @Override public int hashCode() { return 31 * spot.hashCode() + mode.hashCode(); }
+    }
+
+    /** Resultado guardado por posición de jugador (los nombres pueden cambiar entre consultas). */
+    private static final class Cached {
+        final double[] equities;
+        final double[] stdErrors;
+        final long trials;
+        final EquityResult.Stop stop;
+
+        private Cached(double[] equities, double[] stdErrors, long trials, EquityResult.Stop stop) {
+            this.equities = equities;
+            this.stdErrors = stdErrors;
+            this.trials = trials;
+            this.stop = stop;
+        }
+
+        static Cached of(List<String> names, EquityResult r) {
+            double[] eq = new double[names.size()];
+            double[] se = new double[names.size()];
+            for (int i = 0; i < eq.length; i++) {
+                eq[i] = r.equity(names.get(i));
+                se[i] = r.stdError(names.get(i));
+            }
+            return new Cached(eq, se, r.trials(), r.stop());
+        }
+
+        EquityResult toResult(List<String> names) {
+            Map<String, Double> eq = new LinkedHashMap<>();
+            Map<String, Double> se = new LinkedHashMap<>();
+            for (int i = 0; i < equities.length; i++) {
+                eq.put(names.get(i), equities[i]);
+                se.put(names.get(i), stdErrors[i]);
+            }
+            return new EquityResult(eq, se, trials, stop);
+        }
+    }
+}
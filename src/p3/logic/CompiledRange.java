@@ -0,0 +1,305 @@
+package p3.logic;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import p3.model.Cards;
+import p3.model.Hand;
+
+/**
+ * Rango de un jugador compilado a sus combos concretos (índices 0..1325, ver
+ * Cards.combo), con un peso opcional por combo.
+ *
+ * Se construye una vez a partir del texto del rango (notación de RangeParser),
+ * de un top por porcentaje (RankingProvider) o de una mano concreta, y a partir
+ * de ahí todo son operaciones sobre arrays:
+ *  - una máscara de 1326 bits (21 longs): contains(mano) es O(1) y la unión,
+ *    la intersección y quitar bloqueadores son operaciones palabra a palabra;
+ *  - la lista de combos con sus pesos, para muestrear y recorrer;
+ *  - el nº de combos y la suma de pesos, ya calculados.
+ *
+ * Es inmutable: las operaciones devuelven un rango nuevo.
+ *
+ * Cada notación 169 se expande a sus combos: parejas 6, suited 4, offsuit 12
+ * ("AK" sin sufijo son los 16).
+ */
+public final class CompiledRange {
+
+    /** Nº de longs de la máscara de combos. */
+    public static final int WORDS = (Cards.COMBOS + 63) / 64;
+
+    // BLOCKED_BY[c] = máscara de los 51 combos que contienen la carta c
+    private static final long[][] BLOCKED_BY = new long[Cards.COUNT][WORDS];
+
+    static {
+        for (int k = 0; k < Cards.COMBOS; k++) {
+            set(BLOCKED_BY[Cards.comboHigh(k)], k);
+            set(BLOCKED_BY[Cards.comboLow(k)], k);
+        }
+    }
+
+    private final long[] bits;
+    private final int[] combos;       // combos del rango en orden creciente
+    private final double[] weights;   // peso de combos[i]
+    private final double totalWeight;
+    private final boolean weighted;   // false = todos los pesos son 1
+
+    /** A partir de la máscara y los pesos por combo (null = todos 1). */
+    private CompiledRange(long[] bits, double[] weightByCombo) {
+        this.bits = bits;
+        int n = 0;
+        for (long w : bits) n += Long.bitCount(w);
+        this.combos = new int[n];
+        this.weights = new double[n];
+        int k = 0;
+        double t = 0;
+        boolean anyWeight = false;
+        for (int w = 0; w < WORDS; w++) {
+            for (long m = bits[w]; m != 0; m &= m - 1) {
+                int c = w * 64 + Long.numberOfTrailingZeros(m);
+                double wt = weightByCombo == null ? 1.0 : weightByCombo[c];
+                combos[k] = c;
+                weights[k++] = wt;
+                t += wt;
+                if (wt != 1.0) anyWeight = true;
+            }
+        }
+        this.totalWeight = t;
+        this.weighted = anyWeight;
+    }
+
+    /** Rango a partir de su texto ("JJ+,ATs-A8s:0.5,AhKh"), con los pesos de RangeParser. */
+    public static CompiledRange parse(String text) {
+        return RangeParser.compile(text);
+    }
+
+    /** Top 'percent' (0..1 o 0..100, contado en combos) del ranking por defecto; todos los combos con peso 1. */
+    public static CompiledRange topPercent(double percent) {
+        return of169(RankingProvider.getTopByPercent(percent));
+    }
+
+    /** Una sola mano concreta. */
+    public static CompiledRange of(Hand hand) {
+        long[] b = new long[WORDS];
+        set(b, Cards.combo(hand.id1(), hand.id2()));
+        return new CompiledRange(b, null);
+    }
+
+    /** Cualquier mano (los 1326 combos con peso 1): lo que antes era una mano null. */
+    public static CompiledRange all() {
+        long[] b = new long[WORDS];
+        for (int k = 0; k < Cards.COMBOS; k++) set(b, k);
+        return new CompiledRange(b, null);
+    }
+
+    /** Rango vacío. */
+    public static CompiledRange empty() {
+        return new CompiledRange(new long[WORDS], null);
+    }
+
+    /**
+     * Rango con pesos explícitos: combos[i] (0..1325, sin repetir) con peso weights[i] ≥ 0.
+     * Los combos con peso 0 se descartan.
+     */
+    public static CompiledRange weighted(int[] combos, double[] weights) {
+        if (combos.length != weights.length)
+            throw new IllegalArgumentException("combos y weights deben tener misma longitud");
+        long[] b = new long[WORDS];
+        long[] seen = new long[WORDS];
+        double[] w = new double[Cards.COMBOS];
+        for (int i = 0; i < combos.length; i++) {
+            if (combos[i] < 0 || combos[i] >= Cards.COMBOS || test(seen, combos[i]))
+                throw new IllegalArgumentException("Combo inválido o repetido: " + combos[i]);
+            if (!(weights[i] >= 0) || Double.isInfinite(weights[i]))
+                throw new IllegalArgumentException("Peso inválido: " + weights[i]);
+            set(seen, combos[i]);
+            if (weights[i] > 0) {
+                set(b, combos[i]);
+                w[combos[i]] = weights[i];
+            }
+        }
+        return new CompiledRange(b, w);
+    }
+
+    /**
+     * Rango a partir del vector de pesos por combo (1326 valores ≥ 0, índice de
+     * Cards.combo). Los combos con peso 0 no entran. No se guarda el array.
+     */
+    public static CompiledRange ofWeights(double[] weightByCombo) {
+        if (weightByCombo.length != Cards.COMBOS)
+            throw new IllegalArgumentException("Se esperaban " + Cards.COMBOS + " pesos: " + weightByCombo.length);
+        for (double w : weightByCombo) {
+            if (!(w >= 0) || Double.isInfinite(w))
+                throw new IllegalArgumentException("Peso inválido: " + w);
+        }
+        return wrapWeights(weightByCombo.clone());
+    }
+
+    /** Como ofWeights pero sin copiar ni validar: el array (ya válido) pasa a ser del rango. */
+    static CompiledRange wrapWeights(double[] w) {
+        long[] b = new long[WORDS];
+        boolean anyWeight = false;
+        for (int k = 0; k < Cards.COMBOS; k++) {
+            if (w[k] == 0) continue;
+            b[k >>> 6] |= 1L << k;
+            if (w[k] != 1.0) anyWeight = true;
+        }
+        return new CompiledRange(b, anyWeight ? w : null);
+    }
+
+    /** Rango con las notaciones 169 dadas ("AA", "AKs", "AKo", "AK"), sin repetir combos. */
+    public static CompiledRange of169(List<String> notations) {
+        long[] b = new long[WORDS];
+        for (String n : notations) {
+            if (n == null || n.isBlank()) continue;
+            expand169(n.trim(), b);
+        }
+        return new CompiledRange(b, null);
+    }
+
+    // ===== Consultas =====
+
+    /** Nº de combos del rango. */
+    public int size() { return combos.length; }
+
+    /** ¿Está la mano en el rango? O(1). */
+    public boolean contains(Hand hand) {
+        return test(bits, Cards.combo(hand.id1(), hand.id2()));
+    }
+
+    /** ¿Está el combo (0..1325) en el rango? O(1). */
+    public boolean containsCombo(int combo) {
+        return test(bits, combo);
+    }
+
+    /** Peso del combo (0..1325) en el rango, 0 si no está. */
+    public double weightOf(int combo) {
+        if (!test(bits, combo)) return 0.0;
+        return weighted ? weights[Arrays.binarySearch(combos, combo)] : 1.0;
+    }
+
+    /** ¿Tiene algún peso distinto de 1? */
+    public boolean isWeighted() { return weighted; }
+
+    /** Copia de la máscara de 1326 bits (bit k = combo k). */
+    public long[] bits() { return bits.clone(); }
+
+    /** Copia de los índices (0..1325) de los combos, en orden creciente. */
+    public int[] combos() { return combos.clone(); }
+
+    /** Índice (0..1325) del combo i-ésimo. */
+    public int combo(int i) { return combos[i]; }
+
+    /** Peso del combo i-ésimo. */
+    public double weight(int i) { return weights[i]; }
+
+    /** Suma de los pesos de todos los combos. */
+    public double totalWeight() { return totalWeight; }
+
+    public boolean isEmpty() { return combos.length == 0; }
+
+    // ===== Operaciones (palabra a palabra) =====
+
+    /** Combos de cualquiera de los dos rangos; si está en ambos, el mayor de los dos pesos. */
+    public CompiledRange union(CompiledRange other) {
+        long[] b = new long[WORDS];
+        for (int w = 0; w < WORDS; w++) b[w] = bits[w] | other.bits[w];
+        return new CompiledRange(b, weighted || other.weighted ? mergedWeights(other, true) : null);
+    }
+
+    /** Combos de los dos rangos; con el menor de los dos pesos. */
+    public CompiledRange intersect(CompiledRange other) {
+        long[] b = new long[WORDS];
+        for (int w = 0; w < WORDS; w++) b[w] = bits[w] & other.bits[w];
+        return new CompiledRange(b, weighted || other.weighted ? mergedWeights(other, false) : null);
+    }
+
+    /** Combos de este rango que no están en 'other' (pesos de este). */
+    public CompiledRange minus(CompiledRange other) {
+        long[] b = new long[WORDS];
+        for (int w = 0; w < WORDS; w++) b[w] = bits[w] & ~other.bits[w];
+        return new CompiledRange(b, weighted ? weightArray() : null);
+    }
+
+    /**
+     * Quita los combos que usan alguna carta de 'deadCards' (máscara de 52 bits:
+     * board, manos conocidas, cartas muertas). Un AND NOT por carta muerta.
+     */
+    public CompiledRange removeBlockers(long deadCards) {
+        long[] b = bits.clone();
+        for (long m = deadCards & Cards.FULL_MASK; m != 0; m &= m - 1) {
+            long[] blocked = BLOCKED_BY[Long.numberOfTrailingZeros(m)];
+            for (int w = 0; w < WORDS; w++) b[w] &= ~blocked[w];
+        }
+        return new CompiledRange(b, weighted ? weightArray() : null);
+    }
+
+    /** Si el rango es una única mano, esa mano; si no, null. */
+    public Hand singleHand() {
+        if (combos.length != 1) return null;
+        return Hand.of(Cards.comboHigh(combos[0]), Cards.comboLow(combos[0]));
+    }
+
+    /** Enciende en 'bits' los combos de una notación 169 (mayúsculas o minúsculas). */
+    private static void expand169(String notation, long[] bits) {
+        String n = notation.toUpperCase(Locale.ROOT);
+        if (n.length() < 2 || n.length() > 3)
+            throw new IllegalArgumentException("Notación de mano inválida: " + notation);
+        int r1 = Cards.RANKS.indexOf(n.charAt(0));
+        int r2 = Cards.RANKS.indexOf(n.charAt(1));
+        if (r1 < 0 || r2 < 0)
+            throw new IllegalArgumentException("Notación de mano inválida: " + notation);
+
+        boolean suited = true, offsuit = true;
+        if (n.length() == 3) {
+            char t = n.charAt(2);
+            if (t == 'S') offsuit = false;
+            else if (t == 'O') suited = false;
+            else throw new IllegalArgumentException("Notación de mano inválida: " + notation);
+        }
+        if (r1 == r2 && n.length() == 3)
+            throw new IllegalArgumentException("Una pareja no lleva s/o: " + notation);
+
+        for (int s1 = 0; s1 < 4; s1++) {
+            for (int s2 = 0; s2 < 4; s2++) {
+                if (r1 == r2 && s2 <= s1) continue;
+                if (s1 == s2 && (r1 == r2 || !suited)) continue;
+                if (s1 != s2 && r1 != r2 && !offsuit) continue;
+                set(bits, Cards.combo(Cards.of(r1, s1), Cards.of(r2, s2)));
+            }
+        }
+    }
+
+    // ===== helpers =====
+
+    /** Pesos indexados por combo (0 si no está). */
+    private double[] weightArray() {
+        double[] w = new double[Cards.COMBOS];
+        for (int i = 0; i < combos.length; i++) w[combos[i]] = weights[i];
+        return w;
+    }
+
+    private double[] mergedWeights(CompiledRange other, boolean max) {
+        double[] a = weightArray(), b = other.weightArray();
+        for (int k = 0; k < a.length; k++) a[k] = max ? Math.max(a[k], b[k]) : Math.min(a[k], b[k]);
+        return a;
+    }
+
+    private static void set(long[] bits, int k) { bits[k >>> 6] |= 1L << k; }
+
+    private static boolean test(long[] bits, int k) { return (bits[k >>> 6] & (1L << k)) != 0; }
+
+    @Override public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CompiledRange)) return false;
+        CompiledRange r = (CompiledRange) o;
+        return Arrays.equals(bits, r.bits) && Arrays.equals(weights, r.weights);
+    }
+
+    @Override public int hashCode() { return Arrays.hashCode(bits); }
+
+    @Override public String toString() {
+        return "CompiledRange{" + combos.length + " combos" + (weighted ? ", peso " + totalWeight : "") + "}";
+    }
+}
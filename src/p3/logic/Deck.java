@@ -1,20 +1,21 @@
 package p3.logic;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.List;
+import java.util.Random;
+
+import p3.model.Cards;
 
 /**
  * Representa un mazo de 52 cartas para Texas Hold'em.
- * Guarda las cartas como textos tipo "Ah", "Kd", "Ts", etc.
+ * Guarda las cartas como ids 0..51 (ver Cards) y las devuelve como
+ * textos tipo "Ah", "Kd", "Ts" solo cuando se piden así (GUI).
  * Permite robar cartas en orden y eliminar cartas que ya estén en juego.
  */
 public class Deck {
 
-    // Lista con todas las cartas del mazo.
-    // Se guardan como textos: primera letra = valor, segunda = palo (h, d, c, s).
-    private final List<String> cards = new ArrayList<>();
+    // Cartas del mazo en el orden en que se van a robar (solo [0, size) son válidas).
+    private final int[] cards = new int[Cards.COUNT];
+    private int size = 0;
 
     // Posición actual desde donde se roba la siguiente carta.
     private int index = 0;
@@ -25,18 +26,23 @@ public class Deck {
      * Palos: h (corazones), d (diamantes), c (tréboles), s (picas)
      */
     public Deck() {
-        String[] ranks = {"A","K","Q","J","T","9","8","7","6","5","4","3","2"};
-        String[] suits = {"h","d","c","s"};
+        this(new Random());
+    }
 
+    /** Igual que Deck() pero mezclando con el Random dado (mazos reproducibles). */
+    public Deck(Random rnd) {
         // Crea todas las combinaciones posibles (13 x 4 = 52)
-        for (String r : ranks) {
-            for (String s : suits) {
-                cards.add(r + s); // ejemplo: "Ah", "Kd"
+        for (int r = 12; r >= 0; r--) {
+            for (int s = 0; s < 4; s++) {
+                cards[size++] = Cards.of(r, s);
             }
         }
 
-        // Mezcla el mazo para que el orden sea aleatorio
-        Collections.shuffle(cards);
+        // Mezcla el mazo para que el orden sea aleatorio (Fisher-Yates)
+        for (int i = size - 1; i > 0; i--) {
+            int j = rnd.nextInt(i + 1);
+            int tmp = cards[i]; cards[i] = cards[j]; cards[j] = tmp;
+        }
     }
 
     /**
@@ -45,10 +51,15 @@ public class Deck {
      * Si no quedan cartas, lanza un error para avisar.
      */
     public String draw() {
-        if (index >= cards.size()) {
+        return Cards.code(drawId());
+    }
+
+    /** Igual que draw() pero devuelve el id 0..51. */
+    public int drawId() {
+        if (index >= size) {
             throw new IllegalStateException("Deck is empty"); // no quedan cartas
         }
-        return cards.get(index++); // devuelve la carta y avanza la posición
+        return cards[index++]; // devuelve la carta y avanza la posición
     }
 
     /**
@@ -62,16 +73,17 @@ public class Deck {
      */
     public void removeCards(Collection<String> codes) {
         if (codes == null || codes.isEmpty()) return;
+        removeMask(Cards.maskOf(codes));
+    }
 
-        // Se queda con la parte del mazo que aún no se ha usado
-        List<String> remaining = new ArrayList<>(cards.subList(index, cards.size()));
-
-        // Quita de ahí cualquier carta que esté en 'codes' (cartas ya usadas)
-        remaining.removeIf(codes::contains);
-
-        // Sustituye el mazo por ese tramo limpio y reinicia la posición
-        cards.clear();
-        cards.addAll(remaining);
+    /** Igual que removeCards() pero con las cartas como máscara de 52 bits. */
+    public void removeMask(long used) {
+        // Compacta el tramo aún no robado saltando las cartas usadas
+        int n = 0;
+        for (int i = index; i < size; i++) {
+            if ((used & (1L << cards[i])) == 0) cards[n++] = cards[i];
+        }
+        size = n;
         index = 0;
     }
 
@@ -80,6 +92,13 @@ public class Deck {
      * (No cuenta las que ya se han pasado).
      */
     public int remaining() {
-        return cards.size() - index;
+        return size - index;
+    }
+
+    /** Cartas que quedan por robar como máscara de 52 bits. */
+    public long remainingMask() {
+        long m = 0L;
+        for (int i = index; i < size; i++) m |= 1L << cards[i];
+        return m;
     }
 }
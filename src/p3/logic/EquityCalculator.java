@@ -1,5 +1,6 @@
 package p3.logic;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -13,4 +14,65 @@ public interface EquityCalculator {
             int trials,
             long seed
     );
+
+    /**
+     * Igual que la versión con 'trials', pero parando según 'policy' y devolviendo
+     * también el nº de pruebas y el error de cada equity.
+     *
+     * Por defecto hace policy.maxTrials() pruebas sin estimar el error; los
+     * calculadores Monte Carlo lo sobrescriben para parar antes.
+     */
+    default EquityResult calcularEquity(
+            List<String> names,
+            List<Hand> hands,
+            List<String> board,
+            StoppingPolicy policy,
+            long seed
+    ) {
+        return EquityResult.withoutError(
+                calcularEquity(names, hands, board, policy.maxTrials(), seed), policy.maxTrials());
+    }
+
+    /**
+     * Igual que con 'policy', avisando a 'listener' con instantáneas parciales
+     * (equities, pruebas y error hasta ese momento) mientras se calcula, para
+     * enseñar un valor que converge en vez de esperar al final.
+     *
+     * Por defecto no hay instantáneas: solo el resultado final. Los calculadores
+     * Monte Carlo las envían; los decoradores se las pasan a su delegado. Con la
+     * misma semilla el resultado final es el mismo que sin listener.
+     */
+    default EquityResult calcularEquity(
+            List<String> names,
+            List<Hand> hands,
+            List<String> board,
+            StoppingPolicy policy,
+            long seed,
+            EquityListener listener
+    ) {
+        return calcularEquity(names, hands, board, policy, seed);
+    }
+
+    /**
+     * Equity rango contra rango: un CompiledRange (combos con peso) por jugador,
+     * con las cartas bloqueadas entre jugadores y board tenidas en cuenta.
+     *
+     * Por defecto, si todos los rangos son una sola mano se resuelve como una
+     * consulta normal (calcularEquity con esas manos); si no, con RangeEquityCalculator.
+     */
+    default EquityResult calcularEquityRangos(
+            List<String> names,
+            List<CompiledRange> ranges,
+            List<String> board,
+            StoppingPolicy policy,
+            long seed
+    ) {
+        List<Hand> hands = new ArrayList<>(ranges.size());
+        for (CompiledRange r : ranges) {
+            Hand h = r.singleHand();
+            if (h == null) return new RangeEquityCalculator().calcularEquityRangos(names, ranges, board, policy, seed);
+            hands.add(h);
+        }
+        return calcularEquity(names, hands, board, policy, seed);
+    }
 }
@@ -0,0 +1,128 @@
+package p3.logic;
+
+import java.util.Locale;
+
+import p3.model.Cards;
+import p3.model.Hand;
+
+/**
+ * Resultado de EquityGridCalculator.calcularDistribucion: la equity (0..100) de cada
+ * combo de un rango contra los rivales, en arrays primitivos alineados (combo i-ésimo,
+ * su equity, su error y su peso en el rango), y sus histogramas.
+ *
+ * Solo están los combos posibles (ni chocan con el board ni se quedan sin repartos
+ * compatibles), en orden creciente de índice de combo (Cards.combo).
+ *
+ * Histograma de 'buckets' tramos iguales de 0 a 100: con 10, el tramo 0 es [0, 10),
+ * el 1 es [10, 20)... y el último incluye el 100.
+ */
+public final class EquityDistribution {
+
+    /** Nº de tramos por defecto (de 10 en 10 puntos). */
+    public static final int DEFAULT_BUCKETS = 10;
+
+    private final int[] combos;
+    private final double[] equities;
+    private final double[] stdErrors;
+    private final double[] weights;
+    private final long trials;
+    private final EquityResult.Stop stop;
+
+    EquityDistribution(int[] combos, double[] equities, double[] stdErrors, double[] weights,
+                       long trials, EquityResult.Stop stop) {
+        this.combos = combos;
+        this.equities = equities;
+        this.stdErrors = stdErrors;
+        this.weights = weights;
+        this.trials = trials;
+        this.stop = stop;
+    }
+
+    /** Nº de combos con equity. */
+    public int size() { return combos.length; }
+
+    /** Índice (0..1325) del combo i-ésimo. */
+    public int combo(int i) { return combos[i]; }
+
+    /** Mano del combo i-ésimo. */
+    public Hand hand(int i) { return Hand.of(Cards.comboHigh(combos[i]), Cards.comboLow(combos[i])); }
+
+    /** Equity (0..100) del combo i-ésimo. */
+    public double equity(int i) { return equities[i]; }
+
+    /** Error estándar (puntos de equity) del combo i-ésimo; 0 si es exacto. */
+    public double stdError(int i) { return stdErrors[i]; }
+
+    /** Peso del combo i-ésimo en el rango. */
+    public double weight(int i) { return weights[i]; }
+
+    /** Copia de los combos. */
+    public int[] combos() { return combos.clone(); }
+
+    /** Copia de las equities (0..100), alineadas con combos(). */
+    public double[] equities() { return equities.clone(); }
+
+    /** Copia de los pesos, alineados con combos(). */
+    public double[] weights() { return weights.clone(); }
+
+    /** Equity media de los combos, ponderada por su peso en el rango. */
+    public double mean() {
+        double sw = 0, swx = 0;
+        for (int i = 0; i < combos.length; i++) {
+            sw += weights[i];
+            swx += weights[i] * equities[i];
+        }
+        return sw > 0 ? swx / sw : Double.NaN;
+    }
+
+    /** Histograma por defecto (10 tramos) con el peso de los combos de cada tramo. */
+    public double[] histogram() { return histogram(DEFAULT_BUCKETS); }
+
+    /** Suma de los pesos de los combos de cada tramo (con pesos 1, nº de combos). */
+    public double[] histogram(int buckets) {
+        double[] h = new double[checkBuckets(buckets)];
+        for (int i = 0; i < combos.length; i++) h[bucket(equities[i], buckets)] += weights[i];
+        return h;
+    }
+
+    /** Nº de combos de cada tramo, sin pesos. */
+    public int[] counts(int buckets) {
+        int[] h = new int[checkBuckets(buckets)];
+        for (int i = 0; i < combos.length; i++) h[bucket(equities[i], buckets)]++;
+        return h;
+    }
+
+    /** Fracción (0..1) del peso del rango con equity &gt;= 'equity' (0..100). */
+    public double fractionAtLeast(double equity) {
+        double sw = 0, above = 0;
+        for (int i = 0; i < combos.length; i++) {
+            sw += weights[i];
+            if (equities[i] >= equity) above += weights[i];
+        }
+        return sw > 0 ? above / sw : 0.0;
+    }
+
+    /** Nº de repartos usados (runouts enumerados o pruebas Monte Carlo). */
+    public long trials() { return trials; }
+
+    /** Por qué se paró. */
+    public EquityResult.Stop stop() { return stop; }
+
+    /** ¿Es el valor exacto (enumeración completa)? */
+    public boolean isExact() { return stop == EquityResult.Stop.EXACT; }
+
+    private static int bucket(double equity, int buckets) {
+        int b = (int) (equity * buckets / 100.0);
+        return Math.max(0, Math.min(buckets - 1, b));
+    }
+
+    private static int checkBuckets(int buckets) {
+        if (buckets < 1) throw new IllegalArgumentException("buckets debe ser >= 1");
+        return buckets;
+    }
+
+    @Override public String toString() {
+        return String.format(Locale.ROOT, "EquityDistribution{%d combos, media=%.2f, trials=%d, stop=%s}",
+                combos.length, mean(), trials, stop);
+    }
+}
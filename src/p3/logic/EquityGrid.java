@@ -0,0 +1,87 @@
+package p3.logic;
+
+import p3.model.Cards;
+import p3.model.Hand;
+
+/**
+ * Resultado de EquityGridCalculator: la equity del héroe (0..100) con cada una de
+ * sus 1326 manos posibles y con cada una de las 169 clases, contra los mismos rivales.
+ *
+ * Todo son arrays de double: por combo (índice de Cards.combo) y por clase (índice
+ * de PercentileIndex.classOf). La equity de una clase es la media de sus combos
+ * ponderada por lo probable que es cada uno (los que chocan con el board o con las
+ * cartas de los rivales cuentan menos o nada). NaN = combo o clase imposible
+ * (todas sus cartas bloqueadas).
+ *
+ * matrix() da la tabla 13x13 para pintarla como mapa de calor: [fila][col] es la
+ * clase 13 * fila + col, con los valores 0..12 = 2..A; suited si fila &gt; col,
+ * offsuit si fila &lt; col y parejas en la diagonal.
+ */
+public final class EquityGrid {
+
+    private final double[] comboEquity;
+    private final double[] comboStdError;
+    private final double[] classEquity;
+    private final double[] classStdError;
+    private final long trials;
+    private final EquityResult.Stop stop;
+
+    EquityGrid(double[] comboEquity, double[] comboStdError,
+               double[] classEquity, double[] classStdError, long trials, EquityResult.Stop stop) {
+        this.comboEquity = comboEquity;
+        this.comboStdError = comboStdError;
+        this.classEquity = classEquity;
+        this.classStdError = classStdError;
+        this.trials = trials;
+        this.stop = stop;
+    }
+
+    /** Equity (0..100) del héroe con el combo k (0..1325), NaN si es imposible. */
+    public double comboEquity(int k) { return comboEquity[k]; }
+
+    /** Error estándar (puntos de equity) del combo k; 0 si es exacto. */
+    public double comboStdError(int k) { return comboStdError[k]; }
+
+    /** Equity (0..100) del héroe con esa mano concreta. */
+    public double equity(Hand hand) {
+        return comboEquity[Cards.combo(hand.id1(), hand.id2())];
+    }
+
+    /** Equity (0..100) de la clase (0..168, ver PercentileIndex.classOf). */
+    public double classEquity(int cls) { return classEquity[cls]; }
+
+    /** Equity (0..100) de la clase con esa notación ("AA", "AKs", "AKo"). */
+    public double classEquity(String notation) {
+        return classEquity[PercentileIndex.classOf(notation)];
+    }
+
+    /** Error estándar (puntos de equity) de la clase; 0 si es exacto. */
+    public double classStdError(int cls) { return classStdError[cls]; }
+
+    /** Copia de las 1326 equities por combo. */
+    public double[] comboEquities() { return comboEquity.clone(); }
+
+    /** Copia de las 169 equities por clase. */
+    public double[] classEquities() { return classEquity.clone(); }
+
+    /** Tabla 13x13 (copia) con la equity de cada clase: matrix[fila][col] = clase 13 * fila + col. */
+    public double[][] matrix() {
+        double[][] m = new double[13][13];
+        for (int r = 0; r < 13; r++)
+            System.arraycopy(classEquity, 13 * r, m[r], 0, 13);
+        return m;
+    }
+
+    /** Nº de repartos usados (runouts enumerados o pruebas Monte Carlo). */
+    public long trials() { return trials; }
+
+    /** Por qué se paró. */
+    public EquityResult.Stop stop() { return stop; }
+
+    /** ¿Es el valor exacto (enumeración completa)? */
+    public boolean isExact() { return stop == EquityResult.Stop.EXACT; }
+
+    @Override public String toString() {
+        return "EquityGrid{trials=" + trials + ", stop=" + stop + "}";
+    }
+}
@@ -0,0 +1,533 @@
+package p3.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
+
+import p3.model.Cards;
+import p3.model.Hand;
+
+/**
+ * Equity del héroe con cada una de sus 1326 manos posibles (y con las 169 clases)
+ * contra unos rivales fijos, manos concretas o rangos, en una sola pasada.
+ *
+ * Cada reparto (cartas de los rivales + runout) se evalúa una vez para los rivales
+ * y se aprovecha para todos los combos del héroe que no chocan con él: en vez de
+ * 169 o 1326 simulaciones, una sola en la que cada runout cuenta para ~1000 combos.
+ * Que un combo solo cuente en los repartos con los que no choca es justo el efecto
+ * de sus cartas bloqueadas: cada combo queda promediado sobre los repartos
+ * compatibles con él, que es su distribución condicionada.
+ *
+ * Dentro de un runout, los combos con los mismos valores (los 16 AK, los 6 AA...)
+ * valen lo mismo salvo que puedan hacer color, así que la tabla de valores se
+ * consulta una vez por par de valores y solo los combos con un palo que ya tiene
+ * 3+ cartas en el board se evalúan uno a uno.
+ *
+ * Si el nº de evaluaciones (repartos de los rivales × runouts × combos del héroe)
+ * no pasa de 'exactLimit', se enumeran todos y el resultado es exacto: un flop contra
+ * manos conocidas son ~1000 runouts, y en el river se puede recorrer un rango entero.
+ * Si no, Monte Carlo por lotes según la StoppingPolicy (repartos con RangeSampler),
+ * con el error objetivo aplicado a todas las clases.
+ *
+ * calcularDistribucion hace lo mismo solo para los combos de un rango del héroe y
+ * devuelve su distribución de equities (EquityDistribution, con histogramas).
+ *
+ * Como RealEquityCalculator, con parallelism > 1 el trabajo se reparte en bloques
+ * (Monte Carlo: cada uno con su SplittableRandom.split()) que se suman siempre en el
+ * mismo orden: mismo seed y mismo parallelism dan el mismo resultado.
+ */
+public class EquityGridCalculator {
+
+    /** Evaluaciones máximas para enumerar (un flop contra manos conocidas son ~1 millón). */
+    public static final long DEFAULT_EXACT_LIMIT = 20_000_000L;
+
+    // Bloques por hilo (más bloques que hilos para repartir mejor la carga)
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    // Por combo: clase 0..168 (PercentileIndex.classOf), par de valores 0..168
+    // (13 * menor + mayor) y palos que usa (bit s = palo s)
+    private static final int[] CLASS_OF = new int[Cards.COMBOS];
+    private static final int[] RANK_PAIR = new int[Cards.COMBOS];
+    private static final int[] SUITS = new int[Cards.COMBOS];
+    private static final long[] MASK = new long[Cards.COMBOS];
+
+    static {
+        for (int k = 0; k < Cards.COMBOS; k++) {
+            int a = Cards.comboHigh(k), b = Cards.comboLow(k);
+            CLASS_OF[k] = PercentileIndex.classOf(a, b);
+            int r1 = Cards.rank(a), r2 = Cards.rank(b);
+            RANK_PAIR[k] = 13 * Math.min(r1, r2) + Math.max(r1, r2);
+            SUITS[k] = (1 << Cards.suit(a)) | (1 << Cards.suit(b));
+            MASK[k] = Cards.comboMask(k);
+        }
+    }
+
+    private final int parallelism;
+    private final long exactLimit;
+
+    /** Todos los núcleos y el límite de enumeración por defecto. */
+    public EquityGridCalculator() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_EXACT_LIMIT);
+    }
+
+    /**
+     * @param parallelism nº de bloques en paralelo (1 = secuencial)
+     * @param exactLimit  máximo de evaluaciones para enumerar en vez de simular (0 = siempre Monte Carlo)
+     */
+    public EquityGridCalculator(int parallelism, long exactLimit) {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism debe ser >= 1");
+        this.parallelism = parallelism;
+        this.exactLimit = exactLimit;
+    }
+
+    /** Contra manos concretas (null = cualquier mano). */
+    public EquityGrid calcularGrid(List<Hand> opponents, List<String> board, StoppingPolicy policy, long seed) {
+        return calcularGridRangos(RangeEquityCalculator.toRanges(opponents), board, policy, seed);
+    }
+
+    /** Contra un rango por rival (CompiledRange.of(mano) para una mano concreta). */
+    public EquityGrid calcularGridRangos(
+            List<CompiledRange> opponents, List<String> board, StoppingPolicy policy, long seed) {
+
+        return solve(new Problem(null, opponents, board), policy, seed);
+    }
+
+    /**
+     * Distribución de equities de un rango del héroe: la equity de cada uno de sus
+     * combos contra los rivales (con los mismos repartos compartidos que la rejilla,
+     * pero solo para los combos del rango) y sus histogramas.
+     * @param hero rango del héroe (sus combos que chocan con el board no cuentan)
+     */
+    public EquityDistribution calcularDistribucion(CompiledRange hero,
+            List<CompiledRange> opponents, List<String> board, StoppingPolicy policy, long seed) {
+
+        Problem p = new Problem(hero, opponents, board);
+        if (p.live.length == 0)
+            throw new IllegalArgumentException("El rango del héroe no tiene combos posibles con este board.");
+        EquityGrid g = solve(p, policy, seed);
+
+        // Solo los combos con algún reparto compatible (los demás salen NaN)
+        int n = 0;
+        int[] combos = new int[p.live.length];
+        double[] eq = new double[p.live.length], se = new double[p.live.length], w = new double[p.live.length];
+        for (int k : p.live) {
+            if (Double.isNaN(g.comboEquity(k))) continue;
+            combos[n] = k;
+            eq[n] = g.comboEquity(k);
+            se[n] = g.comboStdError(k);
+            w[n++] = hero.weightOf(k);
+        }
+        return new EquityDistribution(Arrays.copyOf(combos, n), Arrays.copyOf(eq, n),
+                Arrays.copyOf(se, n), Arrays.copyOf(w, n), g.trials(), g.stop());
+    }
+
+    /** Enumera si cabe en exactLimit; si no, Monte Carlo. */
+    private EquityGrid solve(Problem p, StoppingPolicy policy, long seed) {
+        double evaluations = (double) p.live.length * binom(p.deckSize, p.missing);
+        for (CompiledRange r : p.ranges) evaluations *= r.size();
+
+        return evaluations <= exactLimit ? exact(p) : monteCarlo(p, policy, seed);
+    }
+
+    // ===== Enumeración =====
+
+    private EquityGrid exact(Problem p) {
+        // Repartos posibles de los rivales (sin cartas repetidas) con su peso
+        List<int[]> holes = new ArrayList<>();
+        List<Double> weights = new ArrayList<>();
+        assignments(p, 0, p.boardMask, 1.0, new int[2 * p.players], holes, weights);
+        if (holes.isEmpty())
+            throw new IllegalArgumentException("Los rangos no dejan ningún reparto posible con este board.");
+
+        // Unidad de trabajo = reparto de los rivales × primera carta del runout
+        final int firsts = p.missing == 0 ? 1 : p.deckSize - p.missing + 1;
+        final long units = (long) holes.size() * firsts;
+        int n = (int) Math.min(units, parallelism == 1 ? 1 : (long) parallelism * CHUNKS_PER_THREAD);
+
+        Acc[] accs = new Acc[n];
+        Thread caller = Thread.currentThread();
+        IntStream blocks = IntStream.range(0, n);
+        (parallelism == 1 ? blocks : blocks.parallel()).forEach(b -> {
+            Acc acc = new Acc(false);
+            for (long u = units * b / n; u < units * (b + 1) / n; u++) {
+                StoppingPolicy.checkCancelled(caller);
+                int a = (int) (u / firsts);
+                exactUnit(p, holes.get(a), weights.get(a), (int) (u % firsts), acc);
+            }
+            accs[b] = acc;
+        });
+
+        return p.result(Acc.sum(accs, false), (long) holes.size() * binom(p.deckSize, p.missing),
+                EquityResult.Stop.EXACT);
+    }
+
+    /** Recorre los combos de cada rival que no chocan con los anteriores. */
+    private static void assignments(Problem p, int i, long dead, double w, int[] hole,
+                                    List<int[]> holes, List<Double> weights) {
+        if (i == p.players) {
+            holes.add(hole.clone());
+            weights.add(w);
+            return;
+        }
+        CompiledRange r = p.ranges[i];
+        for (int j = 0; j < r.size(); j++) {
+            int k = r.combo(j);
+            long m = Cards.comboMask(k);
+            if ((m & dead) != 0) continue;
+            hole[2 * i] = Cards.comboHigh(k);
+            hole[2 * i + 1] = Cards.comboLow(k);
+            assignments(p, i + 1, dead | m, w * r.weight(j), hole, holes, weights);
+        }
+    }
+
+    /** Todos los runouts de un reparto de los rivales que empiezan por deck[first]. */
+    private static void exactUnit(Problem p, int[] hole, double w, int first, Acc acc) {
+        long dead = p.boardMask;
+        for (int c : hole) dead |= 1L << c;
+        if (p.missing == 0) {
+            acc.showdown(p, p.prefixState, p.boardMask, hole, dead, w);
+            return;
+        }
+        int[] deck = new int[p.deckSize];
+        int n = 0;
+        for (int c = 0; c < Cards.COUNT; c++)
+            if ((dead & (1L << c)) == 0) deck[n++] = c;
+
+        int c = deck[first];
+        runouts(p, deck, first + 1, p.missing - 1, PokerHandEvaluator.addCard(p.prefixState, c),
+                p.boardMask | (1L << c), hole, dead | (1L << c), w, acc);
+    }
+
+    private static void runouts(Problem p, int[] deck, int from, int left, int state, long mask,
+                                int[] hole, long dead, double w, Acc acc) {
+        if (left == 0) {
+            acc.showdown(p, state, mask, hole, dead, w);
+            return;
+        }
+        for (int i = from; i <= deck.length - left; i++) {
+            int c = deck[i];
+            runouts(p, deck, i + 1, left - 1, PokerHandEvaluator.addCard(state, c),
+                    mask | (1L << c), hole, dead | (1L << c), w, acc);
+        }
+    }
+
+    // ===== Monte Carlo =====
+
+    private EquityGrid monteCarlo(Problem p, StoppingPolicy policy, long seed) {
+        final long start = System.nanoTime();
+        final int maxTrials = policy.maxTrials();
+        Chunk[] chunks = newChunks(p, seed, maxTrials);
+        int done = 0;
+        Acc total;
+        EquityResult.Stop stop;
+
+        while (true) {
+            int batch = Math.min(policy.batchSize(), maxTrials - done);
+            runBatch(chunks, batch);
+            StoppingPolicy.checkCancelled();
+            done += batch;
+            Acc[] accs = new Acc[chunks.length];
+            for (int c = 0; c < chunks.length; c++) accs[c] = chunks[c].acc;
+            total = Acc.sum(accs, true);
+
+            if (policy.hasTarget() && total.maxClassStdError() <= policy.targetStdError()) {
+                stop = EquityResult.Stop.TARGET;
+                break;
+            }
+            if (done >= maxTrials) {
+                stop = policy.hasTarget() || policy.hasDeadline()
+                        ? EquityResult.Stop.MAX_TRIALS : EquityResult.Stop.FIXED;
+                break;
+            }
+            if (policy.hasDeadline() && System.nanoTime() - start >= policy.budgetNanos()) {
+                stop = EquityResult.Stop.DEADLINE;
+                break;
+            }
+        }
+        return p.result(total, done, stop);
+    }
+
+    /** Como en RealEquityCalculator: Random(seed) en secuencial, SplittableRandom.split() por bloque en paralelo. */
+    private Chunk[] newChunks(Problem p, long seed, int maxTrials) {
+        if (parallelism == 1) return new Chunk[] { new Chunk(p, new Random(seed)) };
+
+        int n = Math.min(parallelism, maxTrials);
+        SplittableRandom root = new SplittableRandom(seed);
+        Chunk[] chunks = new Chunk[n];
+        for (int c = 0; c < n; c++) chunks[c] = new Chunk(p, root.split());
+        return chunks;
+    }
+
+    private static void runBatch(Chunk[] chunks, int batch) {
+        if (chunks.length == 1) {
+            chunks[0].run(batch);
+            return;
+        }
+        int n = chunks.length;
+        IntStream.range(0, n).parallel()
+                .forEach(c -> chunks[c].run((int) ((long) batch * (c + 1) / n - (long) batch * c / n)));
+    }
+
+    /** Un flujo de pruebas Monte Carlo con su generador, su reparto y sus acumuladores. */
+    private static final class Chunk {
+        final Problem p;
+        final RandomGenerator rnd;
+        final RangeSampler dealer;
+        final int[] hole;
+        final Acc acc = new Acc(true);
+
+        Chunk(Problem p, RandomGenerator rnd) {
+            this.p = p;
+            this.rnd = rnd;
+            this.dealer = new RangeSampler(List.of(p.ranges), p.boardMask);
+            this.hole = new int[2 * p.players];
+        }
+
+        void run(int trials) {
+            for (int t = 0; t < trials; t++) {
+                double w = dealer.deal(rnd, hole);
+                if (w <= 0) continue;
+                int state = p.prefixState;
+                long mask = p.boardMask;
+                for (int k = 0; k < p.missing; k++) {
+                    int c = dealer.draw(rnd);
+                    state = PokerHandEvaluator.addCard(state, c);
+                    mask |= 1L << c;
+                }
+                acc.showdown(p, state, mask, hole, dealer.dead(), w);
+            }
+        }
+    }
+
+    // ===== Datos y acumuladores =====
+
+    /** Datos fijos: board, rangos de los rivales y combos del héroe (todos o los de su rango) que no chocan con el board. */
+    private static final class Problem {
+        final CompiledRange[] ranges;
+        final int players;
+        final long boardMask;
+        final int prefixState;
+        final int missing;      // cartas del board por repartir
+        final int deckSize;     // cartas para el runout (sin board ni cartas de los rivales)
+        final int[] live;
+
+        /** @param hero combos del héroe a calcular (null = los 1326) */
+        Problem(CompiledRange hero, List<CompiledRange> opponents, List<String> board) {
+            if (opponents.isEmpty())
+                throw new IllegalArgumentException("Hace falta al menos un rival.");
+            if (board != null && board.size() > 5)
+                throw new IllegalArgumentException("El board tiene como máximo 5 cartas.");
+
+            int[] board5 = new int[5];
+            int boardCount = 0;
+            long mask = 0L;
+            if (board != null) {
+                for (String c : board) {
+                    int id = Cards.parse(c);
+                    if ((mask & (1L << id)) != 0)
+                        throw new IllegalArgumentException("Carta repetida en el board: " + c);
+                    board5[boardCount++] = id;
+                    mask |= 1L << id;
+                }
+            }
+            this.boardMask = mask;
+            this.prefixState = PokerHandEvaluator.stateOf(board5, 0, boardCount);
+            this.missing = 5 - boardCount;
+
+            this.players = opponents.size();
+            this.ranges = new CompiledRange[players];
+            for (int i = 0; i < players; i++) {
+                ranges[i] = opponents.get(i).removeBlockers(mask);
+                if (ranges[i].isEmpty())
+                    throw new IllegalArgumentException("El rival " + (i + 1) + " no tiene ninguna mano posible con este board.");
+            }
+            this.deckSize = Cards.COUNT - boardCount - 2 * players;
+            if (deckSize - 2 < missing)
+                throw new IllegalArgumentException("No quedan cartas para tantos rivales.");
+
+            this.live = (hero == null ? CompiledRange.all() : hero).removeBlockers(mask).combos();
+        }
+
+        /** Equities y errores por combo y por clase a partir de los acumuladores. */
+        EquityGrid result(Acc acc, long trials, EquityResult.Stop stop) {
+            double[] comboEq = new double[Cards.COMBOS];
+            double[] comboSe = new double[Cards.COMBOS];
+            double[] classW = new double[PercentileIndex.CLASSES];
+            double[] classWx = new double[PercentileIndex.CLASSES];
+            for (int k = 0; k < Cards.COMBOS; k++) {
+                double sw = acc.combo[acc.stride * k], swx = acc.combo[acc.stride * k + 1];
+                comboEq[k] = sw > 0 ? 100.0 * swx / sw : Double.NaN;
+                comboSe[k] = sw <= 0 ? Double.NaN : acc.trackError ? acc.comboStdError(k) : 0.0;
+                classW[CLASS_OF[k]] += sw;
+                classWx[CLASS_OF[k]] += swx;
+            }
+            double[] classEq = new double[PercentileIndex.CLASSES];
+            double[] classSe = new double[PercentileIndex.CLASSES];
+            for (int c = 0; c < PercentileIndex.CLASSES; c++) {
+                classEq[c] = classW[c] > 0 ? 100.0 * classWx[c] / classW[c] : Double.NaN;
+                classSe[c] = classW[c] <= 0 ? Double.NaN : acc.trackError ? acc.classStdError(c) : 0.0;
+            }
+            return new EquityGrid(comboEq, comboSe, classEq, classSe, trials, stop);
+        }
+    }
+
+    /**
+     * Sumas ponderadas de un bloque. Cada reparto con peso w aporta a cada combo
+     * compatible W = w e Y = w·x (x = 1 gana, 1/k empata entre k, 0 pierde).
+     *
+     * Por combo: ΣW, ΣY (y con error: ΣW², ΣW·Y, ΣY²). Para el error de una clase,
+     * W e Y se suman primero entre sus combos dentro de cada reparto (no son
+     * independientes: comparten runout) y se acumulan ΣW, ΣY, ΣW², ΣW·Y, ΣY².
+     * Error de la media m = ΣY/ΣW (método delta): sqrt(ΣY² - 2m·ΣW·Y + m²·ΣW²) / ΣW.
+     */
+    private static final class Acc {
+        final boolean trackError;
+        final int stride;
+        final double[] combo;
+        final double[] cls;
+        final double[] tw, ty;   // W e Y de cada clase en el reparto actual
+
+        // Valor sin color de cada par de valores en el runout actual (válido si stamp[i] == runout)
+        final long[] pairScore = new long[13 * 13];
+        final int[] stamp = new int[13 * 13];
+        int runout;
+
+        Acc(boolean trackError) {
+            this.trackError = trackError;
+            this.stride = trackError ? 5 : 2;
+            this.combo = new double[stride * Cards.COMBOS];
+            this.cls = trackError ? new double[5 * PercentileIndex.CLASSES] : null;
+            this.tw = trackError ? new double[PercentileIndex.CLASSES] : null;
+            this.ty = trackError ? new double[PercentileIndex.CLASSES] : null;
+        }
+
+        /**
+         * Un reparto completo (board de 5 en 'state'/'mask', rivales en 'hole'):
+         * se evalúan los rivales una vez y cada combo del héroe que no toca 'dead'.
+         */
+        void showdown(Problem p, int state, long mask, int[] hole, long dead, double w) {
+            long best = Long.MIN_VALUE;
+            int nBest = 0;
+            for (int i = 0; i < p.players; i++) {
+                int c1 = hole[2 * i], c2 = hole[2 * i + 1];
+                long sc = PokerHandEvaluator.score(
+                        PokerHandEvaluator.addCard(PokerHandEvaluator.addCard(state, c1), c2),
+                        mask | (1L << c1) | (1L << c2));
+                if (sc > best) {
+                    best = sc;
+                    nBest = 1;
+                } else if (sc == best) {
+                    nBest++;
+                }
+            }
+            final double tie = 1.0 / (nBest + 1);
+
+            // Palos con los que un combo podría hacer color (todos si el board ya es color)
+            int flushSuits = 0;
+            for (int s = 0; s < 4; s++) {
+                int n = Long.bitCount((mask >>> (13 * s)) & 0x1FFF);
+                if (n >= 5) flushSuits = 0xF;
+                else if (n >= 3) flushSuits |= 1 << s;
+            }
+            if (++runout == 0) {
+                Arrays.fill(stamp, 0);
+                runout = 1;
+            }
+
+            final int[] live = p.live;
+            for (int j = 0; j < live.length; j++) {
+                int k = live[j];
+                long cm = MASK[k];
+                if ((cm & dead) != 0) continue;
+                long sc;
+                if ((SUITS[k] & flushSuits) != 0) {
+                    sc = PokerHandEvaluator.score(
+                            PokerHandEvaluator.addCard(PokerHandEvaluator.addCard(state, Cards.comboHigh(k)), Cards.comboLow(k)),
+                            mask | cm);
+                } else {
+                    int rp = RANK_PAIR[k];
+                    if (stamp[rp] != runout) {
+                        stamp[rp] = runout;
+                        pairScore[rp] = PokerHandEvaluator.rankScore(
+                                PokerHandEvaluator.addCard(PokerHandEvaluator.addCard(state, Cards.comboHigh(k)), Cards.comboLow(k)));
+                    }
+                    sc = pairScore[rp];
+                }
+                double y = sc > best ? w : sc == best ? w * tie : 0.0;
+                int b = stride * k;
+                combo[b] += w;
+                combo[b + 1] += y;
+                if (trackError) {
+                    combo[b + 2] += w * w;
+                    combo[b + 3] += w * y;
+                    combo[b + 4] += y * y;
+                    tw[CLASS_OF[k]] += w;
+                    ty[CLASS_OF[k]] += y;
+                }
+            }
+
+            if (trackError) {
+                for (int c = 0; c < PercentileIndex.CLASSES; c++) {
+                    double cw = tw[c];
+                    if (cw == 0) continue;
+                    double cy = ty[c];
+                    int b = 5 * c;
+                    cls[b] += cw;
+                    cls[b + 1] += cy;
+                    cls[b + 2] += cw * cw;
+                    cls[b + 3] += cw * cy;
+                    cls[b + 4] += cy * cy;
+                    tw[c] = 0;
+                    ty[c] = 0;
+                }
+            }
+        }
+
+        double comboStdError(int k) {
+            return stdError(combo, 5 * k);
+        }
+
+        double classStdError(int c) {
+            return stdError(cls, 5 * c);
+        }
+
+        /** Mayor error de las clases con algún reparto (0 si ninguna). */
+        double maxClassStdError() {
+            double m = 0.0;
+            for (int c = 0; c < PercentileIndex.CLASSES; c++)
+                if (cls[5 * c] > 0) m = Math.max(m, classStdError(c));
+            return m;
+        }
+
+        private static double stdError(double[] a, int b) {
+            double sw = a[b];
+            if (sw <= 0) return Double.NaN;
+            double m = a[b + 1] / sw;
+            double num = Math.max(0.0, a[b + 4] - 2 * m * a[b + 3] + m * m * a[b + 2]);
+            return 100.0 * Math.sqrt(num) / sw;
+        }
+
+        /** Suma de los bloques, siempre en el mismo orden. */
+        static Acc sum(Acc[] accs, boolean trackError) {
+            Acc t = new Acc(trackError);
+            for (Acc a : accs) {
+                for (int i = 0; i < t.combo.length; i++) t.combo[i] += a.combo[i];
+                if (trackError)
+                    for (int i = 0; i < t.cls.length; i++) t.cls[i] += a.cls[i];
+            }
+            return t;
+        }
+    }
+
+    /** C(n, k). */
+    private static long binom(int n, int k) {
+        if (k < 0 || k > n) return 0;
+        long r = 1;
+        for (int i = 1; i <= k; i++) r = r * (n - k + i) / i;
+        return r;
+    }
+}
@@ -0,0 +1,33 @@
+package p3.logic;
+
+/**
+ * Recibe instantáneas de un cálculo de equity mientras avanza
+ * (EquityCalculator.calcularEquity con listener).
+ *
+ * Cada instantánea es un EquityResult con stop() == RUNNING: equities, pruebas
+ * hechas hasta ese momento y error estándar de cada jugador. El resultado final
+ * no pasa por aquí, es lo que devuelve el cálculo. Se llama desde el hilo que
+ * calcula, así que debe volver enseguida (por ejemplo, encolar el pintado con
+ * SwingUtilities.invokeLater).
+ */
+@FunctionalInterface
+public interface EquityListener {
+
+    void onSnapshot(EquityResult snapshot);
+
+    /**
+     * Este listener, pero como mucho una instantánea cada 'millis' milisegundos
+     * (la primera pasa siempre). Para no inundar la GUI en cálculos largos.
+     */
+    default EquityListener atMostEvery(long millis) {
+        if (millis <= 0) return this;
+        long interval = millis * 1_000_000L;
+        long[] last = { Long.MIN_VALUE };
+        return snapshot -> {
+            long now = System.nanoTime();
+            if (last[0] != Long.MIN_VALUE && now - last[0] < interval) return;
+            last[0] = now;
+            onSnapshot(snapshot);
+        };
+    }
+}
@@ -0,0 +1,98 @@
+package p3.logic;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Resultado de un cálculo de equity con su precisión.
+ *
+ * Equities y errores estándar en escala 0..100, en el orden de los jugadores.
+ * El intervalo de confianza es el del 95% (±1.96 errores estándar) recortado a [0, 100].
+ */
+public final class EquityResult {
+
+    /** Por qué terminó el cálculo. */
+    public enum Stop {
+        /** Se hicieron las pruebas pedidas (política fija). */
+        FIXED,
+        /** Se alcanzó el error estándar objetivo. */
+        TARGET,
+        /** Se agotó el presupuesto de tiempo. */
+        DEADLINE,
+        /** Se llegó al máximo de pruebas sin alcanzar el objetivo. */
+        MAX_TRIALS,
+        /** Resultado exacto (enumeración completa, board cerrado o evaluador externo). */
+        EXACT,
+        /** Instantánea parcial: el cálculo sigue (ver EquityListener). */
+        RUNNING
+    }
+
+    /** z del intervalo de confianza del 95%. */
+    public static final double Z95 = 1.96;
+
+    private final Map<String, Double> equities;
+    private final Map<String, Double> stdErrors;
+    private final long trials;
+    private final Stop stop;
+
+    public EquityResult(Map<String, Double> equities, Map<String, Double> stdErrors, long trials, Stop stop) {
+        this.equities = Collections.unmodifiableMap(new LinkedHashMap<>(equities));
+        this.stdErrors = Collections.unmodifiableMap(new LinkedHashMap<>(stdErrors));
+        this.trials = trials;
+        this.stop = stop;
+    }
+
+    /** Resultado exacto: error 0. */
+    public static EquityResult exact(Map<String, Double> equities, long trials) {
+        Map<String, Double> se = new LinkedHashMap<>();
+        for (String name : equities.keySet()) se.put(name, 0.0);
+        return new EquityResult(equities, se, trials, Stop.EXACT);
+    }
+
+    /** Resultado de un calculador que no estima su error (errores NaN). */
+    public static EquityResult withoutError(Map<String, Double> equities, long trials) {
+        Map<String, Double> se = new LinkedHashMap<>();
+        for (String name : equities.keySet()) se.put(name, Double.NaN);
+        return new EquityResult(equities, se, trials, Stop.FIXED);
+    }
+
+    /** Equity por jugador (0..100). */
+    public Map<String, Double> equities() { return equities; }
+
+    /** Error estándar por jugador (puntos de equity; NaN si no se conoce). */
+    public Map<String, Double> stdErrors() { return stdErrors; }
+
+    /** Nº de pruebas (o de runouts enumerados) en que se basa el resultado. */
+    public long trials() { return trials; }
+
+    public Stop stop() { return stop; }
+
+    /** ¿Es una instantánea de un cálculo que aún no ha terminado? */
+    public boolean isPartial() { return stop == Stop.RUNNING; }
+
+    public double equity(String name) { return equities.getOrDefault(name, 0.0); }
+
+    public double stdError(String name) { return stdErrors.getOrDefault(name, Double.NaN); }
+
+    /** Semiancho del intervalo del 95% para un jugador. */
+    public double halfWidth(String name) { return Z95 * stdError(name); }
+
+    /** Extremo inferior del intervalo del 95%. */
+    public double low(String name) { return Math.max(0.0, equity(name) - halfWidth(name)); }
+
+    /** Extremo superior del intervalo del 95%. */
+    public double high(String name) { return Math.min(100.0, equity(name) + halfWidth(name)); }
+
+    /** Mayor error estándar entre todos los jugadores. */
+    public double maxStdError() {
+        double m = 0.0;
+        for (double se : stdErrors.values()) m = Math.max(m, se);
+        return m;
+    }
+
+    @Override public String toString() {
+        return "EquityResult{" + equities + ", trials=" + trials + ", stop=" + stop
+                + ", maxSE=" + maxStdError() + "}";
+    }
+}
@@ -0,0 +1,326 @@
+package p3.logic;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import p3.model.Cards;
+import p3.model.Hand;
+
+/**
+ * Equity exacta por enumeración de todos los runouts posibles.
+ *
+ * Si todas las manos son conocidas y el nº de boards que faltan por repartir
+ * (C(cartas restantes, cartas que faltan)) no pasa de 'maxRunouts', se recorren
+ * todos: en el turn son ≤ 44 rivers, en el flop ~1000 turn+river, y preflop
+ * heads-up C(48,5) = 1.712.304. Si no, se delega en otro calculador (Monte Carlo).
+ *
+ * El recorrido se reparte en bloques por índice combinatorio: cada bloque
+ * "desrankea" su primera combinación y sigue en orden lexicográfico, así que
+ * los bloques son independientes y se pueden ejecutar en paralelo.
+ *
+ * Los empates se cuentan en unidades enteras (cada runout vale mcm(1..N) unidades,
+ * que se reparten sin decimales entre los ganadores), así que el resultado es
+ * exacto y no depende del orden de suma.
+ */
+public class ExhaustiveEquityCalculator implements EquityCalculator {
+
+    /** Por defecto se enumera hasta el preflop heads-up (1.712.304 runouts). */
+    public static final long DEFAULT_MAX_RUNOUTS = 2_000_000L;
+
+    /** Con límite de tiempo se enumera solo hasta aquí (unos pocos ms; flop y turn caben de sobra). */
+    public static final long DEADLINE_MAX_RUNOUTS = 100_000L;
+
+    /** Con listener, runouts a partir de los que se enseña antes una vista previa Monte Carlo. */
+    public static final long PREVIEW_MIN_RUNOUTS = 100_000L;
+
+    /** Pruebas de esa vista previa (unos milisegundos incluso con 6 jugadores). */
+    public static final int PREVIEW_TRIALS = 4_096;
+
+    // Bloques por hilo (más bloques que hilos para repartir mejor la carga)
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    // Máscara de runouts entre comprobaciones de cancelación (cada 65536)
+    private static final long CANCEL_CHECK = 0xFFFF;
+
+    // C(n, k) para n ≤ 52, k ≤ 5
+    private static final long[][] BINOM = new long[Cards.COUNT + 1][6];
+
+    static {
+        for (int n = 0; n <= Cards.COUNT; n++) {
+            BINOM[n][0] = 1;
+            for (int k = 1; k <= Math.min(n, 5); k++) {
+                BINOM[n][k] = BINOM[n - 1][k - 1] + (k <= n - 1 ? BINOM[n - 1][k] : 0);
+            }
+        }
+    }
+
+    private final EquityCalculator fallback;
+    private final long maxRunouts;
+    private final int parallelism;
+
+    /** Enumeración con el umbral por defecto, todos los núcleos y Monte Carlo (también paralelo) como respaldo. */
+    public ExhaustiveEquityCalculator() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    private ExhaustiveEquityCalculator(int cores) {
+        this(new RealEquityCalculator(cores), DEFAULT_MAX_RUNOUTS, cores);
+    }
+
+    /**
+     * @param fallback    calculador para los casos que no se enumeran (manos desconocidas o demasiados runouts)
+     * @param maxRunouts  máximo de runouts para enumerar
+     * @param parallelism nº de hilos a aprovechar (1 = secuencial)
+     */
+    public ExhaustiveEquityCalculator(EquityCalculator fallback, long maxRunouts, int parallelism) {
+        if (fallback == null) throw new IllegalArgumentException("fallback no puede ser null");
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism debe ser >= 1");
+        this.fallback = fallback;
+        this.maxRunouts = maxRunouts;
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public Map<String, Double> calcularEquity(
+            List<String> names, List<Hand> hands, List<String> board, int trials, long seed) {
+        EquityResult r = enumerateIfSmall(names, hands, board, maxRunouts);
+        return r != null ? r.equities() : fallback.calcularEquity(names, hands, board, trials, seed);
+    }
+
+    /**
+     * Exacto si se puede enumerar; si no, el respaldo con la misma política.
+     * Con límite de tiempo solo se enumera hasta DEADLINE_MAX_RUNOUTS (flop y turn),
+     * para no pasarse del presupuesto en preflop.
+     */
+    @Override
+    public EquityResult calcularEquity(
+            List<String> names, List<Hand> hands, List<String> board, StoppingPolicy policy, long seed) {
+        long limit = policy.hasDeadline() ? Math.min(maxRunouts, DEADLINE_MAX_RUNOUTS) : maxRunouts;
+        EquityResult r = enumerateIfSmall(names, hands, board, limit);
+        return r != null ? r : fallback.calcularEquity(names, hands, board, policy, seed);
+    }
+
+    /**
+     * Igual, con instantáneas. Si no se enumera, son las del respaldo. Si se enumera
+     * pero son muchos runouts (preflop, cientos de ms), antes se hace un Monte Carlo
+     * corto de PREVIEW_TRIALS pruebas solo para las instantáneas: la enumeración
+     * parcial no sirve como estimación, porque recorre los runouts en orden.
+     */
+    @Override
+    public EquityResult calcularEquity(List<String> names, List<Hand> hands, List<String> board,
+                                       StoppingPolicy policy, long seed, EquityListener listener) {
+        long limit = policy.hasDeadline() ? Math.min(maxRunouts, DEADLINE_MAX_RUNOUTS) : maxRunouts;
+        if (listener != null) {
+            long runouts = runouts(hands, board);
+            if (runouts > PREVIEW_MIN_RUNOUTS && runouts <= limit)
+                fallback.calcularEquity(names, hands, board, StoppingPolicy.fixedTrials(PREVIEW_TRIALS), seed, listener);
+        }
+        EquityResult r = enumerateIfSmall(names, hands, board, limit);
+        return r != null ? r : fallback.calcularEquity(names, hands, board, policy, seed, listener);
+    }
+
+    /** Nº de runouts a enumerar, o -1 si hay manos desconocidas o cartas repetidas. */
+    private static long runouts(List<Hand> hands, List<String> board) {
+        int boardCount = board == null ? 0 : board.size();
+        if (boardCount > 5 || hands.stream().anyMatch(h -> h == null)) return -1;
+        long used = 0L;
+        int cards = 0;
+        for (Hand h : hands) {
+            used |= h.mask();
+            cards += 2;
+        }
+        for (int i = 0; i < boardCount; i++) used |= 1L << Cards.parse(board.get(i));
+        cards += boardCount;
+        if (Long.bitCount(used) != cards) return -1;
+        return BINOM[Cards.COUNT - cards][5 - boardCount];
+    }
+
+    /** Resultado exacto, o null si hay manos desconocidas o más de 'limit' runouts. */
+    private EquityResult enumerateIfSmall(List<String> names, List<Hand> hands, List<String> board, long limit) {
+        if (names.size() != hands.size())
+            throw new IllegalArgumentException("names y hands deben tener misma longitud");
+
+        long[] units = exactUnits(hands, board, limit);
+        if (units == null) return null;
+
+        // Cada runout reparte exactamente mcm(1..N) unidades entre sus ganadores
+        long perRunout = lcmUpTo(hands.size());
+        long sum = 0;
+        for (long u : units) sum += u;
+        long total = sum / perRunout;
+
+        Map<String, Double> out = new LinkedHashMap<>();
+        for (int i = 0; i < units.length; i++) out.put(names.get(i), 100.0 * units[i] / ((double) perRunout * total));
+        return EquityResult.exact(out, total);
+    }
+
+    /**
+     * Unidades ganadas por cada jugador sumando todos los runouts (cada runout vale
+     * mcm(1..N) unidades, repartidas entre los que empatan), o null si hay manos
+     * desconocidas o más de 'limit' runouts. Lo usa también PreflopTableGenerator.
+     */
+    long[] exactUnits(List<Hand> hands, List<String> board, long limit) {
+        int boardCount = board == null ? 0 : board.size();
+        if (boardCount > 5 || hands.stream().anyMatch(h -> h == null)) return null;
+
+        final int N = hands.size();
+        int[] hole = new int[2 * N];
+        long used = 0L;
+        for (int i = 0; i < N; i++) {
+            Hand h = hands.get(i);
+            hole[2 * i] = h.id1();
+            hole[2 * i + 1] = h.id2();
+            used |= h.mask();
+        }
+        int[] known = new int[boardCount];
+        long boardMask = 0L;
+        for (int i = 0; i < boardCount; i++) {
+            known[i] = Cards.parse(board.get(i));
+            boardMask |= 1L << known[i];
+        }
+        used |= boardMask;
+
+        int[] deck = remainingCards(used);
+        int k = 5 - boardCount;
+        long total = BINOM[deck.length][k];
+        if (total > limit) return null;
+
+        Enumeration e = new Enumeration(hole, PokerHandEvaluator.stateOf(known, 0, boardCount), boardMask, deck, k);
+        return enumerate(e, total);
+    }
+
+    /** Reparte [0, total) en bloques y suma sus resultados (en paralelo si toca). */
+    private long[] enumerate(Enumeration e, long total) {
+        int chunks = (int) Math.min(total, (long) parallelism * CHUNKS_PER_THREAD);
+        IntStream ids = IntStream.range(0, chunks);
+        if (parallelism > 1 && chunks > 1) ids = ids.parallel();
+
+        Thread caller = Thread.currentThread();
+        return ids.mapToObj(c -> e.run(total * c / chunks, total * (c + 1) / chunks, caller))
+                .reduce(new long[e.players], ExhaustiveEquityCalculator::add);
+    }
+
+    private static long[] add(long[] a, long[] b) {
+        long[] out = new long[a.length];
+        for (int i = 0; i < a.length; i++) out[i] = a[i] + b[i];
+        return out;
+    }
+
+    /** Mínimo común múltiplo de 1..n (unidades que se reparten en cada runout). */
+    private static long lcmUpTo(int n) {
+        long l = 1;
+        for (long i = 2; i <= n; i++) {
+            long a = l, b = i;
+            while (b != 0) { long t = a % b; a = b; b = t; }
+            l = l / a * i;
+        }
+        return l;
+    }
+
+    /** Cartas que no están en 'used', en orden de id. */
+    private static int[] remainingCards(long used) {
+        int[] out = new int[Cards.COUNT - Long.bitCount(used & Cards.FULL_MASK)];
+        int n = 0;
+        for (int c = 0; c < Cards.COUNT; c++) if ((used & (1L << c)) == 0) out[n++] = c;
+        return out;
+    }
+
+    /** Datos fijos de una enumeración; run() recorre un tramo de combinaciones. */
+    private static final class Enumeration {
+        final int[] hole;
+        final int players;
+        final int prefixState;
+        final long prefixMask;
+        final int[] deck;
+        final int k;
+        final long unitsPerRunout;
+
+        Enumeration(int[] hole, int prefixState, long prefixMask, int[] deck, int k) {
+            this.hole = hole;
+            this.players = hole.length / 2;
+            this.unitsPerRunout = lcmUpTo(players);
+            this.prefixState = prefixState;
+            this.prefixMask = prefixMask;
+            this.deck = deck;
+            this.k = k;
+        }
+
+        /**
+         * Recorre las combinaciones con índice lexicográfico en [from, to). Cada
+         * CANCEL_CHECK runouts mira si 'caller' (el hilo que pidió el cálculo) se ha cancelado.
+         */
+        long[] run(long from, long to, Thread caller) {
+            long[] units = new long[players];
+            long[] scores = new long[players];
+            int n = deck.length;
+
+            // Combinación inicial (posiciones en 'deck') y estados parciales por nivel:
+            // st[j]/mk[j] = prefijo + cartas idx[0..j)
+            int[] idx = unrank(from, n, k);
+            int[] st = new int[k + 1];
+            long[] mk = new long[k + 1];
+            st[0] = prefixState;
+            mk[0] = prefixMask;
+            int dirty = 0;
+
+            for (long r = from; r < to; r++) {
+                if (((r - from) & CANCEL_CHECK) == 0) StoppingPolicy.checkCancelled(caller);
+                for (int j = dirty; j < k; j++) {
+                    int c = deck[idx[j]];
+                    st[j + 1] = PokerHandEvaluator.addCard(st[j], c);
+                    mk[j + 1] = mk[j] | (1L << c);
+                }
+                score(st[k], mk[k], units, scores);
+
+                // Siguiente combinación: se recalcula solo desde la posición que cambia
+                int p = k - 1;
+                while (p >= 0 && idx[p] == n - k + p) p--;
+                if (p < 0) break;
+                idx[p]++;
+                for (int j = p + 1; j < k; j++) idx[j] = idx[j - 1] + 1;
+                dirty = p;
+            }
+            return units;
+        }
+
+        /** Evalúa a todos los jugadores sobre un board completo y reparte las unidades entre los ganadores. */
+        private void score(int boardState, long boardMask, long[] units, long[] scores) {
+            long best = Long.MIN_VALUE;
+            int nWinners = 0;
+            for (int i = 0; i < players; i++) {
+                int c1 = hole[2 * i], c2 = hole[2 * i + 1];
+                long sc = PokerHandEvaluator.score(
+                        PokerHandEvaluator.addCard(PokerHandEvaluator.addCard(boardState, c1), c2),
+                        boardMask | (1L << c1) | (1L << c2));
+                scores[i] = sc;
+                if (sc > best) {
+                    best = sc;
+                    nWinners = 1;
+                } else if (sc == best) {
+                    nWinners++;
+                }
+            }
+            long share = unitsPerRunout / nWinners;
+            for (int i = 0; i < players; i++) if (scores[i] == best) units[i] += share;
+        }
+
+        /** Combinación número 'rank' (orden lexicográfico) de k posiciones entre n. */
+        private static int[] unrank(long rank, int n, int k) {
+            int[] idx = new int[k];
+            int next = 0;
+            for (int j = 0; j < k; j++) {
+                // Cuántas combinaciones empiezan por cada candidato 'next' en esta posición
+                while (true) {
+                    long count = BINOM[n - next - 1][k - j - 1];
+                    if (rank < count) break;
+                    rank -= count;
+                    next++;
+                }
+                idx[j] = next++;
+            }
+            return idx;
+        }
+    }
+}
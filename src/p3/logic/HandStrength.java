@@ -0,0 +1,59 @@
+package p3.logic;
+
+import java.util.Locale;
+
+/**
+ * Resultado de HandStrengthCalculator (todo en 0..1):
+ *  - HS:    fuerza actual contra el rango, (por delante + empates / 2) / combos.
+ *  - PPot:  de las veces que va por detrás (o empata), cuántas acaba por delante en el river.
+ *  - NPot:  de las veces que va por delante (o empata), cuántas acaba por detrás.
+ *  - E[HS²]: media del cuadrado de la HS en el river; premia las manos con mucho
+ *            potencial frente a las de fuerza media estable (a igual equity, más varianza).
+ *
+ * Los empates cuentan la mitad, como en la tabla de potencial de Billings et al.
+ * En el river no hay más cartas: PPot = NPot = 0 y E[HS²] = HS².
+ */
+public final class HandStrength {
+
+    private final double hs;
+    private final double ppot;
+    private final double npot;
+    private final double ehs2;
+    private final int runouts;
+    private final boolean exact;
+
+    HandStrength(double hs, double ppot, double npot, double ehs2, int runouts, boolean exact) {
+        this.hs = hs;
+        this.ppot = ppot;
+        this.npot = npot;
+        this.ehs2 = ehs2;
+        this.runouts = runouts;
+        this.exact = exact;
+    }
+
+    /** Fuerza actual contra el rango. */
+    public double hs() { return hs; }
+
+    /** Potencial positivo hasta el river. */
+    public double ppot() { return ppot; }
+
+    /** Potencial negativo hasta el river. */
+    public double npot() { return npot; }
+
+    /** Media de HS² en el river. */
+    public double ehs2() { return ehs2; }
+
+    /** Fuerza efectiva: HS · (1 - NPot) + (1 - HS) · PPot. */
+    public double ehs() { return hs * (1 - npot) + (1 - hs) * ppot; }
+
+    /** Nº de runouts usados (0 en el river). */
+    public int runouts() { return runouts; }
+
+    /** ¿Se enumeraron todos los runouts (sin muestra)? */
+    public boolean isExact() { return exact; }
+
+    @Override public String toString() {
+        return String.format(Locale.ROOT, "HandStrength{HS=%.4f, PPot=%.4f, NPot=%.4f, E[HS2]=%.4f, runouts=%d%s}",
+                hs, ppot, npot, ehs2, runouts, exact ? "" : ", muestra");
+    }
+}
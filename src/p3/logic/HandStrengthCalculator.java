@@ -0,0 +1,296 @@
+package p3.logic;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import p3.model.Board;
+import p3.model.Cards;
+import p3.model.Hand;
+
+/**
+ * Fuerza y potencial de una mano contra un rango: HS, PPot, NPot y E[HS²]
+ * (ver HandStrength), en el flop, el turn o el river.
+ *
+ * Se enumeran las cartas que faltan hasta el river (dos en el flop, una en el
+ * turn). Lo caro es evaluar los combos rivales en cada runout, y eso no depende
+ * del héroe: por board se construye una vez una tabla con el valor de los 1326
+ * combos en el board actual y en cada runout, y se guarda en una caché LRU. Con
+ * la tabla hecha, cada mano del héroe solo compara enteros: su valor contra el de
+ * cada combo del rango, runout a runout.
+ *
+ * En el turn y el river siempre es exacto (como mucho 48 runouts). En el flop son
+ * 1176 runouts de dos cartas; si pasan de 'maxRunouts' se usa una muestra fija de
+ * ese tamaño (siempre la misma para el mismo board), así el tiempo queda acotado y
+ * el resultado es reproducible.
+ */
+public final class HandStrengthCalculator {
+
+    /**
+     * Runouts por defecto en el flop: ~1/3 de los 1176, la tabla sale en ~1/3 del
+     * tiempo a cambio de unas centésimas de error en PPot, NPot y E[HS²].
+     */
+    public static final int DEFAULT_MAX_RUNOUTS = 400;
+
+    /** Boards guardados por defecto (cada tabla de flop ocupa ~2 MB con 400 runouts). */
+    public static final int DEFAULT_MAX_BOARDS = 16;
+
+    private final int maxRunouts;
+    private final int maxBoards;
+    private final Map<Long, BoardTable> cache;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public HandStrengthCalculator() {
+        this(DEFAULT_MAX_RUNOUTS, DEFAULT_MAX_BOARDS);
+    }
+
+    /**
+     * @param maxRunouts runouts como mucho por board (Integer.MAX_VALUE = flop exacto)
+     * @param maxBoards  tablas de boards guardadas (LRU)
+     */
+    public HandStrengthCalculator(int maxRunouts, int maxBoards) {
+        if (maxRunouts < 48) throw new IllegalArgumentException("maxRunouts debe ser >= 48 (turn exacto)");
+        if (maxBoards < 1) throw new IllegalArgumentException("maxBoards debe ser >= 1");
+        this.maxRunouts = maxRunouts;
+        this.maxBoards = maxBoards;
+        // accessOrder = true → orden LRU
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<Long, BoardTable> eldest) {
+                return size() > HandStrengthCalculator.this.maxBoards;
+            }
+        };
+    }
+
+    /** HS, PPot, NPot y E[HS²] del héroe contra el rango en ese board (3 a 5 cartas). */
+    public HandStrength calcular(Hand hero, CompiledRange range, Board board) {
+        return calcular(hero, range, board.visible());
+    }
+
+    /**
+     * HS, PPot, NPot y E[HS²] del héroe contra el rango en ese board (3 a 5 cartas).
+     * @throws IllegalArgumentException si el board no tiene 3 a 5 cartas, si hay cartas
+     *         repetidas o si el rango no tiene combos posibles
+     */
+    public HandStrength calcular(Hand hero, CompiledRange range, List<String> board) {
+        if (board.size() < 3 || board.size() > 5)
+            throw new IllegalArgumentException("HS y potencial necesitan flop, turn o river: " + board);
+        long boardMask = Cards.maskOf(board);
+        if (Long.bitCount(boardMask) != board.size() || (boardMask & hero.mask()) != 0)
+            throw new IllegalArgumentException("Cartas repetidas entre el héroe y el board");
+
+        CompiledRange r = range.removeBlockers(boardMask | hero.mask());
+        if (r.isEmpty())
+            throw new IllegalArgumentException("El rango no tiene combos posibles con este board");
+
+        BoardTable t = table(board, boardMask);
+        return t.strength(Cards.combo(hero.id1(), hero.id2()), hero.mask(), r);
+    }
+
+    // ===== Métricas de la caché =====
+
+    public long hits() { return hits.get(); }
+    public long misses() { return misses.get(); }
+
+    /** Aciertos / consultas (0 si aún no hay consultas). */
+    public double hitRate() {
+        long h = hits.get(), total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    /** Nº de boards guardados. */
+    public synchronized int size() { return cache.size(); }
+
+    public synchronized void clear() {
+        cache.clear();
+        hits.set(0);
+        misses.set(0);
+    }
+
+    // ===== helpers =====
+
+    /** Tabla del board (de la caché o construida fuera del cerrojo). */
+    private BoardTable table(List<String> board, long boardMask) {
+        BoardTable t = lookup(boardMask);
+        if (t != null) {
+            hits.incrementAndGet();
+            return t;
+        }
+        misses.incrementAndGet();
+        int[] ids = new int[board.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = Cards.parse(board.get(i));
+        return store(boardMask, new BoardTable(ids, boardMask, maxRunouts));
+    }
+
+    private synchronized BoardTable lookup(long boardMask) {
+        return cache.get(boardMask);
+    }
+
+    private synchronized BoardTable store(long boardMask, BoardTable t) {
+        cache.put(boardMask, t);
+        return t;
+    }
+
+    /**
+     * Valor de cada combo en el board actual y en cada runout, como int comparable
+     * (categoría y desempates de PokerHandEvaluator en 29 bits); -1 si el combo
+     * choca con el board o con el runout. Inmutable una vez construida.
+     */
+    private static final class BoardTable {
+        private final int[] now = new int[Cards.COMBOS];
+        private final long[] runoutMask;
+        private final int[] after;         // after[r * COMBOS + k]
+        private final boolean exact;
+
+        BoardTable(int[] board, long boardMask, int maxRunouts) {
+            int boardState = PokerHandEvaluator.stateOf(board, 0, board.length);
+            fill(now, 0, boardState, boardMask);
+
+            long[] all = runouts(boardMask, 5 - board.length);
+            this.exact = all.length <= maxRunouts;
+            this.runoutMask = exact ? all : sample(all, maxRunouts, boardMask);
+            this.after = new int[runoutMask.length * Cards.COMBOS];
+            for (int r = 0; r < runoutMask.length; r++) {
+                int state = boardState;
+                for (long m = runoutMask[r]; m != 0; m &= m - 1)
+                    state = PokerHandEvaluator.addCard(state, Long.numberOfTrailingZeros(m));
+                fill(after, r * Cards.COMBOS, state, boardMask | runoutMask[r]);
+            }
+        }
+
+        /**
+         * Valor de los 1326 combos con las cartas (state, mask) en out[from..]. Si el
+         * combo no puede ligar color (ninguna de sus cartas es de un palo con 3+ cartas
+         * en la mesa) su valor solo depende de los dos valores: se evalúa una vez por
+         * pareja de valores (91 en vez de ~1100 evaluaciones). Si la mesa ya es color,
+         * todos lo juegan y se evalúan todos con el color.
+         */
+        private static void fill(int[] out, int from, int state, long mask) {
+            int flushSuits = 0;
+            for (int suit = 0; suit < 4; suit++) {
+                int n = Long.bitCount(mask & (0x1FFFL << (13 * suit)));
+                if (n >= 5) flushSuits = 0xF;
+                else if (n >= 3) flushSuits |= 1 << suit;
+            }
+            int[] byRanks = new int[13 * 13];
+            Arrays.fill(byRanks, -1);
+            for (int k = 0; k < Cards.COMBOS; k++) {
+                long cm = Cards.comboMask(k);
+                if ((cm & mask) != 0) {
+                    out[from + k] = -1;
+                    continue;
+                }
+                int a = Cards.comboHigh(k), b = Cards.comboLow(k);
+                if ((flushSuits & ((1 << Cards.suit(a)) | (1 << Cards.suit(b)))) != 0) {
+                    int s = PokerHandEvaluator.addCard(PokerHandEvaluator.addCard(state, a), b);
+                    out[from + k] = compact(PokerHandEvaluator.score(s, mask | cm));
+                    continue;
+                }
+                int ranks = 13 * Cards.rank(a) + Cards.rank(b);
+                int v = byRanks[ranks];
+                if (v < 0) {
+                    int s = PokerHandEvaluator.addCard(PokerHandEvaluator.addCard(state, a), b);
+                    v = compact(PokerHandEvaluator.rankScore(s));
+                    byRanks[ranks] = v;
+                }
+                out[from + k] = v;
+            }
+        }
+
+        /** Todos los conjuntos de 'n' cartas (0, 1 o 2) fuera del board, como máscaras. */
+        private static long[] runouts(long boardMask, int n) {
+            if (n == 0) return new long[0];
+            long free = ~boardMask & Cards.FULL_MASK;
+            int f = Long.bitCount(free);
+            long[] out = new long[n == 1 ? f : f * (f - 1) / 2];
+            int i = 0;
+            for (long a = free; a != 0; a &= a - 1) {
+                long ba = a & -a;
+                if (n == 1) {
+                    out[i++] = ba;
+                    continue;
+                }
+                for (long b = a & (a - 1); b != 0; b &= b - 1) out[i++] = ba | (b & -b);
+            }
+            return out;
+        }
+
+        /** Muestra fija de 'size' runouts (Fisher-Yates parcial con semilla = board). */
+        private static long[] sample(long[] all, int size, long boardMask) {
+            long[] a = all.clone();
+            SplittableRandom rnd = new SplittableRandom(boardMask);
+            for (int i = 0; i < size; i++) {
+                int j = i + rnd.nextInt(a.length - i);
+                long tmp = a[i]; a[i] = a[j]; a[j] = tmp;
+            }
+            long[] out = new long[size];
+            System.arraycopy(a, 0, out, 0, size);
+            return out;
+        }
+
+        /** HS, potencial y E[HS²] del combo 'hero' contra el rango (ya sin bloqueados). */
+        HandStrength strength(int hero, long heroMask, CompiledRange range) {
+            int n = range.size();
+            int heroNow = now[hero];
+
+            // HS ahora; 'before' = 0 por delante, 1 empate, 2 por detrás (por combo del rango)
+            int[] before = new int[n];
+            double[] sumNow = new double[3];
+            for (int j = 0; j < n; j++) {
+                before[j] = compare(heroNow, now[range.combo(j)]);
+                sumNow[before[j]] += range.weight(j);
+            }
+            double total = sumNow[0] + sumNow[1] + sumNow[2];
+            double hs = (sumNow[0] + sumNow[1] / 2) / total;
+
+            // Tabla de potencial: hp[antes][después] y, por runout, la HS final
+            double[][] hp = new double[3][3];
+            double sumHs2 = 0;
+            int used = 0;
+            for (int r = 0; r < runoutMask.length; r++) {
+                if ((runoutMask[r] & heroMask) != 0) continue;
+                int base = r * Cards.COMBOS;
+                int heroAfter = after[base + hero];
+                double ahead = 0, tied = 0, live = 0;
+                for (int j = 0; j < n; j++) {
+                    int v = after[base + range.combo(j)];
+                    if (v < 0) continue;                 // el combo usa una carta del runout
+                    double w = range.weight(j);
+                    int a = compare(heroAfter, v);
+                    hp[before[j]][a] += w;
+                    live += w;
+                    if (a == 0) ahead += w;
+                    else if (a == 1) tied += w;
+                }
+                if (live > 0) {
+                    double h = (ahead + tied / 2) / live;
+                    sumHs2 += h * h;
+                    used++;
+                }
+            }
+            if (used == 0) return new HandStrength(hs, 0.0, 0.0, hs * hs, 0, true);
+
+            double[] rowTotal = new double[3];
+            for (int b = 0; b < 3; b++) rowTotal[b] = hp[b][0] + hp[b][1] + hp[b][2];
+            double ppotDen = rowTotal[2] + rowTotal[1] / 2;
+            double npotDen = rowTotal[0] + rowTotal[1] / 2;
+            double ppot = ppotDen > 0 ? (hp[2][0] + hp[2][1] / 2 + hp[1][0] / 2) / ppotDen : 0.0;
+            double npot = npotDen > 0 ? (hp[0][2] + hp[1][2] / 2 + hp[0][1] / 2) / npotDen : 0.0;
+            return new HandStrength(hs, ppot, npot, sumHs2 / used, used, exact);
+        }
+
+        /** 0 si el héroe va por delante, 1 si empatan, 2 si va por detrás. */
+        private static int compare(int hero, int rival) {
+            return hero > rival ? 0 : hero == rival ? 1 : 2;
+        }
+
+        /** El long de PokerHandEvaluator en un int con el mismo orden: categoría (≤ 8) y 25 bits de desempates. */
+        private static int compact(long score) {
+            return (int) ((score >>> 40) << 25 | (score & 0x1FFFFFF));
+        }
+    }
+}
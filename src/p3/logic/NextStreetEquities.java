@@ -0,0 +1,159 @@
+package p3.logic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import p3.model.Cards;
+import p3.model.Hand;
+
+/**
+ * Equities de la siguiente calle, calculadas por adelantado para cada board
+ * posible (SpeculativeEquityCalculator): las 47 cartas del turn desde el flop,
+ * las 46 del river desde el turn o los flops desde el preflop.
+ *
+ * Se va llenando mientras se calcula (segura entre hilos), así que puede estar
+ * incompleta: computed() de possible(). Desde el preflop no se llega a llenar
+ * (solo se calculan los flops más probables). Cada board se guarda por la máscara
+ * de sus cartas nuevas.
+ *
+ * Vista por carta: equity(card, name) es la media de los boards calculados que
+ * traen esa carta (en turn y river, el único); average(name) es la media de todos,
+ * que con la tabla completa es la equity actual. delta() es la diferencia: lo que
+ * esa carta ayuda (&gt; 0) o perjudica (&lt; 0) a cada jugador.
+ */
+public final class NextStreetEquities {
+
+    private final List<String> names;
+    private final List<Hand> hands;
+    private final List<String> board;
+    private final StoppingPolicy policy;
+    private final long deadMask;
+    private final int cardsPerBoard;
+    private final int possible;
+    private final Map<Long, EquityResult> results = new ConcurrentHashMap<>();
+
+    NextStreetEquities(List<String> names, List<Hand> hands, List<String> board, StoppingPolicy policy) {
+        this.names = List.copyOf(names);
+        this.hands = List.copyOf(hands);
+        this.board = List.copyOf(board);
+        this.policy = policy;
+        long dead = Cards.maskOf(board);
+        for (Hand h : hands) dead |= h.mask();
+        this.deadMask = dead;
+        this.cardsPerBoard = board.isEmpty() ? 3 : 1;
+        int unseen = Cards.COUNT - Long.bitCount(dead);
+        this.possible = cardsPerBoard == 3 ? unseen * (unseen - 1) * (unseen - 2) / 6 : unseen;
+    }
+
+    public List<String> names() { return names; }
+    public List<Hand> hands() { return hands; }
+
+    /** Board de partida (0, 3 o 4 cartas). */
+    public List<String> board() { return board; }
+
+    /** Política con la que se calculó cada board. */
+    public StoppingPolicy policy() { return policy; }
+
+    /** Cartas que añade cada board: 3 (flop) o 1 (turn, river). */
+    public int cardsPerBoard() { return cardsPerBoard; }
+
+    /** Máscara de cartas vistas (manos y board de partida). */
+    public long deadMask() { return deadMask; }
+
+    /** Nº de boards posibles en la siguiente calle. */
+    public int possible() { return possible; }
+
+    /** Nº de boards ya calculados. */
+    public int computed() { return results.size(); }
+
+    public boolean isComplete() { return results.size() == possible; }
+
+    /** ¿Es este el punto de partida de la consulta (mismos jugadores, manos y política)? */
+    public boolean matches(List<String> names, List<Hand> hands, List<String> board, StoppingPolicy policy) {
+        return this.names.equals(names) && this.hands.equals(hands)
+                && this.board.equals(board) && this.policy.equals(policy);
+    }
+
+    /**
+     * Resultado ya calculado para la consulta de la siguiente calle (board de partida
+     * más sus cartas nuevas, en cualquier orden), o null si no es de esta tabla o aún
+     * no se ha llegado a ese board.
+     */
+    public EquityResult lookup(List<String> names, List<Hand> hands, List<String> board, StoppingPolicy policy) {
+        if (board == null || board.size() != this.board.size() + cardsPerBoard) return null;
+        if (!matches(names, hands, board.subList(0, this.board.size()), policy)) return null;
+        return result(Cards.maskOf(board.subList(this.board.size(), board.size())));
+    }
+
+    /** Resultado del board con estas cartas nuevas (máscara), o null si no está. */
+    public EquityResult result(long nextCards) { return results.get(nextCards); }
+
+    void put(long nextCards, EquityResult r) { results.put(nextCards, r); }
+
+    /** Equity media (0..100) de 'name' en los boards calculados que traen 'card'; NaN si no hay. */
+    public double equity(String card, String name) {
+        long bit = 1L << Cards.parse(card);
+        double sum = 0;
+        int n = 0;
+        for (Map.Entry<Long, EquityResult> e : results.entrySet()) {
+            if ((e.getKey() & bit) == 0) continue;
+            sum += e.getValue().equity(name);
+            n++;
+        }
+        return n == 0 ? Double.NaN : sum / n;
+    }
+
+    /** Equity media de 'name' en todos los boards calculados; NaN si aún no hay ninguno. */
+    public double average(String name) {
+        double sum = 0;
+        for (EquityResult r : results.values()) sum += r.equity(name);
+        return results.isEmpty() ? Double.NaN : sum / results.size();
+    }
+
+    /** Cuánto sube (o baja) la equity de 'name' si sale 'card', respecto a la media. */
+    public double delta(String card, String name) {
+        return equity(card, name) - average(name);
+    }
+
+    /** Cartas sin ver con algún board calculado, en orden de id. */
+    public List<String> cards() {
+        long seen = 0;
+        for (Long m : results.keySet()) seen |= m;
+        List<String> out = new ArrayList<>();
+        for (int c = 0; c < Cards.COUNT; c++) if ((seen & (1L << c)) != 0) out.add(Cards.code(c));
+        return out;
+    }
+
+    /** Cartas que suben la equity de 'name', de más a menos. */
+    public List<String> helping(String name) {
+        return sortedByDelta(name, true);
+    }
+
+    /** Cartas que bajan la equity de 'name', de más a menos daño. */
+    public List<String> hurting(String name) {
+        return sortedByDelta(name, false);
+    }
+
+    private List<String> sortedByDelta(String name, boolean up) {
+        double avg = average(name);
+        Map<String, Double> deltas = new HashMap<>();
+        for (String c : cards()) {
+            double d = equity(c, name) - avg;
+            if (up ? d > 0 : d < 0) deltas.put(c, d);
+        }
+        List<String> out = new ArrayList<>(deltas.keySet());
+        Comparator<String> byDelta = Comparator.comparingDouble(deltas::get);
+        out.sort(up ? byDelta.reversed() : byDelta);
+        return Collections.unmodifiableList(out);
+    }
+
+    @Override public String toString() {
+        return String.format(Locale.ROOT, "NextStreetEquities{board=%s, %d/%d boards}", board, computed(), possible);
+    }
+}
@@ -0,0 +1,154 @@
+package p3.logic;
+
+import java.util.List;
+
+import p3.model.Cards;
+import p3.model.Hand;
+
+/**
+ * Outs del héroe en el flop o el turn contra el rango de cada rival.
+ *
+ * Se enumeran todas las cartas que pueden salir en la siguiente calle y, para cada
+ * una, todos los combos de cada rival (con su peso, sin los que chocan con el board,
+ * con el héroe o con esa carta). Una carta es out contra un combo si el héroe no va
+ * por delante ahora y sí después de esa carta (empatar no cuenta). La probabilidad de
+ * out de una carta contra un rival es el peso de los combos contra los que lo es entre
+ * el peso de los combos posibles con esa carta.
+ *
+ * Todo con el evaluador incremental: el estado del board se calcula una vez, el de
+ * cada combo rival una vez por combo, y por carta solo queda un addCard + score. Un
+ * rango completo en el flop son ~1000 combos x 47 cartas: menos de un milisegundo por
+ * rival, así que se puede recalcular con cada refresco de equities.
+ *
+ * Con varios rivales, "ir por delante de todos" se calcula por carta como el producto
+ * de las probabilidades contra cada uno: se tienen en cuenta las cartas del board, del
+ * héroe y la carta nueva, pero no las que se bloquean los rivales entre sí.
+ */
+public final class OutsCalculator {
+
+    /** Nº máximo de rivales (mesa de 6). */
+    public static final int MAX_RIVALS = 5;
+
+    /**
+     * Outs del héroe en la siguiente carta.
+     *
+     * @param hero   mano del héroe
+     * @param board  3 (flop) o 4 (turn) cartas
+     * @param rivals rango de cada rival (1..MAX_RIVALS); una mano conocida es CompiledRange.of(mano)
+     * @throws IllegalArgumentException si el board no es flop o turn, si hay cartas repetidas
+     *         o si algún rival no tiene ningún combo posible
+     */
+    public OutsResult calcularOuts(Hand hero, List<String> board, List<CompiledRange> rivals) {
+        if (board.size() != 3 && board.size() != 4)
+            throw new IllegalArgumentException("Los outs se calculan en el flop o en el turn: " + board);
+        if (rivals.isEmpty() || rivals.size() > MAX_RIVALS)
+            throw new IllegalArgumentException("Entre 1 y " + MAX_RIVALS + " rivales: " + rivals.size());
+
+        int[] boardIds = new int[board.size()];
+        for (int i = 0; i < boardIds.length; i++) boardIds[i] = Cards.parse(board.get(i));
+        long boardMask = Cards.maskOf(board);
+        long heroMask = hero.mask();
+        if (Long.bitCount(boardMask) != boardIds.length || (boardMask & heroMask) != 0)
+            throw new IllegalArgumentException("Cartas repetidas entre el héroe y el board");
+
+        // Héroe: valor ahora y con cada carta posible
+        int boardState = PokerHandEvaluator.stateOf(boardIds, 0, boardIds.length);
+        int heroState = PokerHandEvaluator.addCard(PokerHandEvaluator.addCard(boardState, hero.id1()), hero.id2());
+        long heroKnown = boardMask | heroMask;
+        long heroNow = PokerHandEvaluator.score(heroState, heroKnown);
+        long[] heroAfter = new long[Cards.COUNT];
+        for (int c = 0; c < Cards.COUNT; c++) {
+            if ((heroKnown & (1L << c)) != 0) continue;
+            heroAfter[c] = PokerHandEvaluator.score(PokerHandEvaluator.addCard(heroState, c), heroKnown | (1L << c));
+        }
+
+        int n = rivals.size();
+        double[][] aheadAfter = new double[n][Cards.COUNT];
+        double[][] aheadBoth = new double[n][Cards.COUNT];
+        double[] aheadNow = new double[n];
+        long possible = ~heroKnown & Cards.FULL_MASK;
+        for (int i = 0; i < n; i++) {
+            possible &= rival(i, rivals.get(i), boardMask, heroKnown, boardState, heroNow, heroAfter,
+                    aheadAfter[i], aheadBoth[i], aheadNow);
+        }
+
+        // Contra todos: producto por rival de "por delante después" y "por delante antes y después"
+        double[] all = new double[Cards.COUNT];
+        double[] allAhead = new double[Cards.COUNT];
+        double[][] perRival = new double[n][Cards.COUNT];
+        for (int c = 0; c < Cards.COUNT; c++) {
+            if ((possible & (1L << c)) == 0) {
+                all[c] = Double.NaN;
+                allAhead[c] = Double.NaN;
+                for (int i = 0; i < n; i++) perRival[i][c] = Double.NaN;
+                continue;
+            }
+            double after = 1.0, both = 1.0;
+            for (int i = 0; i < n; i++) {
+                after *= aheadAfter[i][c];
+                both *= aheadBoth[i][c];
+                perRival[i][c] = aheadAfter[i][c] - aheadBoth[i][c];
+            }
+            all[c] = after - both;
+            allAhead[c] = after;
+        }
+        double now = 1.0;
+        for (int i = 0; i < n; i++) now *= aheadNow[i];
+
+        return new OutsResult(hero, board, possible, all, allAhead, perRival, aheadNow, now);
+    }
+
+    /**
+     * Recorre los combos de un rival. Deja en aheadAfter[c] la probabilidad de que el
+     * héroe vaya por delante tras la carta c, en aheadBoth[c] la de ir por delante antes
+     * y después, y en aheadNow[i] la de ir por delante ahora. Devuelve la máscara de
+     * cartas posibles (las que deja al menos un combo del rival).
+     */
+    private static long rival(int i, CompiledRange range, long boardMask, long heroKnown, int boardState,
+                              long heroNow, long[] heroAfter,
+                              double[] aheadAfter, double[] aheadBoth, double[] aheadNow) {
+        CompiledRange r = range.removeBlockers(heroKnown);
+        if (r.isEmpty())
+            throw new IllegalArgumentException("El rival " + (i + 1) + " no tiene combos posibles con este board");
+
+        double total = r.totalWeight();
+        double ahead = 0;
+        double[] cardWeight = new double[Cards.COUNT];   // peso de los combos que usan cada carta
+        for (int j = 0; j < r.size(); j++) {
+            int k = r.combo(j);
+            double w = r.weight(j);
+            int a = Cards.comboHigh(k), b = Cards.comboLow(k);
+            cardWeight[a] += w;
+            cardWeight[b] += w;
+
+            int state = PokerHandEvaluator.addCard(PokerHandEvaluator.addCard(boardState, a), b);
+            long boardAndCombo = boardMask | Cards.comboMask(k);
+            long rivalNow = PokerHandEvaluator.score(state, boardAndCombo);
+            boolean wasAhead = heroNow > rivalNow;
+            if (wasAhead) ahead += w;
+
+            long free = ~(heroKnown | Cards.comboMask(k)) & Cards.FULL_MASK;
+            while (free != 0) {
+                int c = Long.numberOfTrailingZeros(free);
+                free &= free - 1;
+                long rivalAfter = PokerHandEvaluator.score(PokerHandEvaluator.addCard(state, c), boardAndCombo | (1L << c));
+                if (heroAfter[c] > rivalAfter) {
+                    aheadAfter[c] += w;
+                    if (wasAhead) aheadBoth[c] += w;
+                }
+            }
+        }
+
+        long possible = 0;
+        for (int c = 0; c < Cards.COUNT; c++) {
+            if ((heroKnown & (1L << c)) != 0) continue;
+            double live = total - cardWeight[c];
+            if (live <= 0) continue;            // todos sus combos usan esa carta
+            possible |= 1L << c;
+            aheadAfter[c] /= live;
+            aheadBoth[c] /= live;
+        }
+        aheadNow[i] = ahead / total;
+        return possible;
+    }
+}
@@ -0,0 +1,115 @@
+package p3.logic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import p3.model.Cards;
+import p3.model.Hand;
+
+/**
+ * Resultado de OutsCalculator: para cada carta que puede salir en la siguiente calle,
+ * la probabilidad (0..1) de que sea out para el héroe, contra todos los rivales y
+ * contra cada uno.
+ *
+ * Los arrays van por id de carta (0..51). Las cartas que no pueden salir (board,
+ * héroe, o cartas que tienen todos los combos de algún rival, como las de una mano
+ * conocida) valen NaN y no cuentan.
+ *
+ * averageOuts() es la suma de las probabilidades de out de todas las cartas: los outs
+ * "medios" contra el rango (con una mano conocida, los outs de toda la vida).
+ */
+public final class OutsResult {
+
+    private final Hand hero;
+    private final List<String> board;
+    private final long possible;
+    private final double[] outs;
+    private final double[] ahead;
+    private final double[][] rivalOuts;
+    private final double[] rivalAheadNow;
+    private final double aheadNow;
+
+    OutsResult(Hand hero, List<String> board, long possible, double[] outs, double[] ahead,
+               double[][] rivalOuts, double[] rivalAheadNow, double aheadNow) {
+        this.hero = hero;
+        this.board = Collections.unmodifiableList(new ArrayList<>(board));
+        this.possible = possible;
+        this.outs = outs;
+        this.ahead = ahead;
+        this.rivalOuts = rivalOuts;
+        this.rivalAheadNow = rivalAheadNow;
+        this.aheadNow = aheadNow;
+    }
+
+    public Hand hero() { return hero; }
+
+    /** Board con el que se calculó (3 o 4 cartas). */
+    public List<String> board() { return board; }
+
+    /** Nº de rivales. */
+    public int rivals() { return rivalOuts.length; }
+
+    /** Máscara de 52 bits con las cartas que pueden salir. */
+    public long possibleMask() { return possible; }
+
+    /** Nº de cartas que pueden salir. */
+    public int unseen() { return Long.bitCount(possible); }
+
+    /** Probabilidad (0..1) de que la carta (id) sea out contra todos los rivales; NaN si no puede salir. */
+    public double outProbability(int card) { return outs[card]; }
+
+    /** Probabilidad (0..1) de que la carta (id) sea out contra el rival i (0..rivals-1). */
+    public double outProbability(int rival, int card) { return rivalOuts[rival][card]; }
+
+    /** Probabilidad (0..1) de que el héroe vaya por delante de todos tras la carta (id). */
+    public double aheadProbability(int card) { return ahead[card]; }
+
+    /** Probabilidad (0..1) de que el héroe vaya ahora por delante de todos. */
+    public double aheadNow() { return aheadNow; }
+
+    /** Probabilidad (0..1) de que el héroe vaya ahora por delante del rival i. */
+    public double aheadNow(int rival) { return rivalAheadNow[rival]; }
+
+    /** Outs medios contra todos: suma de outProbability de las cartas que pueden salir. */
+    public double averageOuts() {
+        return sum(outs);
+    }
+
+    /** Outs medios contra el rival i. */
+    public double averageOuts(int rival) {
+        return sum(rivalOuts[rival]);
+    }
+
+    /** Probabilidad (0..1) de que la siguiente carta sea out: averageOuts / unseen. */
+    public double improveProbability() {
+        int n = unseen();
+        return n == 0 ? 0.0 : averageOuts() / n;
+    }
+
+    /** Cartas ("Ah", "7d"...) que son out contra todos con probabilidad &gt;= threshold. */
+    public List<String> outs(double threshold) {
+        List<String> out = new ArrayList<>();
+        for (int c = 0; c < Cards.COUNT; c++) {
+            if ((possible & (1L << c)) != 0 && outs[c] >= threshold) out.add(Cards.code(c));
+        }
+        return out;
+    }
+
+    /** Copia de la probabilidad de out de cada carta (52 valores, NaN si no puede salir). */
+    public double[] outProbabilities() { return outs.clone(); }
+
+    private double sum(double[] p) {
+        double s = 0;
+        for (int c = 0; c < Cards.COUNT; c++) {
+            if ((possible & (1L << c)) != 0) s += p[c];
+        }
+        return s;
+    }
+
+    @Override public String toString() {
+        return String.format(Locale.ROOT, "OutsResult{%s %s, outs=%.2f/%d, ahead=%.3f}",
+                hero, board, averageOuts(), unseen(), aheadNow);
+    }
+}
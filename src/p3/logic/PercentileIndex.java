@@ -0,0 +1,212 @@
+package p3.logic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import p3.model.Cards;
+import p3.model.Hand;
+
+/**
+ * Índice de percentiles de un ranking de las 169 manos iniciales, contado en combos.
+ *
+ * Un porcentaje es una fracción de las 1326 manos concretas, no de las 169 clases:
+ * una pareja pesa 6 combos, una suited 4 y una offsuit 12. Así "25%" son ~331
+ * combos, y no las 43 primeras clases (que pueden ser bastantes más o menos).
+ *
+ * Todo se precalcula al construirlo y después es inmutable:
+ *  - la posición de cada clase en el ranking y los combos acumulados antes de ella,
+ *    así percentileOf(mano) e isInTop(mano, %) son O(1) sin crear objetos;
+ *  - cuántas clases entran en cada porcentaje entero 0..100;
+ *  - el CompiledRange y la máscara [13][13][2] de cada porcentaje entero, que se
+ *    construyen la primera vez que se piden y se reutilizan.
+ *
+ * Una clase entra en el top p% si empieza antes de p, es decir, si los combos de
+ * las clases anteriores son menos que el p% de 1326 (la última clase puede pasarse
+ * un poco, como pasaba con el redondeo hacia arriba en las 169 clases).
+ *
+ * Índice de clase (0..168): la casilla [fila][col] de la matriz 13x13 con fila =
+ * valor mayor, col = valor menor para suited y al revés para offsuit (las parejas
+ * en la diagonal): clase = 13 * fila + col.
+ */
+public final class PercentileIndex {
+
+    /** Nº de clases de manos iniciales. */
+    public static final int CLASSES = 169;
+
+    private final String name;
+    private final String[] order;            // notaciones, de mejor a peor
+    private final int[] position;            // position[clase] = puesto 0..168 en el ranking
+    private final int[] combosBefore;        // combosBefore[puesto] = combos de los puestos anteriores
+    private final int[] classesInPercent;    // clases del top p%, p = 0..100
+
+    private final CompiledRange[] ranges = new CompiledRange[101];
+    private final boolean[][][][] masks = new boolean[101][][][];
+
+    /**
+     * @param name  nombre del ranking (el que se ve en la GUI)
+     * @param order las 169 clases ("AA", "AKs", "AKo"...) de mejor a peor, cada una una vez
+     */
+    public PercentileIndex(String name, List<String> order) {
+        if (order.size() != CLASSES)
+            throw new IllegalArgumentException("El ranking debe tener " + CLASSES + " manos: " + order.size());
+        this.name = name;
+        this.order = new String[CLASSES];
+        this.position = new int[CLASSES];
+        this.combosBefore = new int[CLASSES + 1];
+
+        boolean[] seen = new boolean[CLASSES];
+        for (int i = 0; i < CLASSES; i++) {
+            int k = classOf(order.get(i));
+            if (seen[k]) throw new IllegalArgumentException("Mano repetida en el ranking: " + order.get(i));
+            seen[k] = true;
+            this.order[i] = notation(k);
+            position[k] = i;
+            combosBefore[i + 1] = combosBefore[i] + combosOf(k);
+        }
+
+        // Clases del top p%: las que empiezan antes del p% de los combos
+        this.classesInPercent = new int[101];
+        int n = 0;
+        for (int p = 0; p <= 100; p++) {
+            while (n < CLASSES && 100L * combosBefore[n] < (long) p * Cards.COMBOS) n++;
+            classesInPercent[p] = n;
+        }
+    }
+
+    /** Nombre del ranking. */
+    public String name() { return name; }
+
+    /** Copia del ranking completo (169 notaciones, de mejor a peor). */
+    public List<String> ranking() {
+        List<String> out = new ArrayList<>(CLASSES);
+        Collections.addAll(out, order);
+        return out;
+    }
+
+    /** Puesto 0..168 de la mano en el ranking (0 = la mejor). */
+    public int rankOf(Hand hand) {
+        return position[classOf(hand.id1(), hand.id2())];
+    }
+
+    /**
+     * Percentil (0..100] de la mano: % de combos que hay desde la mejor clase hasta
+     * la suya incluida. Por ejemplo AA = 6/1326 = 0,45%. O(1).
+     */
+    public double percentileOf(Hand hand) {
+        return 100.0 * combosBefore[rankOf(hand) + 1] / Cards.COMBOS;
+    }
+
+    /** ¿Está la mano en el top 'percent' (0..100) del ranking? O(1). */
+    public boolean isInTop(Hand hand, double percent) {
+        return 100.0 * combosBefore[rankOf(hand)] < percent * Cards.COMBOS;
+    }
+
+    /** Nº de clases que entran en el top 'percent' (0..100). */
+    public int classesInTop(double percent) {
+        if (percent == Math.rint(percent) && percent >= 0 && percent <= 100)
+            return classesInPercent[(int) percent];
+        int n = 0;
+        while (n < CLASSES && 100.0 * combosBefore[n] < percent * Cards.COMBOS) n++;
+        return n;
+    }
+
+    /** Combos del top 'percent' (0..100), contados por clases enteras. */
+    public int combosInTop(double percent) {
+        return combosBefore[classesInTop(percent)];
+    }
+
+    /** Notaciones del top 'percent' (0..100), de mejor a peor. */
+    public List<String> top(double percent) {
+        int k = classesInTop(percent);
+        List<String> out = new ArrayList<>(k);
+        for (int i = 0; i < k; i++) out.add(order[i]);
+        return out;
+    }
+
+    /** Top 'percent' (entero 0..100) compilado; se construye una vez por porcentaje. */
+    public synchronized CompiledRange topRange(int percent) {
+        checkPercent(percent);
+        CompiledRange r = ranges[percent];
+        if (r == null) {
+            r = CompiledRange.of169(top(percent));
+            ranges[percent] = r;
+        }
+        return r;
+    }
+
+    /**
+     * Máscara [13][13][2] del top 'percent' (entero 0..100), con el formato de
+     * RankingProvider.getMaskForPercent. Se construye una vez por porcentaje y se
+     * comparte: no se debe modificar.
+     */
+    public synchronized boolean[][][] mask(int percent) {
+        checkPercent(percent);
+        boolean[][][] m = masks[percent];
+        if (m == null) {
+            m = new boolean[13][13][2];
+            for (int i = 0; i < classesInPercent[percent]; i++) {
+                int k = classOf(order[i]);
+                int row = k / 13, col = k % 13;
+                if (row == col) {
+                    m[row][col][0] = true;
+                    m[row][col][1] = true;
+                } else if (row > col) {
+                    m[row][col][1] = true;      // suited
+                } else {
+                    m[col][row][0] = true;      // offsuit, en [mayor][menor]
+                }
+            }
+            masks[percent] = m;
+        }
+        return m;
+    }
+
+    // ===== Clases =====
+
+    /** Clase 0..168 de la mano formada por las cartas c1 y c2 (ids). */
+    public static int classOf(int c1, int c2) {
+        int r1 = Cards.rank(c1), r2 = Cards.rank(c2);
+        int hi = Math.max(r1, r2), lo = Math.min(r1, r2);
+        return Cards.suit(c1) == Cards.suit(c2) ? 13 * hi + lo : 13 * lo + hi;
+    }
+
+    /** Clase 0..168 de una notación 169 ("AA", "AKs", "AKo"). */
+    public static int classOf(String notation) {
+        String n = notation.trim().toUpperCase(Locale.ROOT);
+        int r1 = n.length() >= 2 ? Cards.RANKS.indexOf(n.charAt(0)) : -1;
+        int r2 = n.length() >= 2 ? Cards.RANKS.indexOf(n.charAt(1)) : -1;
+        if (r1 < 0 || r2 < 0)
+            throw new IllegalArgumentException("Notación de mano inválida: " + notation);
+        int hi = Math.max(r1, r2), lo = Math.min(r1, r2);
+        if (hi == lo) {
+            if (n.length() != 2) throw new IllegalArgumentException("Una pareja no lleva s/o: " + notation);
+            return 13 * hi + lo;
+        }
+        if (n.length() != 3 || (n.charAt(2) != 'S' && n.charAt(2) != 'O'))
+            throw new IllegalArgumentException("Falta s/o en la mano: " + notation);
+        return n.charAt(2) == 'S' ? 13 * hi + lo : 13 * lo + hi;
+    }
+
+    /** Notación 169 de una clase ("AA", "AKs", "AKo"). */
+    public static String notation(int cls) {
+        int row = cls / 13, col = cls % 13;
+        if (row == col) return "" + Cards.RANKS.charAt(row) + Cards.RANKS.charAt(col);
+        int hi = Math.max(row, col), lo = Math.min(row, col);
+        return "" + Cards.RANKS.charAt(hi) + Cards.RANKS.charAt(lo) + (row > col ? "s" : "o");
+    }
+
+    /** Combos de una clase: pareja 6, suited 4, offsuit 12. */
+    public static int combosOf(int cls) {
+        int row = cls / 13, col = cls % 13;
+        return row == col ? 6 : row > col ? 4 : 12;
+    }
+
+    private static void checkPercent(int percent) {
+        if (percent < 0 || percent > 100)
+            throw new IllegalArgumentException("Porcentaje fuera de 0..100: " + percent);
+    }
+
+    @Override public String toString() { return "PercentileIndex{" + name + "}"; }
+}
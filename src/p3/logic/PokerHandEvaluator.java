@@ -1,16 +1,33 @@
 package p3.logic;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+
+import p3.model.Cards;
 
 /**
- * Evaluador claro y didáctico (como en la práctica anterior):
- * - De 7 cartas (2+5) genera todas las combinaciones de 5.
- * - Evalúa cada 5-cartas con reglas de poker (incluye ROYAL_FLUSH explícita).
- * - El mejor resultado se empaqueta en un long comparable (categoría + kickers).
+ * Evaluador de manos de 7 cartas por tablas (sin combinaciones ni objetos):
+ * - Las cartas llegan como ids 0..51 (ver {@link Cards}).
+ * - Los valores se recorren con una máquina de estados: cada estado es un
+ *   multiconjunto de valores (cuántos 2, cuántos 3, ...) y NEXT[estado + valor]
+ *   da el estado tras añadir una carta. El estado final ya trae precalculada
+ *   la mejor mano sin color.
+ * - Los colores se miran aparte con una máscara long (13 bits por palo): si un
+ *   palo tiene 5+ cartas, FLUSH_SCORE[bits de ese palo] da color o escalera de color.
+ *
+ * Con 7 cartas, si hay color no puede haber póker ni full, así que basta con
+ * una de las dos tablas. Evaluar son 7 lecturas de NEXT + 1 de la tabla final.
+ *
+ * Como el estado se construye carta a carta, también se puede evaluar de forma
+ * incremental: se precalcula el estado del board conocido (prefijo) una vez y
+ * luego solo se añaden las cartas que cambian (runout y cartas de cada jugador).
+ * Ver addCard / stateOf / score.
+ *
+ * El resultado es el mismo long comparable de siempre (categoría + kickers):
+ *  bits 40+  categoría
+ *  bits 0-24 hasta 5 desempates de 5 bits (el más significativo primero),
+ *            con valores 2..14 (A = 14; en la escalera A-2-3-4-5 el alto es 5).
  *
  * Categorías (de peor a mejor):
  *  0 HIGH_CARD
@@ -21,300 +38,268 @@ import java.util.Set;
  *  5 FLUSH
  *  6 FULL_HOUSE
  *  7 FOUR_OF_A_KIND
- *  8 STRAIGHT_FLUSH       (incluye ROYAL_FLUSH como caso especial alto)
- *
- * Nota: Tratamos ROYAL_FLUSH como STRAIGHT_FLUSH con high=14 (A),
- * y además lo detectamos explícitamente para claridad pedagógica.
+ *  8 STRAIGHT_FLUSH       (ROYAL_FLUSH es STRAIGHT_FLUSH con high=14)
  */
 public final class PokerHandEvaluator {
 
     private PokerHandEvaluator() {}
 
+    // ===== Categorías (mismo orden que el empaquetado) =====
+    private static final int HIGH_CARD = 0, ONE_PAIR = 1, TWO_PAIR = 2, THREE_OF_A_KIND = 3,
+            STRAIGHT = 4, FLUSH = 5, FULL_HOUSE = 6, FOUR_OF_A_KIND = 7, STRAIGHT_FLUSH = 8;
+
+    // ===== Tablas =====
+
+    // Transiciones de la máquina de estados de valores (solo estados con < 7 cartas).
+    // Los estados se guardan ya multiplicados por 13 (id*13) para ahorrar la
+    // multiplicación en cada paso. -1 = transición imposible (5ª carta del mismo valor).
+    private static final int[] NEXT;
+
+    // Mejor mano sin color de cada estado, por id (0 si tiene menos de 5 cartas).
+    private static final long[] RANK_SCORE;
+
+    // Mejor mano de un palo con esos bits (0 si hay menos de 5 cartas).
+    private static final long[] FLUSH_SCORE = new long[1 << 13];
+
+    static {
+        // --- 1) Enumerar estados por nº de cartas (primero los de 0 cartas, luego 1...) ---
+        // Clave de un estado: cuenta por valor en base 5 (cada cuenta 0..4).
+        int[] pow5 = new int[13];
+        pow5[0] = 1;
+        for (int r = 1; r < 13; r++) pow5[r] = pow5[r - 1] * 5;
+
+        Map<Integer, Integer> idOf = new HashMap<>();
+        int[] keys = new int[80_000];
+        int n = 0;
+        keys[n] = 0;
+        idOf.put(0, n++);
+
+        int levelStart = 0, levelEnd = 1;
+        for (int size = 0; size < 7; size++) {
+            for (int id = levelStart; id < levelEnd; id++) {
+                int key = keys[id];
+                for (int r = 0; r < 13; r++) {
+                    if ((key / pow5[r]) % 5 == 4) continue;
+                    int child = key + pow5[r];
+                    if (!idOf.containsKey(child)) {
+                        keys[n] = child;
+                        idOf.put(child, n++);
+                    }
+                }
+            }
+            levelStart = levelEnd;
+            levelEnd = n;
+        }
+        int openStates = levelStart; // estados con 0..6 cartas (los de 7 van al final)
+
+        // --- 2) Transiciones ---
+        NEXT = new int[openStates * 13];
+        for (int id = 0; id < openStates; id++) {
+            int key = keys[id];
+            for (int r = 0; r < 13; r++) {
+                NEXT[id * 13 + r] = ((key / pow5[r]) % 5 == 4) ? -1 : idOf.get(key + pow5[r]) * 13;
+            }
+        }
+
+        // --- 3) Mejor mano sin color por estado ---
+        RANK_SCORE = new long[n];
+        int[] cnt = new int[13];
+        for (int id = 0; id < n; id++) {
+            int key = keys[id], total = 0;
+            for (int r = 0; r < 13; r++) {
+                cnt[r] = (key / pow5[r]) % 5;
+                total += cnt[r];
+            }
+            if (total >= 5) RANK_SCORE[id] = scoreRanks(cnt);
+        }
+
+        // --- 4) Mejor mano de un solo palo ---
+        for (int bits = 0; bits < FLUSH_SCORE.length; bits++) {
+            if (Integer.bitCount(bits) >= 5) FLUSH_SCORE[bits] = scoreFlush(bits);
+        }
+    }
+
     // ===== API pública esperada por el resto del proyecto =====
 
     /** Evalúa mejor 5-cartas a partir de 2 de mano + board (5). */
     public static long evaluate7(String c1, String c2, List<String> board5) {
         if (board5 == null || board5.size() != 5)
             throw new IllegalArgumentException("Se esperan 5 cartas de board.");
-        String[] all = new String[]{ c1, c2, board5.get(0), board5.get(1), board5.get(2), board5.get(3), board5.get(4) };
-        return evaluate7(all);
+        return evaluate7(Cards.parse(c1), Cards.parse(c2),
+                Cards.parse(board5.get(0)), Cards.parse(board5.get(1)), Cards.parse(board5.get(2)),
+                Cards.parse(board5.get(3)), Cards.parse(board5.get(4)));
     }
 
     /** Evalúa mejor 5-cartas a partir de 7 códigos ("Ah","Kd",...). */
     public static long evaluate7(String... codes) {
         if (codes == null || codes.length != 7)
             throw new IllegalArgumentException("Se requieren exactamente 7 cartas.");
-
-        // Generar todas las 21 combinaciones de 5
-        Best best = null;
-        int n = 7;
-        int[] idx = {0,1,2,3,4}; // combinación inicial
-        while (true) {
-            // Construir la mano de 5 con los índices actuales
-            String[] five = new String[5];
-            for (int i = 0; i < 5; i++) five[i] = codes[idx[i]];
-
-            // Evaluar esta 5-cartas
-            HandResult r = evaluate5(five);
-
-            // Empaquetar a long comparable
-            long packed = pack(r);
-
-            // Actualizar mejor si corresponde
-            if (best == null || packed > best.packed) {
-                best = new Best(r, packed);
-            }
-
-            // Siguiente combinación (lexicográfica)
-            int p = 4;
-            while (p >= 0 && idx[p] == n - 5 + p) p--;
-            if (p < 0) break;
-            idx[p]++;
-            for (int j = p + 1; j < 5; j++) idx[j] = idx[j - 1] + 1;
-        }
-
-        return (best != null) ? best.packed : 0L;
+        return evaluate7(Cards.parse(codes[0]), Cards.parse(codes[1]), Cards.parse(codes[2]),
+                Cards.parse(codes[3]), Cards.parse(codes[4]), Cards.parse(codes[5]), Cards.parse(codes[6]));
     }
 
-    // ===== Representación clara del resultado de 5 cartas =====
-
-    // Orden creciente (HIGH_CARD = 0 ... STRAIGHT_FLUSH = 8)
-    private enum Category {
-        HIGH_CARD, ONE_PAIR, TWO_PAIR, THREE_OF_A_KIND,
-        STRAIGHT, FLUSH, FULL_HOUSE, FOUR_OF_A_KIND, STRAIGHT_FLUSH
+    /**
+     * Evalúa 7 cartas dadas como ids 0..51 (todas distintas).
+     * No reserva memoria: 7 transiciones + una lectura de tabla.
+     */
+    public static long evaluate7(int c1, int c2, int c3, int c4, int c5, int c6, int c7) {
+        int s = NEXT[Cards.rank(c1)];
+        s = NEXT[s + Cards.rank(c2)];
+        s = NEXT[s + Cards.rank(c3)];
+        s = NEXT[s + Cards.rank(c4)];
+        s = NEXT[s + Cards.rank(c5)];
+        s = NEXT[s + Cards.rank(c6)];
+        s = NEXT[s + Cards.rank(c7)];
+        long mask = (1L << c1) | (1L << c2) | (1L << c3) | (1L << c4)
+                  | (1L << c5) | (1L << c6) | (1L << c7);
+        return score(s, mask);
     }
 
-    private static final class HandResult {
-        final Category category;
-        final int[]    tie;         // Desempates (valores numéricos altos primero)
-        final boolean  royalFlush;  // para info/claridad (no afecta al empaquetado)
-
-        HandResult(Category c, int[] tie, boolean royal) {
-            this.category = c;
-            this.tie = tie;
-            this.royalFlush = royal;
-        }
+    // ===== Evaluación incremental =====
+    //
+    // Un conjunto parcial de cartas se representa con dos primitivos:
+    //  - state: estado de valores (empieza en EMPTY_STATE y crece con addCard)
+    //  - mask:  máscara de 52 bits con las mismas cartas (para los colores)
+    // Ejemplo (flop conocido, turn/river y manos variables):
+    //   int pre = stateOf(flop, 0, 3);          long preMask = ...;   // una vez
+    //   int s   = addCard(addCard(pre, turn), river);                  // por runout
+    //   long v  = score(addCard(addCard(s, h1), h2), mask | bits);     // por jugador
+
+    /** Estado de valores sin ninguna carta. */
+    public static final int EMPTY_STATE = 0;
+
+    /** Estado tras añadir una carta (id 0..51). Máximo 7 cartas por estado. */
+    public static int addCard(int state, int card) {
+        return NEXT[state + Cards.rank(card)];
     }
 
-    private static final class Best {
-        final HandResult result;
-        final long packed;
-        Best(HandResult r, long p) { this.result = r; this.packed = p; }
+    /** Estado de las cartas cards[from..to). */
+    public static int stateOf(int[] cards, int from, int to) {
+        int s = EMPTY_STATE;
+        for (int i = from; i < to; i++) s = NEXT[s + Cards.rank(cards[i])];
+        return s;
     }
 
-    // ===== Evaluación de 5 cartas (estilo práctica 1) =====
-
-    private static HandResult evaluate5(String[] codes5) {
-        // Parse a listas de valores (2..14) y palos ('h','d','c','s')
-        int[] vals = new int[5];
-        char[] suits = new char[5];
-        for (int i = 0; i < 5; i++) {
-            vals[i]  = toValue(codes5[i].charAt(0));        // A,K,Q,J,T,9..2 → 14..2
-            suits[i] = Character.toLowerCase(codes5[i].charAt(1));
-        }
-
-        // Ordena por valor ascendente para facilitar checks
-        sortByValueAsc(vals, suits);
-
-        boolean flush = esColor(suits);
-        boolean straight = esEscalera(vals);        // soporta A-2-3-4-5
-        boolean straightFlush = false;
-        boolean royal = false;
-
-        if (flush) {
-            // Para straight-flush se comprueba escalera sobre los valores dentro del mismo palo.
-            // Como tenemos solo 5 cartas, "flush && straight" implica straight-flush.
-            straightFlush = straight;
-            royal = straightFlush && esEscaleraReal(vals) && mismoPalo(suits);
-        }
-
-        // Conteos por valor para detectar parejas/tríos/póker, etc.
-        // freq[v] con v en 2..14
-        int[] freq = new int[15];
-        for (int v : vals) freq[v]++;
-
-        // Detecciones por conteo
-        int four = -1, three = -1;
-        List<Integer> pairs = new ArrayList<>();
-
-        for (int v = 14; v >= 2; v--) {
-            if (freq[v] == 4) four = v;
-            else if (freq[v] == 3) three = v;
-            else if (freq[v] == 2) pairs.add(v);
-        }
-
-        // 1) Royal Flush
-        if (royal) {
-            // lo tratamos como STRAIGHT_FLUSH con high = 14
-            return new HandResult(Category.STRAIGHT_FLUSH, new int[]{14}, true);
+    /**
+     * Valor de un conjunto de 5 a 7 cartas dado por su estado de valores y su máscara.
+     * Color si algún palo tiene 5+ cartas; si no, la tabla de valores.
+     */
+    public static long score(int state, long mask) {
+        for (int suit = 0; suit < 4; suit++) {
+            int bits = (int) (mask >>> (13 * suit)) & 0x1FFF;
+            if (Integer.bitCount(bits) >= 5) return FLUSH_SCORE[bits];
         }
+        return RANK_SCORE[state / 13];
+    }
 
-        // 2) Straight Flush
-        if (straightFlush) {
-            int high = highOfStraight(vals);
-            return new HandResult(Category.STRAIGHT_FLUSH, new int[]{high}, false);
-        }
+    /**
+     * Valor de 5 a 7 cartas sin mirar los colores: igual que score(state, mask)
+     * cuando se sabe que ningún palo llega a 5 cartas.
+     */
+    public static long rankScore(int state) {
+        return RANK_SCORE[state / 13];
+    }
 
-        // 3) Four of a Kind
-        if (four != -1) {
-            int kicker = highestExcluding(freq, four);
-            return new HandResult(Category.FOUR_OF_A_KIND, new int[]{four, kicker}, false);
-        }
+    // ===== Construcción de tablas (solo se usa al cargar la clase) =====
 
-        // 4) Full House
-        if (three != -1 && !pairs.isEmpty()) {
-            int pair = pairs.get(0); // ya viene en orden descendente
-            return new HandResult(Category.FULL_HOUSE, new int[]{three, pair}, false);
-        }
+    /** Mejor mano sin color a partir de las cuentas por valor (índice 0..12 = 2..A). */
+    private static long scoreRanks(int[] cnt) {
+        int present = 0;
+        for (int r = 0; r < 13; r++) if (cnt[r] > 0) present |= 1 << r;
 
-        // 5) Flush
-        if (flush) {
-            int[] top5 = topDesc(vals, 5);
-            return new HandResult(Category.FLUSH, top5, false);
+        int four = highestWithCount(cnt, 4, -1, -1);
+        if (four >= 0) {
+            return pack(FOUR_OF_A_KIND, v(four), v(highestPresent(present, four, -1, -1)));
         }
 
-        // 6) Straight
-        if (straight) {
-            int high = highOfStraight(vals);
-            return new HandResult(Category.STRAIGHT, new int[]{high}, false);
+        int three = highestWithCount(cnt, 3, -1, -1);
+        if (three >= 0) {
+            int pair = highestWithCount(cnt, 2, three, -1);
+            if (pair >= 0) return pack(FULL_HOUSE, v(three), v(pair));
         }
 
-        // 7) Three of a Kind
-        if (three != -1) {
-            int k1 = highestExcluding(freq, three);
-            int k2 = highestExcluding(freq, three, k1);
-            return new HandResult(Category.THREE_OF_A_KIND, new int[]{three, k1, k2}, false);
-        }
+        int straightHigh = straightHigh(present);
+        if (straightHigh > 0) return pack(STRAIGHT, straightHigh);
 
-        // 8) Two Pair
-        if (pairs.size() >= 2) {
-            int p1 = pairs.get(0), p2 = pairs.get(1);
-            int kicker = highestExcluding(freq, p1, p2);
-            return new HandResult(Category.TWO_PAIR, new int[]{p1, p2, kicker}, false);
+        if (three >= 0) {
+            int k1 = highestPresent(present, three, -1, -1);
+            int k2 = highestPresent(present, three, k1, -1);
+            return pack(THREE_OF_A_KIND, v(three), v(k1), v(k2));
         }
 
-        // 9) One Pair
-        if (pairs.size() == 1) {
-            int p = pairs.get(0);
-            int k1 = highestExcluding(freq, p);
-            int k2 = highestExcluding(freq, p, k1);
-            int k3 = highestExcluding(freq, p, k1, k2);
-            return new HandResult(Category.ONE_PAIR, new int[]{p, k1, k2, k3}, false);
+        int p1 = highestWithCount(cnt, 2, -1, -1);
+        if (p1 >= 0) {
+            int p2 = highestWithCount(cnt, 2, p1, -1);
+            if (p2 >= 0) {
+                return pack(TWO_PAIR, v(p1), v(p2), v(highestPresent(present, p1, p2, -1)));
+            }
+            int k1 = highestPresent(present, p1, -1, -1);
+            int k2 = highestPresent(present, p1, k1, -1);
+            int k3 = highestPresent(present, p1, k1, k2);
+            return pack(ONE_PAIR, v(p1), v(k1), v(k2), v(k3));
         }
 
-        // 10) High Card
-        int[] highs = topDesc(vals, 5);
-        return new HandResult(Category.HIGH_CARD, highs, false);
+        return packTop5(HIGH_CARD, present);
     }
 
-    // ===== Empaquetado a long comparable (categoría + kickers) =====
-
-    private static long pack(HandResult r) {
-        long v = ((long) r.category.ordinal()) << 40;
-        final int MAX = 5; // hasta 5 componentes de desempate
-        for (int i = 0; i < MAX; i++) {
-            int x = (i < r.tie.length) ? r.tie[i] : 0;
-            int shift = (MAX - 1 - i) * 5;   // <<— ¡clave! el más alto, más significativo
-            v |= ((long) (x & 0x1F)) << shift;
-        }
-        return v;
+    /** Mejor mano con 5+ cartas del mismo palo (bits = valores presentes). */
+    private static long scoreFlush(int bits) {
+        int straightHigh = straightHigh(bits);
+        if (straightHigh > 0) return pack(STRAIGHT_FLUSH, straightHigh);
+        return packTop5(FLUSH, bits);
     }
 
-
-    // ===== Utilidades de evaluación claras =====
-
-    /** ‘A’,’K’,’Q’,’J’,’T’,’9’..’2’ → 14..2 */
-    private static int toValue(char r) {
-        switch (Character.toUpperCase(r)) {
-            case 'A': return 14;
-            case 'K': return 13;
-            case 'Q': return 12;
-            case 'J': return 11;
-            case 'T': return 10;
-            default:
-                int v = Character.getNumericValue(r);
-                if (v < 2 || v > 9) throw new IllegalArgumentException("Valor de carta inválido: " + r);
-                return v;
+    /** Alto (5..14) de la mejor escalera en los bits, o 0 si no hay. A-2-3-4-5 devuelve 5. */
+    private static int straightHigh(int bits) {
+        for (int top = 12; top >= 4; top--) {
+            int run = 0x1F << (top - 4);
+            if ((bits & run) == run) return v(top);
         }
+        int wheel = (1 << 12) | 0xF; // A,2,3,4,5
+        return ((bits & wheel) == wheel) ? 5 : 0;
     }
 
-    private static void sortByValueAsc(int[] vals, char[] suits) {
-        // burbujeo simple por claridad (5 elementos)
-        for (int i = 0; i < 5; i++) {
-            for (int j = 0; j < 4; j++) {
-                if (vals[j] > vals[j+1]) {
-                    int tv = vals[j]; vals[j] = vals[j+1]; vals[j+1] = tv;
-                    char ts = suits[j]; suits[j] = suits[j+1]; suits[j+1] = ts;
-                }
-            }
+    /** Valor más alto con al menos 'min' cartas, distinto de ex1/ex2 (-1 si no hay). */
+    private static int highestWithCount(int[] cnt, int min, int ex1, int ex2) {
+        for (int r = 12; r >= 0; r--) {
+            if (r != ex1 && r != ex2 && cnt[r] >= min) return r;
         }
+        return -1;
     }
 
-    private static boolean mismoPalo(char[] suits) {
-        char p = suits[0];
-        for (int i = 1; i < suits.length; i++) if (suits[i] != p) return false;
-        return true;
-    }
-
-    private static boolean esColor(char[] suits) {
-        return mismoPalo(suits);
-    }
-
-    /** ¿Son 5 consecutivas? Soporta A-bajo (A=14 considerado como 1). */
-    private static boolean esEscalera(int[] valsAsc) {
-        // Intento normal A-alto
-        boolean ok = true;
-        for (int i = 1; i < 5; i++) {
-            if (valsAsc[i] != valsAsc[i-1] + 1) { ok = false; break; }
-        }
-        if (ok) return true;
-
-        // Caso especial A-2-3-4-5: mapea A(14)→1 y re-prueba
-        boolean tieneAs = false;
-        for (int v : valsAsc) if (v == 14) { tieneAs = true; break; }
-        if (!tieneAs) return false;
-
-        int[] alt = valsAsc.clone();
-        for (int i = 0; i < 5; i++) if (alt[i] == 14) alt[i] = 1;
-        Arrays.sort(alt);
-        for (int i = 1; i < 5; i++) {
-            if (alt[i] != alt[i-1] + 1) return false;
+    /** Valor presente más alto distinto de ex1/ex2/ex3 (-1 si no hay). */
+    private static int highestPresent(int present, int ex1, int ex2, int ex3) {
+        for (int r = 12; r >= 0; r--) {
+            if (r != ex1 && r != ex2 && r != ex3 && (present & (1 << r)) != 0) return r;
         }
-        return true;
+        return -1;
     }
 
-    /** Alto de la escalera (5..A). Para A-2-3-4-5 devuelve 5. */
-    private static int highOfStraight(int[] valsAsc) {
-        if (valsAsc[4] == 14 && valsAsc[0] == 2
-                && valsAsc[1] == 3 && valsAsc[2] == 4 && valsAsc[3] == 5) {
-            return 5; // wheel
-        }
-        return valsAsc[4];
+    /** Índice 0..12 → valor 2..14 (-1 se queda como 0, "sin desempate"). */
+    private static int v(int rank) {
+        return rank < 0 ? 0 : rank + 2;
     }
 
-    /** Escalera real = 10,J,Q,K,A (da igual el orden siempre que sean consecutivas) */
-    private static boolean esEscaleraReal(int[] valsAsc) {
-        int[] target = {10,11,12,13,14};
-        for (int i = 0; i < 5; i++) if (valsAsc[i] != target[i]) return false;
-        return true;
+    /** Empaqueta los 5 valores más altos de 'bits'. */
+    private static long packTop5(int category, int bits) {
+        int[] top = new int[5];
+        int k = 0;
+        for (int r = 12; r >= 0 && k < 5; r--) {
+            if ((bits & (1 << r)) != 0) top[k++] = v(r);
+        }
+        return pack(category, top);
     }
 
-    /** Máximo valor disponible que NO esté en ‘ex’ y con freq>0 (de mayor a menor). */
-    private static int highestExcluding(int[] freq, int... ex) {
-        Set<Integer> e = new HashSet<>();
-        for (int x : ex) e.add(x);
-        for (int v = 14; v >= 2; v--) if (!e.contains(v) && freq[v] > 0) return v;
-        return 0;
-    }
+    // ===== Empaquetado a long comparable (categoría + kickers) =====
 
-    /** Devuelve los ‘n’ valores más altos en orden descendente (sin duplicar). */
-    private static int[] topDesc(int[] valsAsc, int n) {
-        // Copiamos a descendente
-        int[] out = new int[Math.min(n, 5)];
-        int k = 0;
-        for (int i = valsAsc.length - 1; i >= 0 && k < out.length; i--) {
-            out[k++] = valsAsc[i];
+    private static long pack(int category, int... tie) {
+        long v = ((long) category) << 40;
+        final int MAX = 5; // hasta 5 componentes de desempate
+        for (int i = 0; i < MAX; i++) {
+            int x = (i < tie.length) ? tie[i] : 0;
+            int shift = (MAX - 1 - i) * 5;   // el más alto, más significativo
+            v |= ((long) (x & 0x1F)) << shift;
         }
-        return out;
+        return v;
     }
 }
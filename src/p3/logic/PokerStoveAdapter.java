@@ -1,85 +1,66 @@
 package p3.logic;
 
-import java.io.BufferedReader;
-import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CancellationException;
 
+/**
+ * Equity con el evaluador externo ps-eval si está configurado (PsEvalPool, procesos
+ * siempre abiertos) y, si no está, está saturado o falla, con el motor de la JVM.
+ */
 public class PokerStoveAdapter {
 
-    private static final String PS_EVAL =
-        "C:\\pokerstove\\build\\bin\\Release\\ps-eval.exe"; // ajusta si cambias de sitio
+    // Respaldo en la JVM: enumeración exacta cuando se puede, si no Monte Carlo
+    private static final EquityCalculator FALLBACK = new ExhaustiveEquityCalculator();
 
-    // hands: lista de "AhAd", "KcKd", ... ; board: ["Qs","Jd","2c"] (0..5)
-    public static Map<String, Double> tryPsEval(
-            List<String> names, List<String> hands, List<String> board) throws IOException, InterruptedException {
-
-        // 1) Monta la línea según la ayuda de tu ps-eval
-        //    (ajusta si tu --help indica flags distintos)
-        String playersArg = String.join(":", hands);
-        String boardArg = String.join("", board);
-
-        List<String> cmd = new ArrayList<>();
-        cmd.add(PS_EVAL);
-        cmd.add(playersArg);
-        if (!board.isEmpty()) {
-            cmd.add("--board");
-            cmd.add(boardArg);
-        }
-
-        ProcessBuilder pb = new ProcessBuilder(cmd);
-        pb.redirectErrorStream(true);
-        Process p = pb.start();
-
-        String out;
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
-            StringBuilder sb = new StringBuilder();
-            String line; while ((line = br.readLine()) != null) sb.append(line).append('\n');
-            out = sb.toString();
-        }
-        int code = p.waitFor();
-        if (code != 0) throw new IOException("ps-eval exit code " + code + "\n" + out);
-
-        // 2) Parseo flexible de porcentajes (captura 0–100 con decimales y %)
-        //    Ajusta el patrón si tu salida tiene otro formato.
-        Pattern pct = Pattern.compile("([0-9]+(?:\\.[0-9]+)?)\\s*%");
-        Matcher m = pct.matcher(out);
-        List<Double> perc = new ArrayList<>();
-        while (m.find()) perc.add(Double.parseDouble(m.group(1)));
-
-        if (perc.size() != names.size())
-            throw new IOException("No pude mapear salida a jugadores.\nSalida:\n" + out);
+    /** Envoltorio con fallback a la enumeración exacta / Monte Carlo si ps-eval falla */
+    public static Map<String, Double> computeEquityWithFallback(
+            List<String> names, List<p3.model.Hand> hands, List<String> board,
+            int trials, long seed) {
+        Map<String, Double> ps = psEvalOrNull(names, hands, board);
+        if (ps != null) return ps;
+        // Fallback: exacto si hay pocos runouts, si no Monte Carlo
+        return FALLBACK.calcularEquity(names, hands, board, trials, seed);
+    }
 
-        Map<String, Double> res = new LinkedHashMap<>();
-        for (int i = 0; i < names.size(); i++) res.put(names.get(i), perc.get(i));
-        return res;
+    /** Igual, pero el Monte Carlo de respaldo para según 'policy'. ps-eval es exacto. */
+    public static EquityResult computeEquityWithFallback(
+            List<String> names, List<p3.model.Hand> hands, List<String> board,
+            StoppingPolicy policy, long seed) {
+        Map<String, Double> ps = psEvalOrNull(names, hands, board);
+        if (ps != null) return EquityResult.exact(ps, 0);
+        return FALLBACK.calcularEquity(names, hands, board, policy, seed);
     }
 
-    /** Envoltorio con fallback a tu RealEquityCalculator si ps-eval falla */
-    public static Map<String, Double> computeEquityWithFallback(
+    /** Igual, con instantáneas del Monte Carlo de respaldo (ps-eval no las da). */
+    public static EquityResult computeEquityWithFallback(
             List<String> names, List<p3.model.Hand> hands, List<String> board,
-            int trials, long seed) {
+            StoppingPolicy policy, long seed, EquityListener listener) {
+        Map<String, Double> ps = psEvalOrNull(names, hands, board);
+        if (ps != null) return EquityResult.exact(ps, 0);
+        return FALLBACK.calcularEquity(names, hands, board, policy, seed, listener);
+    }
+
+    /** Resultado de ps-eval, o null si no hay pool, hay manos desconocidas, está saturado o falla. */
+    private static Map<String, Double> psEvalOrNull(
+            List<String> names, List<p3.model.Hand> hands, List<String> board) {
 
         // convierto manos a "AhAd" etc. para ps-eval; si alguna es null, mejor Monte Carlo
-        boolean anyUnknown = hands.stream().anyMatch(Objects::isNull);
-        if (!anyUnknown && new File(PS_EVAL).exists()) {
-            try {
-                List<String> handStr = new ArrayList<>();
-                for (p3.model.Hand h : hands) handStr.add(h.card1() + h.card2());
-                return tryPsEval(names, handStr, board == null ? List.of() : board);
-            } catch (Exception ignored) {
-                // cae a MC
-            }
+        PsEvalPool pool = PsEvalPool.getDefault();
+        if (pool == null || hands.stream().anyMatch(Objects::isNull)) return null;
+        try {
+            List<String> handStr = new ArrayList<>();
+            for (p3.model.Hand h : hands) handStr.add(h.card1() + h.card2());
+            return pool.evaluate(names, handStr, board == null ? List.of() : board);
+        } catch (InterruptedException e) {
+            // Cancelado: nada de caer a MC
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Cálculo cancelado");
+        } catch (IOException e) {
+            return null;    // cae a la JVM
         }
-        // Fallback Monte Carlo (tu clase actual)
-        return new RealEquityCalculator().calcularEquity(names, hands, board, trials, seed);
     }
 }
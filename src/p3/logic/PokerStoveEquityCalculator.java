@@ -11,4 +11,17 @@ public class PokerStoveEquityCalculator implements EquityCalculator {
         List<String> names, List<Hand> hands, List<String> board, int trials, long seed) {
         return PokerStoveAdapter.computeEquityWithFallback(names, hands, board, trials, seed);
     }
+
+    @Override
+    public EquityResult calcularEquity(
+        List<String> names, List<Hand> hands, List<String> board, StoppingPolicy policy, long seed) {
+        return PokerStoveAdapter.computeEquityWithFallback(names, hands, board, policy, seed);
+    }
+
+    @Override
+    public EquityResult calcularEquity(
+        List<String> names, List<Hand> hands, List<String> board, StoppingPolicy policy, long seed,
+        EquityListener listener) {
+        return PokerStoveAdapter.computeEquityWithFallback(names, hands, board, policy, seed, listener);
+    }
 }
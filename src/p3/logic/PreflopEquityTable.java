@@ -0,0 +1,148 @@
+package p3.logic;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import p3.model.Cards;
+import p3.model.Hand;
+
+/**
+ * Tabla precalculada de equity preflop heads-up (mano concreta contra mano concreta).
+ *
+ * El fichero lo genera PreflopTableGenerator (una sola vez, no al arrancar) y aquí
+ * solo se mapea en memoria con FileChannel.map en modo solo lectura: no se copia al
+ * heap, las páginas se cargan al consultarlas y el sistema operativo las comparte
+ * entre todos los procesos que abren el mismo fichero.
+ *
+ * Formato (big-endian):
+ *   int MAGIC, int VERSION, int COMBOS (1326), int RUNOUTS (C(48,5) = 1.712.304),
+ *   y después un int por cada par de combos {a, b} con a &lt; b (triángulo superior,
+ *   878.475 valores): las "medias victorias" de a contra b sumadas en todos los
+ *   runouts (ganar = 2, empatar = 1). Equity(a) = 100 * valor / (2 * RUNOUTS),
+ *   exactamente lo mismo que da ExhaustiveEquityCalculator. Los pares que comparten
+ *   carta guardan -1.
+ *
+ * Las medias victorias de b contra a son 2 * RUNOUTS menos las de a contra b,
+ * por eso basta la mitad.
+ */
+public final class PreflopEquityTable {
+
+    /** Propiedad del sistema con la ruta del fichero (si no, se busca DEFAULT_FILE). */
+    public static final String PATH_PROPERTY = "p3.preflopTable";
+
+    /** Nombre por defecto del fichero (en resources/ o en el classpath). */
+    public static final String DEFAULT_FILE = "preflop_hu.bin";
+
+    static final int MAGIC = 0x50464855; // "PFHU"
+    static final int VERSION = 1;
+    static final int COMBOS = Cards.COMBOS;
+    static final int RUNOUTS = 1_712_304;
+    static final int HEADER_INTS = 4;
+    static final int ENTRIES = COMBOS * (COMBOS - 1) / 2;
+
+    // Sin tabla (no existe el fichero o no es válido): se recuerda para no reintentar
+    private static final PreflopEquityTable MISSING = new PreflopEquityTable(null);
+    private static volatile PreflopEquityTable defaultTable;
+
+    private final IntBuffer data;
+
+    private PreflopEquityTable(IntBuffer data) {
+        this.data = data;
+    }
+
+    /**
+     * Tabla por defecto, o null si no hay fichero. Se busca (una sola vez) en:
+     * la propiedad p3.preflopTable, resources/preflop_hu.bin y el classpath.
+     */
+    public static PreflopEquityTable getDefault() {
+        PreflopEquityTable t = defaultTable;
+        if (t == null) {
+            synchronized (PreflopEquityTable.class) {
+                t = defaultTable;
+                if (t == null) {
+                    t = MISSING;
+                    Path p = findDefaultFile();
+                    if (p != null) {
+                        try {
+                            t = load(p);
+                        } catch (IOException | IllegalArgumentException ignored) {
+                            // sin tabla: se calcula como siempre
+                        }
+                    }
+                    defaultTable = t;
+                }
+            }
+        }
+        return t == MISSING ? null : t;
+    }
+
+    /** Mapea el fichero en memoria (solo lectura) y comprueba la cabecera. */
+    public static PreflopEquityTable load(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long expected = 4L * (HEADER_INTS + ENTRIES);
+            if (ch.size() != expected)
+                throw new IllegalArgumentException("Tamaño de tabla preflop inválido: " + ch.size());
+            // El mapeo sigue siendo válido después de cerrar el canal
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, expected);
+            IntBuffer ints = buf.order(ByteOrder.BIG_ENDIAN).asIntBuffer();
+            if (ints.get(0) != MAGIC || ints.get(1) != VERSION || ints.get(2) != COMBOS || ints.get(3) != RUNOUTS)
+                throw new IllegalArgumentException("Cabecera de tabla preflop inválida: " + file);
+            return new PreflopEquityTable(ints);
+        }
+    }
+
+    /**
+     * Equity (0..100) de 'hero' contra 'villain' preflop, o NaN si comparten carta.
+     * O(1): dos índices de combo y una lectura.
+     */
+    public double equity(Hand hero, Hand villain) {
+        int a = comboIndex(hero.id1(), hero.id2());
+        int b = comboIndex(villain.id1(), villain.id2());
+        if (a == b) return Double.NaN;
+        int v = data.get(HEADER_INTS + entryIndex(Math.min(a, b), Math.max(a, b)));
+        if (v < 0) return Double.NaN;
+        // Medias victorias del héroe: las del otro lado del par son el complemento
+        int u = a < b ? v : 2 * RUNOUTS - v;
+        return 100.0 * u / (2.0 * RUNOUTS);
+    }
+
+    /** Índice 0..1325 de un combo (dos ids distintos, en cualquier orden); ver Cards.combo. */
+    public static int comboIndex(int c1, int c2) {
+        return Cards.combo(c1, c2);
+    }
+
+    /** Posición del par (a, b), a &lt; b, dentro del triángulo. */
+    static int entryIndex(int a, int b) {
+        return a * (2 * COMBOS - a - 1) / 2 + (b - a - 1);
+    }
+
+    private static Path findDefaultFile() {
+        String prop = System.getProperty(PATH_PROPERTY);
+        if (prop != null && !prop.isBlank()) {
+            Path p = Paths.get(prop);
+            return Files.isRegularFile(p) ? p : null;
+        }
+        Path p = Paths.get("resources", DEFAULT_FILE);
+        if (Files.isRegularFile(p)) return p;
+
+        // Copiado junto a las clases (como las imágenes de cartas): solo sirve si es un fichero real
+        URL url = PreflopEquityTable.class.getResource("/" + DEFAULT_FILE);
+        if (url != null && "file".equals(url.getProtocol())) {
+            try {
+                return Paths.get(url.toURI());
+            } catch (URISyntaxException ignored) {
+                return null;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,73 @@
+package p3.logic;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import p3.model.Hand;
+
+/**
+ * Decorador que responde los preflop heads-up con las dos manos conocidas desde
+ * PreflopEquityTable (O(1), exacto) y delega todo lo demás.
+ *
+ * Si no hay fichero de tabla, delega siempre: el programa funciona igual, solo
+ * que el preflop heads-up se vuelve a calcular.
+ */
+public class PreflopTableEquityCalculator implements EquityCalculator {
+
+    private final EquityCalculator delegate;
+    private final PreflopEquityTable table;
+
+    /** Con la tabla por defecto (PreflopEquityTable.getDefault(), puede no haber). */
+    public PreflopTableEquityCalculator(EquityCalculator delegate) {
+        this(delegate, PreflopEquityTable.getDefault());
+    }
+
+    /** @param table tabla a usar (null = delegar siempre) */
+    public PreflopTableEquityCalculator(EquityCalculator delegate, PreflopEquityTable table) {
+        if (delegate == null) throw new IllegalArgumentException("delegate no puede ser null");
+        this.delegate = delegate;
+        this.table = table;
+    }
+
+    @Override
+    public Map<String, Double> calcularEquity(
+            List<String> names, List<Hand> hands, List<String> board, int trials, long seed) {
+        Map<String, Double> eq = lookup(names, hands, board);
+        return eq != null ? eq : delegate.calcularEquity(names, hands, board, trials, seed);
+    }
+
+    @Override
+    public EquityResult calcularEquity(
+            List<String> names, List<Hand> hands, List<String> board, StoppingPolicy policy, long seed) {
+        Map<String, Double> eq = lookup(names, hands, board);
+        return eq != null
+                ? EquityResult.exact(eq, PreflopEquityTable.RUNOUTS)
+                : delegate.calcularEquity(names, hands, board, policy, seed);
+    }
+
+    @Override
+    public EquityResult calcularEquity(List<String> names, List<Hand> hands, List<String> board,
+                                       StoppingPolicy policy, long seed, EquityListener listener) {
+        Map<String, Double> eq = lookup(names, hands, board);
+        return eq != null
+                ? EquityResult.exact(eq, PreflopEquityTable.RUNOUTS)
+                : delegate.calcularEquity(names, hands, board, policy, seed, listener);
+    }
+
+    /** Equities desde la tabla, o null si la consulta no es un preflop heads-up conocido. */
+    private Map<String, Double> lookup(List<String> names, List<Hand> hands, List<String> board) {
+        if (table == null || hands.size() != 2 || names.size() != 2) return null;
+        if (board != null && !board.isEmpty()) return null;
+        Hand hero = hands.get(0), villain = hands.get(1);
+        if (hero == null || villain == null) return null;
+
+        double eq = table.equity(hero, villain);
+        if (Double.isNaN(eq)) return null;   // comparten carta: que lo rechace el delegado
+
+        Map<String, Double> out = new LinkedHashMap<>();
+        out.put(names.get(0), eq);
+        out.put(names.get(1), table.equity(villain, hero));
+        return out;
+    }
+}
@@ -0,0 +1,97 @@
+package p3.logic;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import p3.model.Cards;
+import p3.model.Hand;
+
+/**
+ * Genera el fichero de PreflopEquityTable (se ejecuta a mano, una vez).
+ *
+ * Uso:
+ *   java -cp bin p3.logic.PreflopTableGenerator [fichero]   (por defecto resources/preflop_hu.bin)
+ *
+ * Solo se enumera una vez cada situación canónica (SuitCanonicalizer): de los
+ * 878.475 pares de combos salen unas 47.000 clases distintas, contando también
+ * que "a contra b" y "b contra a" son la misma. Cada clase es una enumeración
+ * exacta de C(48,5) boards con ExhaustiveEquityCalculator (en paralelo).
+ */
+public final class PreflopTableGenerator {
+
+    private PreflopTableGenerator() {}
+
+    public static void main(String[] args) throws IOException {
+        Path out = Paths.get(args.length > 0 ? args[0] : "resources/" + PreflopEquityTable.DEFAULT_FILE);
+
+        long t0 = System.nanoTime();
+        int[] table = generate();
+        write(out, table);
+        System.out.printf("Tabla escrita en %s (%d bytes) en %.1f s%n",
+                out, Files.size(out), (System.nanoTime() - t0) / 1e9);
+    }
+
+    /** Calcula el triángulo completo (medias victorias del primer combo de cada par, -1 si se solapan). */
+    static int[] generate() {
+        final int C = PreflopEquityTable.COMBOS;
+        final int FULL = 2 * PreflopEquityTable.RUNOUTS;
+
+        Hand[] combos = new Hand[C];
+        for (int i = 0; i < C; i++) combos[i] = Hand.of(Cards.comboHigh(i), Cards.comboLow(i));
+
+        ExhaustiveEquityCalculator exact = new ExhaustiveEquityCalculator();
+        Map<SuitCanonicalizer.Spot, Integer> classes = new HashMap<>();
+        int[] table = new int[PreflopEquityTable.ENTRIES];
+        int computed = 0;
+
+        for (int a = 0; a < C; a++) {
+            for (int b = a + 1; b < C; b++) {
+                int idx = PreflopEquityTable.entryIndex(a, b);
+                Hand ha = combos[a], hb = combos[b];
+                if ((ha.mask() & hb.mask()) != 0) {
+                    table[idx] = -1;
+                    continue;
+                }
+
+                SuitCanonicalizer.Spot ab = SuitCanonicalizer.canonicalize(List.of(ha, hb), List.of());
+                Integer v = classes.get(ab);
+                if (v == null) {
+                    Integer ba = classes.get(SuitCanonicalizer.canonicalize(List.of(hb, ha), List.of()));
+                    if (ba != null) {
+                        v = FULL - ba;
+                    } else {
+                        long[] units = exact.exactUnits(List.of(ha, hb), List.of(), Long.MAX_VALUE);
+                        v = (int) units[0];
+                        if (++computed % 1000 == 0) {
+                            System.out.printf("%d clases (combo %d/%d)%n", computed, a, C);
+                        }
+                    }
+                    classes.put(ab, v);
+                }
+                table[idx] = v;
+            }
+        }
+        System.out.printf("%d clases calculadas%n", computed);
+        return table;
+    }
+
+    static void write(Path out, int[] table) throws IOException {
+        if (out.getParent() != null) Files.createDirectories(out.getParent());
+        try (OutputStream os = Files.newOutputStream(out);
+             DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(os, 1 << 16))) {
+            dos.writeInt(PreflopEquityTable.MAGIC);
+            dos.writeInt(PreflopEquityTable.VERSION);
+            dos.writeInt(PreflopEquityTable.COMBOS);
+            dos.writeInt(PreflopEquityTable.RUNOUTS);
+            for (int v : table) dos.writeInt(v);
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package p3.logic;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Procesos evaluadores externos (ps-eval) siempre abiertos, en vez de lanzar uno
+ * por consulta: arrancar el proceso costaba mucho más que el cálculo.
+ *
+ * Cada worker es un proceso que lee peticiones por stdin y responde por stdout,
+ * una línea por mensaje con el id de la petición delante, así que se pueden
+ * encadenar varias sin esperar respuesta (hasta 'maxInFlight' por worker):
+ *
+ *   petición:  &lt;id&gt; &lt;mano1&gt;:&lt;mano2&gt;:... &lt;board|-&gt;     p. ej. "7 AhAd:KcKd QsJd2c"
+ *   respuesta: &lt;id&gt; OK &lt;equity1&gt; &lt;equity2&gt; ...            equities 0..100, en el orden de las manos
+ *              &lt;id&gt; ERR &lt;mensaje&gt;
+ *
+ * El proceso termina al cerrarse su stdin. ps-eval de PokerStove no habla este
+ * protocolo por sí solo: hace falta un envoltorio que lo hable; para pruebas vale
+ * bench/ps-eval-stub.sh (o .cmd), que responde con el motor de la JVM.
+ *
+ * Fallos:
+ *  - Cada petición espera como mucho 'timeoutMillis'; si se pasa, el worker se
+ *    mata (con lo que tuviera pendiente) y se lanza IOException.
+ *  - Un worker que muere se vuelve a arrancar en la siguiente petición. Tras
+ *    MAX_CONSECUTIVE_FAILURES fallos seguidos (arranques, caídas o timeouts) el
+ *    pool se desactiva RETRY_AFTER_MILLIS y evaluate() devuelve null.
+ *  - Si todos los workers tienen 'maxInFlight' peticiones pendientes, evaluate()
+ *    devuelve null enseguida: quien llama calcula en la JVM (PokerStoveAdapter).
+ *
+ * El pool por defecto (getDefault) se configura con propiedades del sistema:
+ * -Dp3.psEval=/ruta/al/evaluador (sin ella no hay pool), -Dp3.psEval.workers y
+ * -Dp3.psEval.timeoutMs.
+ */
+public final class PsEvalPool implements AutoCloseable {
+
+    /** Propiedad con la ruta del evaluador. */
+    public static final String PATH_PROPERTY = "p3.psEval";
+    /** Propiedad con el nº de procesos. */
+    public static final String WORKERS_PROPERTY = "p3.psEval.workers";
+    /** Propiedad con el tiempo máximo por petición (ms). */
+    public static final String TIMEOUT_PROPERTY = "p3.psEval.timeoutMs";
+
+    public static final int DEFAULT_WORKERS = 2;
+    public static final long DEFAULT_TIMEOUT_MILLIS = 2_000;
+    /** Peticiones encadenadas por worker antes de considerarlo ocupado. */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 4;
+
+    /** Fallos seguidos tras los que el pool se desactiva un rato. */
+    public static final int MAX_CONSECUTIVE_FAILURES = 3;
+    public static final long RETRY_AFTER_MILLIS = 30_000;
+
+    private static volatile PsEvalPool defaultPool;
+    private static boolean defaultLoaded;
+
+    private final String path;
+    private final long timeoutMillis;
+    private final int maxInFlight;
+    private final Worker[] workers;
+
+    private final AtomicLong ids = new AtomicLong();
+    private int consecutiveFailures;        // guardado por this
+    private long disabledUntil;             // nanoTime; guardado por this
+    private volatile boolean closed;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong overloads = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong starts = new AtomicLong();
+
+    /**
+     * @param path          ejecutable del evaluador
+     * @param workers       nº de procesos (se arrancan al usarlos)
+     * @param timeoutMillis tiempo máximo por petición
+     * @param maxInFlight   peticiones pendientes por worker como mucho
+     */
+    public PsEvalPool(String path, int workers, long timeoutMillis, int maxInFlight) {
+        if (path == null || path.isBlank()) throw new IllegalArgumentException("path no puede estar vacío");
+        if (workers < 1) throw new IllegalArgumentException("workers debe ser >= 1");
+        if (timeoutMillis < 1) throw new IllegalArgumentException("timeoutMillis debe ser >= 1");
+        if (maxInFlight < 1) throw new IllegalArgumentException("maxInFlight debe ser >= 1");
+        this.path = path;
+        this.timeoutMillis = timeoutMillis;
+        this.maxInFlight = maxInFlight;
+        this.workers = new Worker[workers];
+        for (int i = 0; i < workers; i++) this.workers[i] = new Worker(i);
+    }
+
+    /**
+     * Pool configurado con las propiedades del sistema, o null si no hay evaluador
+     * (sin -Dp3.psEval o el fichero no existe). Se crea una sola vez y se cierra al
+     * salir de la JVM.
+     */
+    public static PsEvalPool getDefault() {
+        PsEvalPool p = defaultPool;
+        if (p != null) return p;
+        synchronized (PsEvalPool.class) {
+            if (!defaultLoaded) {
+                defaultLoaded = true;
+                String prop = System.getProperty(PATH_PROPERTY);
+                if (prop != null && !prop.isBlank() && new File(prop).isFile()) {
+                    int n = Integer.getInteger(WORKERS_PROPERTY, DEFAULT_WORKERS);
+                    long timeout = Long.getLong(TIMEOUT_PROPERTY, DEFAULT_TIMEOUT_MILLIS);
+                    defaultPool = new PsEvalPool(prop, n, timeout, DEFAULT_MAX_IN_FLIGHT);
+                    Runtime.getRuntime().addShutdownHook(new Thread(defaultPool::close, "ps-eval-shutdown"));
+                }
+            }
+            return defaultPool;
+        }
+    }
+
+    /**
+     * Equities (0..100) de cada jugador con estas manos ("AhAd") y board (0..5 cartas).
+     *
+     * @return las equities, o null si el pool está saturado o desactivado (calcular en la JVM)
+     * @throws IOException          si el evaluador falla, responde mal o se pasa de tiempo
+     * @throws InterruptedException si se interrumpe al hilo mientras espera (cálculo cancelado)
+     */
+    public Map<String, Double> evaluate(List<String> names, List<String> hands, List<String> board)
+            throws IOException, InterruptedException {
+        if (names.size() != hands.size())
+            throw new IllegalArgumentException("names y hands deben tener misma longitud");
+        requests.incrementAndGet();
+
+        Worker w = acquire();
+        if (w == null) {
+            overloads.incrementAndGet();
+            return null;
+        }
+        long id = ids.incrementAndGet();
+        String frame = id + " " + String.join(":", hands) + " " + (board.isEmpty() ? "-" : String.join("", board));
+
+        CompletableFuture<double[]> reply;
+        try {
+            reply = w.send(id, frame);
+        } catch (IOException e) {
+            failed(w, "no se pudo escribir: " + e.getMessage());
+            throw e;
+        }
+        double[] eq;
+        try {
+            eq = reply.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeouts.incrementAndGet();
+            failed(w, "timeout");
+            throw new IOException("ps-eval no respondió en " + timeoutMillis + " ms");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        } catch (InterruptedException e) {
+            w.forget(id);       // la respuesta, si llega, se descarta
+            throw e;
+        }
+        if (eq.length != names.size())
+            throw new IOException("ps-eval devolvió " + eq.length + " equities para " + names.size() + " jugadores");
+        succeeded();
+
+        Map<String, Double> res = new LinkedHashMap<>();
+        for (int i = 0; i < names.size(); i++) res.put(names.get(i), eq[i]);
+        return res;
+    }
+
+    // ===== Métricas =====
+
+    /** Peticiones recibidas. */
+    public long requests() { return requests.get(); }
+
+    /** Peticiones devueltas sin calcular (null): todos los workers ocupados o pool desactivado. */
+    public long overloads() { return overloads.get(); }
+
+    /** Peticiones que se pasaron de tiempo. */
+    public long timeouts() { return timeouts.get(); }
+
+    /** Workers perdidos (caídas, timeouts, errores de escritura o de arranque). */
+    public long failures() { return failures.get(); }
+
+    /** Procesos arrancados (el primero de cada worker y los reinicios). */
+    public long starts() { return starts.get(); }
+
+    /** Procesos vivos ahora mismo. */
+    public int alive() {
+        int n = 0;
+        for (Worker w : workers) if (w.isAlive()) n++;
+        return n;
+    }
+
+    public String path() { return path; }
+
+    /** Cierra el stdin de todos los procesos (y los mata si siguen vivos). */
+    @Override public void close() {
+        closed = true;
+        for (Worker w : workers) w.stop("pool cerrado");
+    }
+
+    // ===== Workers =====
+
+    /** El worker vivo con menos peticiones pendientes (arrancando los caídos), o null. */
+    private Worker acquire() throws IOException {
+        if (closed || isDisabled()) return null;
+        Worker best = null;
+        for (Worker w : workers) {
+            if (!w.isAlive()) continue;
+            if (w.pending() < maxInFlight && (best == null || w.pending() < best.pending())) best = w;
+        }
+        if (best != null && best.pending() == 0) return best;
+
+        // Ninguno libre del todo: si hay alguno caído, se (re)arranca
+        for (Worker w : workers) {
+            if (w.isAlive()) continue;
+            try {
+                if (w.start()) starts.incrementAndGet();
+                return w;
+            } catch (IOException e) {
+                failed(w, "no arranca: " + e.getMessage());
+                if (best == null) throw e;
+                return best;
+            }
+        }
+        return best;
+    }
+
+    private synchronized boolean isDisabled() {
+        return consecutiveFailures >= MAX_CONSECUTIVE_FAILURES && System.nanoTime() - disabledUntil < 0;
+    }
+
+    private synchronized void succeeded() { consecutiveFailures = 0; }
+
+    private void failed(Worker w, String reason) {
+        w.stop(reason);
+        countFailure();
+    }
+
+    private synchronized void countFailure() {
+        failures.incrementAndGet();
+        if (++consecutiveFailures >= MAX_CONSECUTIVE_FAILURES)
+            disabledUntil = System.nanoTime() + RETRY_AFTER_MILLIS * 1_000_000L;
+    }
+
+    /** Un proceso evaluador con sus peticiones pendientes y un hilo que lee las respuestas. */
+    private final class Worker {
+        final int index;
+        private Process process;                        // guardado por this
+        private BufferedWriter stdin;                   // guardado por this
+        private final Map<Long, CompletableFuture<double[]>> pending = new ConcurrentHashMap<>();
+
+        Worker(int index) { this.index = index; }
+
+        synchronized boolean isAlive() { return process != null && process.isAlive(); }
+
+        int pending() { return pending.size(); }
+
+        /** Arranca el proceso si no está vivo; true si lo ha arrancado este hilo. */
+        synchronized boolean start() throws IOException {
+            if (isAlive()) return false;
+            ProcessBuilder pb = new ProcessBuilder(path);
+            pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+            Process p = pb.start();
+            process = p;
+            stdin = new BufferedWriter(new OutputStreamWriter(p.getOutputStream(), StandardCharsets.UTF_8));
+            Thread reader = new Thread(() -> readLoop(p), "ps-eval-" + index);
+            reader.setDaemon(true);
+            reader.start();
+            return true;
+        }
+
+        synchronized CompletableFuture<double[]> send(long id, String frame) throws IOException {
+            if (stdin == null) throw new IOException("worker parado");
+            CompletableFuture<double[]> f = new CompletableFuture<>();
+            pending.put(id, f);
+            try {
+                stdin.write(frame);
+                stdin.write('\n');
+                stdin.flush();
+            } catch (IOException e) {
+                pending.remove(id);
+                throw e;
+            }
+            return f;
+        }
+
+        void forget(long id) {
+            CompletableFuture<double[]> f = pending.remove(id);
+            if (f != null) f.cancel(false);
+        }
+
+        /** Para el proceso (si es el actual) y falla todo lo que estaba pendiente. */
+        void stop(String reason) {
+            synchronized (this) {
+                if (process != null) {
+                    try {
+                        stdin.close();
+                    } catch (IOException ignored) {
+                        // ya estaba cerrado
+                    }
+                    process.destroyForcibly();
+                }
+                process = null;
+                stdin = null;
+            }
+            failAll(reason);
+        }
+
+        private void failAll(String reason) {
+            for (Long id : pending.keySet()) {
+                CompletableFuture<double[]> f = pending.remove(id);
+                if (f != null) f.completeExceptionally(new IOException("ps-eval: " + reason));
+            }
+        }
+
+        private void readLoop(Process p) {
+            try (BufferedReader out = new BufferedReader(new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = out.readLine()) != null) handle(line);
+            } catch (IOException ignored) {
+                // el proceso se ha cerrado
+            }
+            // Fin de la salida: si sigue siendo el proceso actual, se ha caído
+            boolean crashed;
+            synchronized (this) {
+                crashed = process == p;
+                if (crashed) {
+                    process = null;
+                    stdin = null;
+                }
+            }
+            if (crashed && !closed) {
+                failAll("el proceso terminó");
+                countFailure();
+            }
+        }
+
+        /** "&lt;id&gt; OK e1 e2 ..." o "&lt;id&gt; ERR mensaje"; lo que no se entiende se ignora. */
+        private void handle(String line) {
+            String[] parts = line.trim().split("\\s+");
+            if (parts.length < 2) return;
+            long id;
+            try {
+                id = Long.parseLong(parts[0]);
+            } catch (NumberFormatException e) {
+                return;
+            }
+            CompletableFuture<double[]> f = pending.remove(id);
+            if (f == null) return;      // cancelada o ya fallada
+            if (!"OK".equals(parts[1])) {
+                f.completeExceptionally(new IOException("ps-eval: " + line));
+                return;
+            }
+            try {
+                double[] eq = new double[parts.length - 2];
+                for (int i = 0; i < eq.length; i++) eq[i] = Double.parseDouble(parts[i + 2]);
+                f.complete(eq);
+            } catch (NumberFormatException e) {
+                f.completeExceptionally(new IOException("ps-eval: respuesta inválida: " + line));
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package p3.logic;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché de rangos ya interpretados, por texto del rango.
+ *
+ * El mismo texto ("JJ+,AKs", el de cada PlayerPanel...) se pide una y otra vez:
+ * en cada refresco de equity de la GUI y millones de veces en los procesos por
+ * lotes. Aquí se interpreta una sola vez (RangeParser + CompiledRange) y después
+ * se devuelve el mismo resultado inmutable.
+ *
+ * La clave es el texto normalizado (tokens sin espacios, en mayúsculas, separados
+ * por una coma), así "jj+, AKs" y "JJ+,AKS" comparten entrada. El texto tal cual
+ * también se guarda como clave, para que repetir exactamente el mismo texto no
+ * tenga ni que normalizarlo. Los textos no válidos también se recuerdan: vuelven
+ * a dar la misma IllegalArgumentException sin interpretarlos otra vez.
+ *
+ * Como mucho 'maxEntries' claves, descartando la usada hace más tiempo (LRU), y
+ * segura entre hilos; la interpretación se hace fuera del cerrojo.
+ */
+public final class RangeCache {
+
+    /** Tamaño por defecto: de sobra para unos cientos de rangos distintos. */
+    public static final int DEFAULT_MAX_ENTRIES = 4096;
+
+    private static final RangeCache DEFAULT = new RangeCache(DEFAULT_MAX_ENTRIES);
+
+    private final int maxEntries;
+    private final Map<String, Parsed> cache;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public RangeCache(int maxEntries) {
+        if (maxEntries < 1) throw new IllegalArgumentException("maxEntries debe ser >= 1");
+        this.maxEntries = maxEntries;
+        // accessOrder = true → orden LRU
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<String, Parsed> eldest) {
+                return size() > RangeCache.this.maxEntries;
+            }
+        };
+    }
+
+    /** Caché compartida por toda la aplicación. */
+    public static RangeCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Rango interpretado a partir de su texto (notación de RangeParser).
+     * @throws IllegalArgumentException si el texto no es un rango válido
+     */
+    public Parsed get(String text) {
+        if (text == null) text = "";
+        Parsed p = lookup(text);
+        if (p == null) {
+            String key = normalize(text);
+            p = key.equals(text) ? null : lookup(key);
+            if (p == null) {
+                misses.incrementAndGet();
+                p = store(key, Parsed.of(key));
+            } else {
+                hits.incrementAndGet();
+            }
+            if (!key.equals(text)) store(text, p);
+        } else {
+            hits.incrementAndGet();
+        }
+        return p.orThrow();
+    }
+
+    /** Atajo: el rango compilado del texto. */
+    public CompiledRange compile(String text) {
+        return get(text).range();
+    }
+
+    /** Atajo: las notaciones 169 del texto (lista inmutable). */
+    public List<String> parse(String text) {
+        return get(text).notations();
+    }
+
+    /**
+     * Texto normalizado de un rango: cada token sin espacios alrededor y en
+     * mayúsculas, sin tokens vacíos, separados por una coma. Interpreta igual
+     * que el original (RangeParser ya ignora espacios y mayúsculas).
+     */
+    public static String normalize(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (String token : text.split(",")) {
+            String t = token.trim();
+            if (t.isEmpty()) continue;
+            if (sb.length() > 0) sb.append(',');
+            sb.append(t.toUpperCase(Locale.ROOT));
+        }
+        return sb.toString();
+    }
+
+    // ===== Métricas =====
+
+    public long hits() { return hits.get(); }
+    public long misses() { return misses.get(); }
+
+    /** Aciertos / consultas (0 si aún no hay consultas). */
+    public double hitRate() {
+        long h = hits.get(), total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    /** Nº de claves guardadas (textos tal cual y normalizados). */
+    public synchronized int size() { return cache.size(); }
+
+    public synchronized void clear() {
+        cache.clear();
+        hits.set(0);
+        misses.set(0);
+    }
+
+    // ===== helpers =====
+
+    private synchronized Parsed lookup(String key) {
+        return cache.get(key);
+    }
+
+    private synchronized Parsed store(String key, Parsed p) {
+        cache.put(key, p);
+        return p;
+    }
+
+    /** Resultado inmutable de interpretar un rango (o el error, si no era válido). */
+    public static final class Parsed {
+        private final String text;
+        private final List<String> notations;
+        private final CompiledRange range;
+        private final String error;
+
+        private Parsed(String text, List<String> notations, CompiledRange range, String error) {
+            this.text = text;
+            this.notations = notations;
+            this.range = range;
+            this.error = error;
+        }
+
+        static Parsed of(String normalized) {
+            try {
+                List<String> n = Collections.unmodifiableList(RangeParser.parse(normalized));
+                return new Parsed(normalized, n, RangeParser.compile(normalized), null);
+            } catch (RuntimeException e) {
+                // Por si acaso: cualquier fallo al interpretar se recuerda como rango inválido
+                String msg = e instanceof IllegalArgumentException && e.getMessage() != null
+                        ? e.getMessage() : "Rango inválido: " + normalized;
+                return new Parsed(normalized, null, null, msg);
+            }
+        }
+
+        private Parsed orThrow() {
+            if (error != null) throw new IllegalArgumentException(error);
+            return this;
+        }
+
+        /** Texto normalizado del rango. */
+        public String text() { return text; }
+
+        /** Notaciones 169 en el orden de RangeParser.parse, sin pesos (inmutable). */
+        public List<String> notations() { return notations; }
+
+        /** Rango compilado con sus pesos (inmutable). */
+        public CompiledRange range() { return range; }
+
+        @Override public String toString() { return "RangeCache.Parsed{" + text + ", " + range + "}"; }
+    }
+}
@@ -0,0 +1,254 @@
+package p3.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
+
+import p3.model.Cards;
+import p3.model.Hand;
+
+/**
+ * Equity rango contra rango (un CompiledRange con pesos por jugador) por Monte Carlo.
+ *
+ * Cada prueba reparte con RangeSampler: un combo por jugador, condicionado a las
+ * cartas ya repartidas, y un peso por prueba que corrige ese condicionamiento; la
+ * media ponderada es la equity con los rangos repartidos a la vez, respetando todas
+ * las cartas bloqueadas. Si a un jugador no le queda ningún combo, la prueba pesa 0.
+ *
+ * Una mano null (o CompiledRange.all()) es cualquier mano, como en calcularEquity.
+ *
+ * Como RealEquityCalculator, con parallelism > 1 las pruebas se reparten en bloques
+ * con su propio generador (SplittableRandom.split() de SplittableRandom(seed)) y sus
+ * acumuladores, que se suman siempre en el mismo orden.
+ */
+public class RangeEquityCalculator implements EquityCalculator {
+
+    private final int parallelism;
+
+    /** Versión secuencial: un solo hilo con java.util.Random(seed). */
+    public RangeEquityCalculator() {
+        this(1);
+    }
+
+    /**
+     * @param parallelism nº de bloques en que se reparten las pruebas (1 = secuencial).
+     *                    Con el mismo seed y el mismo parallelism el resultado es idéntico bit a bit.
+     */
+    public RangeEquityCalculator(int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism debe ser >= 1");
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public Map<String, Double> calcularEquity(
+            List<String> names, List<Hand> hands, List<String> board, int trials, long seed) {
+        return calcularEquityRangos(names, toRanges(hands), board, StoppingPolicy.fixedTrials(trials), seed).equities();
+    }
+
+    @Override
+    public EquityResult calcularEquity(
+            List<String> names, List<Hand> hands, List<String> board, StoppingPolicy policy, long seed) {
+        return calcularEquityRangos(names, toRanges(hands), board, policy, seed);
+    }
+
+    @Override
+    public EquityResult calcularEquityRangos(
+            List<String> names, List<CompiledRange> ranges, List<String> board, StoppingPolicy policy, long seed) {
+
+        if (names.size() != ranges.size())
+            throw new IllegalArgumentException("names y ranges deben tener misma longitud");
+        if (board != null && board.size() > 5)
+            throw new IllegalArgumentException("El board tiene como máximo 5 cartas.");
+
+        final long start = System.nanoTime();
+        final int N = names.size();
+
+        int[] board5 = new int[5];
+        int boardCount = 0;
+        long boardMask = 0L;
+        if (board != null) {
+            for (String c : board) {
+                int id = Cards.parse(c);
+                board5[boardCount++] = id;
+                boardMask |= 1L << id;
+            }
+        }
+
+        final int maxTrials = policy.maxTrials();
+        Sampler[] chunks = newChunks(ranges, board5, boardCount, boardMask, seed, maxTrials);
+        double[] acc = new double[2 + 3 * N];   // ver formato abajo
+        int done = 0;
+        EquityResult.Stop stop;
+
+        while (true) {
+            int batch = Math.min(policy.batchSize(), maxTrials - done);
+            runBatch(chunks, batch);
+            StoppingPolicy.checkCancelled();
+            done += batch;
+            totals(chunks, acc);
+
+            if (policy.hasTarget() && acc[0] > 0 && maxStdError(acc, N) <= policy.targetStdError()) {
+                stop = EquityResult.Stop.TARGET;
+                break;
+            }
+            if (done >= maxTrials) {
+                stop = policy.hasTarget() || policy.hasDeadline()
+                        ? EquityResult.Stop.MAX_TRIALS : EquityResult.Stop.FIXED;
+                break;
+            }
+            if (policy.hasDeadline() && System.nanoTime() - start >= policy.budgetNanos()) {
+                stop = EquityResult.Stop.DEADLINE;
+                break;
+            }
+        }
+
+        if (acc[0] <= 0)
+            throw new IllegalArgumentException("Los rangos no dejan ningún reparto posible con este board.");
+
+        Map<String, Double> eq = new LinkedHashMap<>();
+        Map<String, Double> se = new LinkedHashMap<>();
+        for (int i = 0; i < N; i++) {
+            eq.put(names.get(i), 100.0 * mean(acc, i));
+            se.put(names.get(i), stdError(acc, i));
+        }
+        return new EquityResult(eq, se, done, stop);
+    }
+
+    /** Como en RealEquityCalculator: Random(seed) en secuencial, SplittableRandom.split() por bloque en paralelo. */
+    private Sampler[] newChunks(List<CompiledRange> ranges, int[] board5, int boardCount, long boardMask,
+                                long seed, int maxTrials) {
+        if (parallelism == 1)
+            return new Sampler[] { new Sampler(new RangeSampler(ranges, boardMask), board5, boardCount, boardMask, new Random(seed)) };
+
+        int n = Math.min(parallelism, maxTrials);
+        SplittableRandom root = new SplittableRandom(seed);
+        Sampler[] chunks = new Sampler[n];
+        for (int c = 0; c < n; c++)
+            chunks[c] = new Sampler(new RangeSampler(ranges, boardMask), board5, boardCount, boardMask, root.split());
+        return chunks;
+    }
+
+    private static void runBatch(Sampler[] chunks, int batch) {
+        if (chunks.length == 1) {
+            chunks[0].run(batch);
+            return;
+        }
+        int n = chunks.length;
+        IntStream.range(0, n).parallel()
+                .forEach(c -> chunks[c].run((int) ((long) batch * (c + 1) / n - (long) batch * c / n)));
+    }
+
+    /** Suma los acumuladores de todos los bloques, siempre en el mismo orden. */
+    private static void totals(Sampler[] chunks, double[] acc) {
+        Arrays.fill(acc, 0.0);
+        for (Sampler c : chunks)
+            for (int i = 0; i < acc.length; i++) acc[i] += c.acc[i];
+    }
+
+    /** Mano concreta → rango de un combo; null → cualquier mano. */
+    static List<CompiledRange> toRanges(List<Hand> hands) {
+        List<CompiledRange> out = new ArrayList<>(hands.size());
+        for (Hand h : hands) out.add(h == null ? CompiledRange.all() : CompiledRange.of(h));
+        return out;
+    }
+
+    // acc = [ΣW, ΣW², por jugador: ΣW·x, ΣW²·x, ΣW²·x²]
+    private static double mean(double[] acc, int i) {
+        return acc[2 + 3 * i] / acc[0];
+    }
+
+    /**
+     * Error estándar (puntos de equity) del estimador ponderado Σ W·x / Σ W,
+     * por el método delta: sqrt(Σ W²·(x - m)²) / Σ W.
+     */
+    private static double stdError(double[] acc, int i) {
+        if (acc[0] <= 0) return Double.NaN;
+        double m = mean(acc, i);
+        double sw2x = acc[3 + 3 * i], sw2x2 = acc[4 + 3 * i];
+        double num = Math.max(0.0, sw2x2 - 2 * m * sw2x + m * m * acc[1]);
+        return 100.0 * Math.sqrt(num) / acc[0];
+    }
+
+    private static double maxStdError(double[] acc, int n) {
+        double m = 0.0;
+        for (int i = 0; i < n; i++) m = Math.max(m, stdError(acc, i));
+        return m;
+    }
+
+    /** Un flujo de pruebas: reparto, generador, buffers y acumuladores, reservados una vez. */
+    private static final class Sampler {
+        final RangeSampler dealer;
+        final int players;
+        final int boardCount;
+        final int prefixState;
+        final long boardMask;
+        final RandomGenerator rnd;
+
+        final int[] hole;
+        final int[] winners;
+        final double[] acc;
+
+        Sampler(RangeSampler dealer, int[] board5, int boardCount, long boardMask, RandomGenerator rnd) {
+            this.dealer = dealer;
+            this.players = dealer.players();
+            this.boardCount = boardCount;
+            this.prefixState = PokerHandEvaluator.stateOf(board5, 0, boardCount);
+            this.boardMask = boardMask;
+            this.rnd = rnd;
+            this.hole = new int[2 * players];
+            this.winners = new int[players];
+            this.acc = new double[2 + 3 * players];
+        }
+
+        /** Hace 'trials' pruebas y las suma en acc. */
+        void run(int trials) {
+            final int N = players;
+            for (int t = 0; t < trials; t++) {
+                // 1) Combos de cada jugador, condicionados a las cartas ya repartidas
+                double w = dealer.deal(rnd, hole);
+                if (w <= 0) continue;
+
+                // 2) Runout con el resto de la baraja
+                int boardState = prefixState;
+                long mask = boardMask;
+                for (int k = boardCount; k < 5; k++) {
+                    int c = dealer.draw(rnd);
+                    boardState = PokerHandEvaluator.addCard(boardState, c);
+                    mask |= 1L << c;
+                }
+
+                // 3) Showdown
+                long best = Long.MIN_VALUE;
+                int nWinners = 0;
+                for (int i = 0; i < N; i++) {
+                    int c1 = hole[2 * i], c2 = hole[2 * i + 1];
+                    long sc = PokerHandEvaluator.score(
+                            PokerHandEvaluator.addCard(PokerHandEvaluator.addCard(boardState, c1), c2),
+                            mask | (1L << c1) | (1L << c2));
+                    if (sc > best) {
+                        best = sc;
+                        nWinners = 0;
+                    }
+                    if (sc == best) winners[nWinners++] = i;
+                }
+
+                double w2 = w * w;
+                double share = 1.0 / nWinners;
+                acc[0] += w;
+                acc[1] += w2;
+                for (int k = 0; k < nWinners; k++) {
+                    int b = 2 + 3 * winners[k];
+                    acc[b] += w * share;
+                    acc[b + 1] += w2 * share;
+                    acc[b + 2] += w2 * share * share;
+                }
+            }
+        }
+    }
+}
@@ -3,7 +3,8 @@ package p3.logic;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Locale;
+
+import p3.model.Cards;
 
 /**
  * RangeParser amplía el soporte de rangos textuales.
@@ -12,137 +13,252 @@ import java.util.Locale;
  *  - T2s+          -> T2s,T3s,...,T9s
  *  - 52o+          -> 52o,53o,...,T9o
  *  - ATs-A2s       -> ATs,A9s,A8s,...,A2s
+ *  - 98s-65s       -> 98s,87s,76s,65s (mismo hueco)
  *  - QQ-AA         -> QQ,KK,AA
- *  - Mezclas: JJ+,ATs-A8s,76o,54o
+ *  - AK, A2+       -> sin s/o: suited y offsuit
+ *  - AhKh          -> un combo concreto (palos h, d, c, s)
+ *  - AKs:0.5       -> con frecuencia: cualquier token puede acabar en ":peso" (0..1)
+ *  - Mezclas: JJ+,ATs-A8s:0.5,76o,AhKh:0.25
+ *
+ * El texto se recorre una sola vez, carácter a carácter (sin split ni expresiones
+ * regulares), y cada token se escribe directamente en el vector de pesos de los
+ * 1326 combos. Si un combo aparece en varios tokens vale el peso del último, así
+ * "AK,AKo:0.5" es AKs entero y AKo a la mitad, y un peso 0 lo quita del rango.
+ * Mayúsculas y minúsculas dan igual ("AHKH", "aks"); los espacios alrededor de
+ * comas, '+', '-' y ':' también.
  */
 public class RangeParser {
 
-    private static final String RANKS = "23456789TJQKA";
+    private static final String RANKS = Cards.RANKS;
 
-    /** Validación simple del formato del rango textual básico. */
+    /** Validación del formato del rango textual (al menos un token, todos válidos). */
     public static boolean isBasicFormat(String input) {
         if (input == null) return false;
-        // Permite tokens como JJ+, ATs-A2s, QQ-AA, además de los básicos
-        String token = "([2-9TJQKA]{2}[so]?([+-][2-9TJQKA]{0,2}[so]?)?)";
-        String regex = "^\\s*" + token + "(\\s*,\\s*" + token + ")*\\s*$";
-        return input.trim().matches(regex);
+        try {
+            return scan(input, null, null) > 0;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
     }
 
-
     /**
-     * Parsea un rango textual (como "JJ+,ATs-A8s,76o,54o") a una lista de manos individuales.
+     * Parsea un rango textual (como "JJ+,ATs-A8s,76o,54o") a una lista de manos individuales
+     * (notaciones 169 en mayúsculas, en el orden del texto). Los pesos no se ven aquí y un
+     * combo concreto cuenta como su clase: para el rango exacto, compile().
+     * @throws IllegalArgumentException si el texto no es un rango válido
      */
     public static List<String> parse(String rango) {
         if (rango == null || rango.isBlank()) return Collections.emptyList();
-
         List<String> manos = new ArrayList<>();
-        for (String token : rango.split(",")) {
-            token = token.trim().toUpperCase(Locale.ROOT);
-            if (token.isEmpty()) continue;
-
-            if (token.endsWith("+")) {
-                manos.addAll(expandPlus(token));
-            } else if (token.contains("-")) {
-                manos.addAll(expandRange(token));
-            } else {
-                manos.add(token);
-            }
-        }
+        scan(rango, null, manos);
         return manos;
     }
 
-    /** Expande los tokens con '+' como JJ+, T2s+, 52o+ */
-    private static List<String> expandPlus(String token) {
-        List<String> result = new ArrayList<>();
-        token = token.substring(0, token.length() - 1); // eliminar '+'
-
-        // --- Pares: JJ+ -> JJ,QQ,KK,AA ---
-        if (token.length() == 2 && token.charAt(0) == token.charAt(1)) {
-            char start = token.charAt(0);
-            int idx = RANKS.indexOf(start);
-            for (int i = idx; i < RANKS.length(); i++) {
-                result.add("" + RANKS.charAt(i) + RANKS.charAt(i));
+    /**
+     * Rango compilado con sus pesos, combo a combo. El muestreo de los motores de
+     * equity (RangeSampler) es O(1) por reparto sobre este vector.
+     * @throws IllegalArgumentException si el texto no es un rango válido
+     */
+    public static CompiledRange compile(String rango) {
+        if (rango == null || rango.isBlank()) return CompiledRange.empty();
+        double[] weights = new double[Cards.COMBOS];
+        scan(rango, weights, null);
+        return CompiledRange.wrapWeights(weights);
+    }
+
+    // ===== Tokenizador =====
+
+    /**
+     * Recorre el texto una vez. Por cada token escribe el peso de sus combos en
+     * 'weights' y/o añade sus notaciones 169 a 'notations' (cualquiera puede ser null).
+     * Devuelve el nº de tokens.
+     */
+    private static int scan(String text, double[] weights, List<String> notations) {
+        Scanner sc = new Scanner(text);
+        int tokens = 0;
+        while (true) {
+            sc.skipSpaces();
+            if (sc.atEnd()) break;
+            if (sc.peek() == ',') { sc.pos++; continue; }   // tokens vacíos
+
+            int start = sc.pos;
+            Spec from = sc.hand();
+            Spec to = null;
+            boolean plus = false;
+            sc.skipSpaces();
+            if (sc.peek() == '+') {
+                sc.pos++;
+                plus = true;
+            } else if (sc.peek() == '-') {
+                sc.pos++;
+                sc.skipSpaces();
+                to = sc.hand();
+            }
+            double weight = 1.0;
+            sc.skipSpaces();
+            if (sc.peek() == ':') {
+                sc.pos++;
+                sc.skipSpaces();
+                weight = sc.weight();
             }
-            return result;
+            sc.skipSpaces();
+            if (!sc.atEnd() && sc.peek() != ',') throw sc.error("se esperaba ',' o fin del rango");
+
+            emit(sc, start, from, to, plus, weight, weights, notations);
+            tokens++;
         }
+        return tokens;
+    }
 
-        // --- No pareja: T2s+, 52o+ ---
-        char high = token.charAt(0);
-        char low = token.charAt(1);
-        char type = token.charAt(2); // 's' o 'o'
+    /** Expande un token ya leído y lo escribe en las salidas. */
+    private static void emit(Scanner sc, int start, Spec from, Spec to, boolean plus, double weight,
+                             double[] weights, List<String> notations) {
+        if (from.isCombo()) {
+            if (plus || to != null) throw sc.errorAt(start, "un combo concreto no admite '+' ni '-'");
+            if (weights != null) weights[Cards.combo(from.c1, from.c2)] = weight;
+            if (notations != null) notations.add(notation(from.hi, from.lo, classType(from)));
+            return;
+        }
 
-        int idxHigh = RANKS.indexOf(high);
-        int idxLow = RANKS.indexOf(low);
+        if (from.hi == from.lo) {
+            // --- Parejas: JJ, JJ+, QQ-AA ---
+            int lo = from.hi, hi = from.hi;
+            if (plus) hi = RANKS.length() - 1;
+            if (to != null) {
+                if (to.isCombo() || to.hi != to.lo) throw sc.errorAt(start, "una pareja solo llega a otra pareja");
+                lo = Math.min(from.hi, to.hi);
+                hi = Math.max(from.hi, to.hi);
+            }
+            for (int r = lo; r <= hi; r++) emitClass(r, r, '\0', weight, weights, notations);
+            return;
+        }
 
-        // Por convenio: misma primera carta, subir la segunda hasta una por debajo de la alta
-        for (int i = idxLow; i <= idxHigh-1; i++) {
-            result.add("" + high + RANKS.charAt(i) + type);
+        // --- No pareja: AKs, T2s+ (sube la menor hasta una por debajo de la mayor), ATs-A2s ---
+        int lo = from.lo, hi = from.lo;
+        if (plus) hi = from.hi - 1;
+        if (to != null) {
+            if (to.isCombo() || to.hi == to.lo || to.type != from.type)
+                throw sc.errorAt(start, "los extremos deben ser manos no pareja con el mismo s/o");
+            if (to.hi != from.hi) {
+                // Conectores con el mismo hueco: 98s-65s -> 98s,87s,76s,65s
+                int gap = from.hi - from.lo;
+                if (to.hi - to.lo != gap)
+                    throw sc.errorAt(start, "los extremos deben tener la misma carta alta o el mismo hueco");
+                for (int h = Math.min(from.hi, to.hi); h <= Math.max(from.hi, to.hi); h++)
+                    emitClass(h, h - gap, from.type, weight, weights, notations);
+                return;
+            }
+            lo = Math.min(from.lo, to.lo);
+            hi = Math.max(from.lo, to.lo);
+        }
+        for (int r = lo; r <= hi; r++) emitClass(from.hi, r, from.type, weight, weights, notations);
+    }
+
+    /** Una clase 169: type 'S', 'O' o 0 (las dos). */
+    private static void emitClass(int hi, int lo, char type, double weight, double[] weights, List<String> notations) {
+        if (notations != null) notations.add(notation(hi, lo, type));
+        if (weights == null) return;
+        for (int s1 = 0; s1 < 4; s1++) {
+            for (int s2 = 0; s2 < 4; s2++) {
+                if (hi == lo && s2 <= s1) continue;
+                if (s1 == s2 && (hi == lo || type == 'O')) continue;
+                if (s1 != s2 && hi != lo && type == 'S') continue;
+                weights[Cards.combo(Cards.of(hi, s1), Cards.of(lo, s2))] = weight;
+            }
         }
-        return result;
     }
 
-    /** Determina si el rango con '-' es de parejas o no, y delega. */
-    private static List<String> expandRange(String token) {
-        List<String> result = new ArrayList<>();
-        String[] parts = token.split("-");
-        if (parts.length != 2) return result;
+    private static String notation(int hi, int lo, char type) {
+        String n = "" + RANKS.charAt(hi) + RANKS.charAt(lo);
+        return hi == lo || type == 0 ? n : n + type;
+    }
 
-        String start = parts[0].trim();
-        String end = parts[1].trim();
+    private static char classType(Spec combo) {
+        if (combo.hi == combo.lo) return '\0';
+        return Cards.suit(combo.c1) == Cards.suit(combo.c2) ? 'S' : 'O';
+    }
 
-        // Pares (QQ-AA)
-        if (isPair(start) && isPair(end)) {
-            return expandPairRange(start, end);
-        }
+    /** Mano leída: clase (hi, lo, type) o combo concreto (c1, c2 ≥ 0). */
+    private static final class Spec {
+        int hi, lo;          // valores 0..12, hi >= lo
+        char type;           // 'S', 'O' o 0 (sin sufijo / pareja)
+        int c1 = -1, c2 = -1;
 
-        // No pareja (ATs-A2s, KQo-KTo, etc.)
-        return expandNonPairRange(start, end);
+        boolean isCombo() { return c1 >= 0; }
     }
 
-    /** Expande un rango de parejas (por ejemplo QQ-AA). */
-    private static List<String> expandPairRange(String start, String end) {
-        List<String> result = new ArrayList<>();
-        int i1 = RANKS.indexOf(start.charAt(0));
-        int i2 = RANKS.indexOf(end.charAt(0));
-
-        // Asegurar que se recorra en orden creciente
-        if (i1 > i2) {
-            int tmp = i1;
-            i1 = i2;
-            i2 = tmp;
+    /** Posición de lectura sobre el texto y las piezas del token. */
+    private static final class Scanner {
+        private final String text;
+        int pos;
+
+        Scanner(String text) { this.text = text; }
+
+        boolean atEnd() { return pos >= text.length(); }
+
+        char peek() { return atEnd() ? '\0' : text.charAt(pos); }
+
+        void skipSpaces() {
+            while (!atEnd() && Character.isWhitespace(text.charAt(pos))) pos++;
         }
 
-        for (int i = i1; i <= i2; i++) {
-            result.add("" + RANKS.charAt(i) + RANKS.charAt(i));
+        /** "AK", "AKs", "AKo", "JJ" o "AhKh". */
+        Spec hand() {
+            Spec h = new Spec();
+            int r1 = rank();
+            int s1 = Cards.suitOf(peek());
+            if (s1 >= 0) {
+                // Combo concreto: valor, palo, valor, palo
+                pos++;
+                int r2 = rank();
+                int s2 = Cards.suitOf(peek());
+                if (s2 < 0) throw error("falta el palo de la segunda carta");
+                pos++;
+                h.c1 = Cards.of(r1, s1);
+                h.c2 = Cards.of(r2, s2);
+                if (h.c1 == h.c2) throw error("carta repetida en el combo");
+                h.hi = Math.max(r1, r2);
+                h.lo = Math.min(r1, r2);
+                return h;
+            }
+            int r2 = rank();
+            h.hi = Math.max(r1, r2);
+            h.lo = Math.min(r1, r2);
+            char t = Character.toUpperCase(peek());
+            if (t == 'S' || t == 'O') {
+                if (r1 == r2) throw error("una pareja no lleva s/o");
+                h.type = t;
+                pos++;
+            }
+            return h;
         }
-        return result;
-    }
 
-    /** Expande un rango no pareja (ATs-A2s, KQo-KTo). */
-    private static List<String> expandNonPairRange(String start, String end) {
-        List<String> result = new ArrayList<>();
-
-        char high = start.charAt(0);
-        char type = start.charAt(2); // s / o
-        int i1 = RANKS.indexOf(start.charAt(1));
-        int i2 = RANKS.indexOf(end.charAt(1));
-
-        if (i1 < 0 || i2 < 0) return result;
-        // Ordenar índices (por si vienen invertidos)
-        if (i1 > i2) {
-            int tmp = i1;
-            i1 = i2;
-            i2 = tmp;
+        /** Peso decimal entre 0 y 1 ("0.5", ".25", "1"). */
+        double weight() {
+            int start = pos;
+            while (!atEnd() && (Character.isDigit(peek()) || peek() == '.')) pos++;
+            if (start == pos) throw error("falta el peso tras ':'");
+            double w;
+            try {
+                w = Double.parseDouble(text.substring(start, pos));
+            } catch (NumberFormatException e) {
+                throw errorAt(start, "peso inválido");
+            }
+            if (w > 1.0) throw errorAt(start, "el peso debe estar entre 0 y 1");
+            return w;
         }
 
-        for (int i = i1; i <= i2; i++) {
-            result.add("" + high + RANKS.charAt(i) + type);
+        private int rank() {
+            int r = Cards.rankOf(peek());
+            if (r < 0) throw error(atEnd() ? "falta una carta" : "valor de carta inválido '" + peek() + "'");
+            pos++;
+            return r;
         }
-        return result;
-    }
 
-    /** Devuelve true si la mano es pareja (como "TT", "QQ", "AA"). */
-    private static boolean isPair(String token) {
-        return token.length() == 2 && token.charAt(0) == token.charAt(1);
+        IllegalArgumentException error(String msg) { return errorAt(pos, msg); }
+
+        IllegalArgumentException errorAt(int at, String msg) {
+            return new IllegalArgumentException("Rango inválido en la posición " + (at + 1) + " (" + msg + "): " + text);
+        }
     }
 }
@@ -0,0 +1,256 @@
+package p3.logic;
+
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+import p3.model.Cards;
+
+/**
+ * Reparto al azar de una prueba: un combo por jugador según su rango y después
+ * las cartas que falten del board, sin repetir cartas.
+ *
+ * Muestreo condicionado secuencial con pesos de importancia: los combos se eligen
+ * en orden, jugador a jugador, solo entre los que no chocan con el board ni con los
+ * ya repartidos. Así cada jugador sale con probabilidad w / Z_i (Z_i = peso de sus
+ * combos aún posibles) y deal() devuelve como peso de la prueba el producto de
+ * Z_i / total_i: la media ponderada por ese peso es la de los rangos repartidos a
+ * la vez, respetando todas las cartas bloqueadas. Nunca se descarta una prueba
+ * entera (como al repartir todo y rechazar si choca), así que el nº de pruebas por
+ * segundo no depende de lo estrechos o solapados que sean los rangos.
+ *
+ * Para cada jugador:
+ *  - Z_i sale por inclusión-exclusión sin recorrer el rango: total, menos el peso
+ *    de los combos que usan cada carta ya repartida, más el de los combos formados
+ *    por dos cartas repartidas (restados dos veces). Con las cartas de los jugadores
+ *    anteriores son unas pocas sumas.
+ *  - Si Z_i es al menos MIN_ACCEPTANCE del total, el combo se saca de una tabla de
+ *    alias del rango completo (O(1)) repitiendo si choca con las cartas repartidas:
+ *    se acepta con probabilidad Z_i / total, así que bastan unos pocos intentos.
+ *  - Si no (rango muy bloqueado) o tras MAX_TRIES rechazos, se elige recorriendo
+ *    solo los combos posibles. Los dos caminos dan la misma distribución.
+ *
+ * La baraja (sin el board) no se reordena entre pruebas: las cartas repartidas se
+ * llevan al principio y draw() hace un paso de Fisher-Yates parcial sobre el resto.
+ * No crea objetos después de construirse; cada hilo necesita el suyo.
+ */
+final class RangeSampler {
+
+    /** Fracción mínima de peso vivo para sacar el combo de la tabla de alias. */
+    static final double MIN_ACCEPTANCE = 0.25;
+
+    /** Intentos con la tabla de alias antes de recorrer el rango. */
+    static final int MAX_TRIES = 32;
+
+    private final CompiledRange[] ranges;
+    private final long boardMask;
+    private final int players;
+
+    // Por jugador: tabla de alias (Vose) sobre sus combos, peso por combo (1326) y por carta (52)
+    private final double[][] aliasProb;
+    private final int[][] aliasIndex;
+    private final double[][] comboWeight;
+    private final double[][] cardWeight;
+
+    // Baraja sin el board; pos[c] = posición de la carta c en deck (-1 si está en el board)
+    private final int[] deck;
+    private final int[] pos = new int[Cards.COUNT];
+    private final double[] cum;
+    private final int[] dealt;
+
+    private int top;      // deck[0..top) = cartas ya repartidas en esta prueba
+    private int nDealt;   // cartas de jugadores repartidas (dealt[0..nDealt))
+    private long dead;    // board + cartas repartidas
+
+    /** @param ranges un rango por jugador (los combos que chocan con el board se descartan) */
+    RangeSampler(List<CompiledRange> ranges, long boardMask) {
+        this.players = ranges.size();
+        this.ranges = new CompiledRange[players];
+        this.aliasProb = new double[players][];
+        this.aliasIndex = new int[players][];
+        this.comboWeight = new double[players][Cards.COMBOS];
+        this.cardWeight = new double[players][Cards.COUNT];
+        int maxSize = 0;
+        for (int i = 0; i < players; i++) {
+            CompiledRange r = ranges.get(i).removeBlockers(boardMask);
+            this.ranges[i] = r;
+            maxSize = Math.max(maxSize, r.size());
+            for (int j = 0; j < r.size(); j++) {
+                int k = r.combo(j);
+                comboWeight[i][k] = r.weight(j);
+                cardWeight[i][Cards.comboHigh(k)] += r.weight(j);
+                cardWeight[i][Cards.comboLow(k)] += r.weight(j);
+            }
+            buildAlias(i);
+        }
+        this.boardMask = boardMask;
+        this.cum = new double[maxSize];
+        this.dealt = new int[2 * players];
+
+        this.deck = new int[Cards.COUNT - Long.bitCount(boardMask)];
+        int n = 0;
+        for (int c = 0; c < Cards.COUNT; c++) {
+            if ((boardMask & (1L << c)) == 0) {
+                pos[c] = n;
+                deck[n++] = c;
+            } else {
+                pos[c] = -1;
+            }
+        }
+    }
+
+    int players() { return players; }
+
+    /** Rango del jugador i sin los combos bloqueados por el board. */
+    CompiledRange range(int i) { return ranges[i]; }
+
+    /**
+     * Empieza una prueba: elige el combo de cada jugador y lo deja en
+     * hole[2i], hole[2i+1]. Devuelve el peso de la prueba (0 = no hay reparto posible).
+     */
+    double deal(RandomGenerator rnd, int[] hole) {
+        top = 0;
+        nDealt = 0;
+        dead = boardMask;
+        double w = 1.0;
+        for (int i = 0; i < players; i++) {
+            CompiledRange r = ranges[i];
+            double total = r.totalWeight();
+            if (total <= 0) return 0.0;
+
+            double z = liveWeight(i);
+            int combo = -1;
+            if (z >= MIN_ACCEPTANCE * total) combo = drawAlias(i, rnd);
+            if (combo < 0) {
+                // Pocas opciones (o mala suerte): elegir entre los combos posibles
+                z = scanWeight(r);
+                if (z <= 0) return 0.0;
+                combo = pickScanned(r, z, rnd);
+            }
+            w *= z / total;
+
+            int c1 = Cards.comboHigh(combo), c2 = Cards.comboLow(combo);
+            hole[2 * i] = c1;
+            hole[2 * i + 1] = c2;
+            takeOut(c1);
+            takeOut(c2);
+        }
+        return w;
+    }
+
+    /** Saca una carta al azar de las que quedan (Fisher-Yates parcial). */
+    int draw(RandomGenerator rnd) {
+        int j = top + rnd.nextInt(deck.length - top);
+        int c = deck[j];
+        swap(top, j);
+        top++;
+        dead |= 1L << c;
+        return c;
+    }
+
+    /** Board + cartas repartidas en la prueba actual. */
+    long dead() { return dead; }
+
+    // ===== Elección de un combo =====
+
+    /**
+     * Peso de los combos del jugador i que no usan ninguna carta ya repartida, por
+     * inclusión-exclusión (los del board ya no están en el rango).
+     */
+    private double liveWeight(int i) {
+        double z = ranges[i].totalWeight();
+        double[] cw = cardWeight[i];
+        double[] kw = comboWeight[i];
+        for (int a = 0; a < nDealt; a++) {
+            z -= cw[dealt[a]];
+            for (int b = 0; b < a; b++) z += kw[Cards.combo(dealt[a], dealt[b])];
+        }
+        return z;
+    }
+
+    /** Combo de la tabla de alias que no choca con las cartas repartidas; -1 tras MAX_TRIES intentos. */
+    private int drawAlias(int i, RandomGenerator rnd) {
+        double[] prob = aliasProb[i];
+        int[] alias = aliasIndex[i];
+        CompiledRange r = ranges[i];
+        for (int t = 0; t < MAX_TRIES; t++) {
+            int j = rnd.nextInt(prob.length);
+            if (rnd.nextDouble() >= prob[j]) j = alias[j];
+            int combo = r.combo(j);
+            if ((Cards.comboMask(combo) & dead) == 0) return combo;
+        }
+        return -1;
+    }
+
+    /** Peso de los combos posibles, dejando en cum el acumulado para pickScanned. */
+    private double scanWeight(CompiledRange r) {
+        int n = r.size();
+        double z = 0;
+        for (int j = 0; j < n; j++) {
+            if ((Cards.comboMask(r.combo(j)) & dead) == 0) z += r.weight(j);
+            cum[j] = z;
+        }
+        return z;
+    }
+
+    /** Combo posible con probabilidad proporcional a su peso (búsqueda binaria en cum). */
+    private int pickScanned(CompiledRange r, double z, RandomGenerator rnd) {
+        double u = rnd.nextDouble() * z;
+        int lo = 0, hi = r.size() - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cum[mid] > u) hi = mid; else lo = mid + 1;
+        }
+        return r.combo(lo);
+    }
+
+    /**
+     * Tabla de alias de Vose: con j uniforme y u uniforme, j si u &lt; prob[j] y
+     * alias[j] si no, sale cada combo con probabilidad peso / total.
+     */
+    private void buildAlias(int i) {
+        CompiledRange r = ranges[i];
+        int n = r.size();
+        double[] prob = new double[n];
+        int[] alias = new int[n];
+        aliasProb[i] = prob;
+        aliasIndex[i] = alias;
+        if (n == 0) return;
+
+        double total = r.totalWeight();
+        double[] scaled = new double[n];
+        int[] small = new int[n], large = new int[n];
+        int ns = 0, nl = 0;
+        for (int j = 0; j < n; j++) {
+            scaled[j] = r.weight(j) * n / total;
+            if (scaled[j] < 1.0) small[ns++] = j; else large[nl++] = j;
+        }
+        while (ns > 0 && nl > 0) {
+            int s = small[--ns], l = large[--nl];
+            prob[s] = scaled[s];
+            alias[s] = l;
+            scaled[l] = (scaled[l] + scaled[s]) - 1.0;
+            if (scaled[l] < 1.0) small[ns++] = l; else large[nl++] = l;
+        }
+        // Lo que quede vale 1 (salvo redondeo)
+        while (nl > 0) { int l = large[--nl]; prob[l] = 1.0; alias[l] = l; }
+        while (ns > 0) { int s = small[--ns]; prob[s] = 1.0; alias[s] = s; }
+    }
+
+    // ===== Baraja =====
+
+    /** Lleva la carta c de un jugador a deck[top] (zona de repartidas). */
+    private void takeOut(int c) {
+        swap(top, pos[c]);
+        top++;
+        dead |= 1L << c;
+        dealt[nDealt++] = c;
+    }
+
+    private void swap(int a, int b) {
+        int ca = deck[a], cb = deck[b];
+        deck[a] = cb;
+        deck[b] = ca;
+        pos[cb] = a;
+        pos[ca] = b;
+    }
+}
@@ -1,18 +1,32 @@
 package p3.logic;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 
 /**
  * Gestiona el ranking de las 169 manos iniciales (aprox. Sklansky)
  * y ofrece utilidades para:
  *  1) Devolver el ranking completo (para la GUI actual).
- *  2) Devolver el top por porcentaje (0..1) como lista de manos.
+ *  2) Devolver el top por porcentaje como lista de manos.
  *  3) Construir una "máscara" [13][13][2] que indica qué manos están dentro
  *     del top, separando offsuit (índice 0) y suited (índice 1).
  *
+ * Los porcentajes se cuentan en combos (de las 1326 manos concretas), no en
+ * clases: todo pasa por un PercentileIndex precalculado, uno por ranking.
+ * Hay dos rankings, los del desplegable del héroe:
+ *  - "Sklansky-Chubukov": el de RANKING_169.
+ *  - "Custom": leído de un fichero de texto (propiedad p3.customRanking o
+ *    resources/ranking_custom.txt) con las manos de mejor a peor separadas por
+ *    comas, espacios o saltos de línea ('#' empieza un comentario). Las manos que
+ *    falten se añaden al final en el orden de Sklansky-Chubukov. Si no hay fichero
+ *    (o no es válido) es igual que Sklansky-Chubukov.
+ *
  * Nota sobre índices en la máscara:
  *  - Ejes 0..12 representan valores 2..A (ver RANKS = "23456789TJQKA").
  *  - [max][min][1] se usa para suited y [max][min][0] para offsuit.
@@ -24,25 +38,42 @@ public final class RankingProvider {
     // Clase de utilidades: se evita crear instancias
     private RankingProvider() {}
 
+    /** Nombre del ranking por defecto (el de RANKING_169). */
+    public static final String SKLANSKY_CHUBUKOV = "Sklansky-Chubukov";
+
+    /** Nombre del ranking leído de fichero. */
+    public static final String CUSTOM = "Custom";
+
+    /** Propiedad del sistema con la ruta del ranking Custom (si no, resources/ranking_custom.txt). */
+    public static final String CUSTOM_PATH_PROPERTY = "p3.customRanking";
+
+    /** Nombre por defecto del fichero del ranking Custom (en resources/). */
+    public static final String CUSTOM_FILE = "ranking_custom.txt";
+
     // Ranking de 169 combinaciones (ordenadas de mejor a peor).
     // Mezcla parejas, suited y offsuit. Es una aproximación suficiente para la práctica.
     private static final String[] RANKING_169 = {
         "AA","KK","AKs","QQ","AKo","JJ","AQs","TT","AQo","99","AJs","KQs",
         "88","AJo","KJs","77","ATs","KTs","QJs","66","ATo","QTs","55","KQo",
         "44","A9s","JTs","33","A8s","KJo","22","A7s","K9s","T9s","A5s","A6s",
-        "QJo","KTo","A4s","A3s","A2s","K8s","Q9s","J9s","T8s","98s","K7s",
-        "87s","K6s","Q8s","K5s","K4s","K3s","K2s","Q7s","Q6s","Q5s","J8s",
-        "97s","76s","Q4s","Q3s","Q2s","T7s","65s","54s","J7s","86s","75s",
-        "64s","T6s","T5s","T4s","T3s","T2s","53s","43s","J6s","J5s","J4s",
-        "J3s","J2s","98o","87o","76o","65o","54o","K9o","Q9o","J9o","T9o",
-        "A9o","K8o","Q8o","J8o","T8o","A8o","K7o","Q7o","J7o","T7o","A7o",
-        "K6o","Q6o","J6o","T6o","A6o","K5o","Q5o","J5o","T5o","A5o","K4o",
-        "Q4o","J4o","T4o","A4o","K3o","Q3o","J3o","T3o","A3o","K2o","Q2o",
-        "J2o","T2o","A2o"
+        "QJo","KTo","QTo","JTo","A4s","A3s","A2s","K8s","Q9s","J9s","T8s","98s",
+        "K7s","87s","K6s","Q8s","K5s","K4s","K3s","K2s","Q7s","Q6s","Q5s","J8s",
+        "97s","76s","Q4s","Q3s","Q2s","T7s","65s","54s","J7s","86s","75s","64s",
+        "T6s","T5s","T4s","T3s","T2s","53s","43s","J6s","J5s","J4s","J3s","J2s",
+        "98o","87o","76o","65o","54o","K9o","Q9o","J9o","T9o","A9o","K8o","Q8o",
+        "J8o","T8o","A8o","K7o","Q7o","J7o","T7o","A7o","K6o","Q6o","J6o","T6o",
+        "A6o","K5o","Q5o","J5o","T5o","A5o","K4o","Q4o","J4o","T4o","A4o","K3o",
+        "Q3o","J3o","T3o","A3o","K2o","Q2o","J2o","T2o","A2o","96s","85s","74s",
+        "63s","52s","42s","32s","95s","94s","93s","92s","84s","83s","82s","73s",
+        "72s","62s","97o","86o","75o","64o","53o","43o","96o","95o","85o","74o",
+        "63o","52o","42o","94o","93o","92o","84o","83o","73o","82o","62o","72o",
+        "32o"
     };
 
-    // Cadena para mapear letras de valor a índice 0..12 (2..A)
-    private static final String RANKS = "23456789TJQKA";
+    private static final PercentileIndex DEFAULT =
+            new PercentileIndex(SKLANSKY_CHUBUKOV, Arrays.asList(RANKING_169));
+
+    private static volatile PercentileIndex custom;
 
     /**
      * Devuelve una copia del ranking completo (169 elementos).
@@ -52,47 +83,48 @@ public final class RankingProvider {
         return new ArrayList<>(Arrays.asList(RANKING_169));
     }
 
+    /** Índice de percentiles del ranking por defecto (Sklansky-Chubukov). */
+    public static PercentileIndex getIndex() {
+        return DEFAULT;
+    }
+
     /**
-     * Devuelve la lista de manos del top por porcentaje (0..1).
+     * Índice de percentiles del ranking con ese nombre (SKLANSKY_CHUBUKOV o CUSTOM,
+     * los del desplegable). Cualquier otro nombre (o null) da el de por defecto.
+     */
+    public static PercentileIndex getIndex(String name) {
+        return CUSTOM.equals(name) ? getCustomIndex() : DEFAULT;
+    }
+
+    /**
+     * Devuelve la lista de manos del top por porcentaje, contado en combos.
+     * p en 0..1 o en 0..100 (si es mayor que 1 se toma como porcentaje).
      * Ejemplos:
-     *  - p = 0.25  → devuelve ~42 manos (el 25% superior).
+     *  - p = 0.25  → devuelve las manos del 25% superior de los combos.
      *  - p = 1.0   → devuelve las 169 manos.
      *  - p <= 0    → devuelve lista vacía.
      */
     public static List<String> getTopByPercent(double p) {
-    	if (p > 100) p = 100;
-    	if (p > 1) p /= 100.0;
-
-        int k = Math.min(RANKING_169.length, Math.max(0, (int)Math.ceil(RANKING_169.length * p)));
-        if (k == 0) return Collections.emptyList();
-        ArrayList<String> top = new ArrayList<>(k);
-        for (int i = 0; i < k; i++) top.add(RANKING_169[i]);
-        return top;
+        return DEFAULT.top(toPercent(p));
     }
 
     /**
-     * Construye una máscara [13][13][2] marcando en true las manos dentro del top.
-     * - percent en 0..1 (igual que getTopByPercent).
+     * Devuelve la máscara [13][13][2] con las manos del top (percent en 0..1, igual
+     * que getTopByPercent; se redondea al porcentaje entero de arriba).
      * - Capa [..][..][1] = suited ; Capa [..][..][0] = offsuit.
      * - Las parejas se marcan en ambas capas de su casilla diagonal.
+     * La máscara está precalculada y se comparte: no se debe modificar.
      */
     public static boolean[][][] getMaskForPercent(double percent) {
-        boolean[][][] mask = new boolean[13][13][2];
-        int limit = Math.min(RANKING_169.length, (int)Math.ceil(RANKING_169.length * percent));
-        for (int i = 0; i < limit; i++) {
-            mark(mask, RANKING_169[i]);
-        }
-        return mask;
+        return DEFAULT.mask((int) Math.ceil(toPercent(percent) - 1e-9));
     }
     
     /**
-     * Devuelve true si una mano concreta está dentro del top por porcentaje dado.
-     * Usa HandUtils.to169() para convertir la mano real a su forma textual.
+     * Devuelve true si una mano concreta está dentro del top por porcentaje dado
+     * (mismas unidades que getTopByPercent). O(1), sin crear listas.
      */
     public static boolean isInTopPercent(p3.model.Hand hand, double percent) {
-        String normalized = HandUtils.to169(hand);
-        List<String> top = getTopByPercent(percent);
-        return top.contains(normalized);
+        return DEFAULT.isInTop(hand, toPercent(percent));
     }
 
 
@@ -100,36 +132,64 @@ public final class RankingProvider {
     //    FUNCIONES APOYO
     // ======================
 
+    /** Pasa un porcentaje en 0..1 o 0..100 a 0..100 (como hacía getTopByPercent). */
+    private static double toPercent(double p) {
+        if (p > 100) p = 100;
+        if (p > 1) return p;
+        return Math.max(0.0, p) * 100.0;
+    }
+
+    /** Índice del ranking Custom: se lee del fichero la primera vez. */
+    private static PercentileIndex getCustomIndex() {
+        PercentileIndex c = custom;
+        if (c == null) {
+            synchronized (RankingProvider.class) {
+                c = custom;
+                if (c == null) {
+                    c = new PercentileIndex(CUSTOM, Arrays.asList(RANKING_169));
+                    Path p = findCustomFile();
+                    if (p != null) {
+                        try {
+                            c = new PercentileIndex(CUSTOM, readRanking(p));
+                        } catch (IOException | IllegalArgumentException ignored) {
+                            // fichero no válido: igual que el ranking por defecto
+                        }
+                    }
+                    custom = c;
+                }
+            }
+        }
+        return c;
+    }
+
     /**
-     * Marca en la máscara la mano dada (por ejemplo "AKs", "AQo" o "TT").
-     * Convierte las letras de valor a índices, detecta si es suited/offsuit/pareja
-     * y enciende la casilla correspondiente.
+     * Lee un ranking de texto: notaciones de mejor a peor separadas por comas,
+     * espacios o saltos de línea. Las que falten se completan en el orden por defecto.
      */
-    private static void mark(boolean[][][] mask, String hand) {
-        char r1 = hand.charAt(0);          // valor 1 (ej: 'A')
-        char r2 = hand.charAt(1);          // valor 2 (ej: 'K' o 'A' si pareja)
-        int i = RANKS.indexOf(r1);         // índice 0..12
-        int j = RANKS.indexOf(r2);         // índice 0..12
-        if (i < 0 || j < 0) return;        // seguridad: si algo raro, no marcamos
-
-        boolean suited  = hand.endsWith("s"); // termina en 's' → suited
-        boolean offsuit = hand.endsWith("o"); // termina en 'o' → offsuit
-
-        // Para mantener una sola casilla por mano no pareja:
-        // usamos la convención [mayor][menor]
-        int hi = Math.max(i, j);
-        int lo = Math.min(i, j);
-
-        if (r1 == r2) {               // Pareja (diagonal)
-            mask[i][j][0] = true;     // marcamos ambas capas por simplicidad
-            mask[i][j][1] = true;
-        } else if (suited) {          // Mano suited → capa 1
-            mask[hi][lo][1] = true;
-        } else if (offsuit) {         // Mano offsuit → capa 0
-            mask[hi][lo][0] = true;
-        } else {                      // Sin sufijo: marcamos ambas (por si acaso)
-            mask[hi][lo][0] = true;
-            mask[hi][lo][1] = true;
+    static List<String> readRanking(Path file) throws IOException {
+        List<String> out = new ArrayList<>(PercentileIndex.CLASSES);
+        boolean[] seen = new boolean[PercentileIndex.CLASSES];
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            int hash = line.indexOf('#');
+            if (hash >= 0) line = line.substring(0, hash);
+            for (String tok : line.split("[,\\s]+")) {
+                if (tok.isEmpty()) continue;
+                int k = PercentileIndex.classOf(tok);
+                if (seen[k]) throw new IllegalArgumentException("Mano repetida en el ranking: " + tok);
+                seen[k] = true;
+                out.add(PercentileIndex.notation(k));
+            }
+        }
+        for (String n : RANKING_169) {
+            int k = PercentileIndex.classOf(n);
+            if (!seen[k]) out.add(n);
         }
+        return out;
+    }
+
+    private static Path findCustomFile() {
+        String prop = System.getProperty(CUSTOM_PATH_PROPERTY);
+        Path p = prop != null && !prop.isBlank() ? Paths.get(prop) : Paths.get("resources", CUSTOM_FILE);
+        return Files.isRegularFile(p) ? p : null;
     }
 }
@@ -1,104 +1,405 @@
 package p3.logic;
 
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Random;
-import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
 
+import p3.model.Cards;
 import p3.model.Hand;
 
 /**
  * Calcula probabilidades de ganar (equity) por Monte Carlo:
  * completa manos/board al azar, evalúa y promedia.
+ *
+ * Las cartas se pasan a ids 0..51 una sola vez al entrar; la simulación
+ * trabaja solo con arrays de int y máscaras (sin Strings, listas ni HashSet).
+ * El board conocido se evalúa una sola vez (prefijo incremental) y en cada
+ * prueba solo se añaden las cartas del runout y las de cada jugador.
+ *
+ * Con parallelism > 1 las pruebas se reparten en bloques que se ejecutan en el
+ * pool fork-join. Cada bloque tiene su propio generador, sacado en orden con
+ * SplittableRandom.split() de un SplittableRandom(seed), y los acumuladores de
+ * cada bloque se suman siempre en el mismo orden: el resultado solo depende del
+ * seed y del nº de bloques, no de qué hilo ejecuta cada uno ni cuándo termina.
+ *
+ * Con una StoppingPolicy las pruebas se hacen por lotes y se para en cuanto el
+ * error estándar de todos los jugadores baja del objetivo o se acaba el tiempo;
+ * el resultado (EquityResult) trae el nº de pruebas y el intervalo de confianza.
  */
 public class RealEquityCalculator implements EquityCalculator {
 
+    /** Pruebas del primer tramo con listener: los primeros números salen en milisegundos. */
+    public static final int FIRST_SNAPSHOT_TRIALS = 256;
+
+    private final int parallelism;
+
+    /** Versión secuencial: un solo hilo con java.util.Random(seed). */
+    public RealEquityCalculator() {
+        this(1);
+    }
+
+    /**
+     * @param parallelism nº de bloques en que se reparten las pruebas (1 = secuencial).
+     *                    Con el mismo seed y el mismo parallelism el resultado es idéntico bit a bit.
+     */
+    public RealEquityCalculator(int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism debe ser >= 1");
+        this.parallelism = parallelism;
+    }
+
     @Override
     public Map<String, Double> calcularEquity(
             List<String> names, List<Hand> hands, List<String> board, int trials, long seed) {
+        return calcularEquity(names, hands, board, StoppingPolicy.fixedTrials(trials), seed).equities();
+    }
+
+    /**
+     * Monte Carlo por lotes: tras cada lote se actualizan la media y la varianza de
+     * cada jugador y se para si se cumple la política (error objetivo, tiempo o máximo).
+     * Con la misma semilla, política sin límite de tiempo y mismo parallelism, el
+     * resultado es idéntico bit a bit.
+     */
+    @Override
+    public EquityResult calcularEquity(
+            List<String> names, List<Hand> hands, List<String> board, StoppingPolicy policy, long seed) {
+        return calcularEquity(names, hands, board, policy, seed, null);
+    }
+
+    /**
+     * Igual, enviando a 'listener' una instantánea tras cada lote. Para que los
+     * primeros números salgan enseguida, el primer lote se hace por tramos que
+     * doblan su tamaño (FIRST_SNAPSHOT_TRIALS, el doble...), con una instantánea
+     * tras cada uno. Cada bloque hace en total las mismas pruebas del lote que sin
+     * listener y solo se mira si parar al acabar lotes enteros, así que el
+     * resultado final es idéntico bit a bit.
+     */
+    @Override
+    public EquityResult calcularEquity(List<String> names, List<Hand> hands, List<String> board,
+                                       StoppingPolicy policy, long seed, EquityListener listener) {
+
+        final long start = System.nanoTime();
 
         if (names.size() != hands.size())
             throw new IllegalArgumentException("names y hands deben tener misma longitud");
+        if (board != null && board.size() > 5)
+            throw new IllegalArgumentException("El board tiene como máximo 5 cartas.");
 
         final int N = names.size();
 
-        // 1) Baraja restante (quitamos cartas usadas)
-        List<String> used = new ArrayList<>();
-        for (Hand h : hands) if (h != null) used.addAll(h.asList());
-        if (board != null) used.addAll(board);
-        List<String> deck0 = buildDeckExcluding(used);
-
-        double[] wins = new double[N];
-        Random rnd = new Random(seed);
-
-        int needBoard = 5 - (board == null ? 0 : board.size());
-        if (needBoard < 0) needBoard = 0;
-
-        boolean deterministic = (needBoard == 0) && hands.stream().allMatch(Objects::nonNull);
-        int T = deterministic ? 1 : Math.max(1, trials);
-
-        // 2) Simulaciones
-        for (int t = 0; t < T; t++) {
-            ArrayList<String> deck = new ArrayList<>(deck0);
-
-            String[][] simHands = new String[N][2];
-            for (int i = 0; i < N; i++) {
-                if (hands.get(i) != null) {
-                    simHands[i][0] = hands.get(i).card1();
-                    simHands[i][1] = hands.get(i).card2();
-                } else {
-                    simHands[i][0] = draw(deck, rnd);
-                    simHands[i][1] = draw(deck, rnd);
-                }
+        // 1) Cartas conocidas → ids (-1 = mano desconocida) y máscara de usadas
+        int[] known = new int[2 * N];
+        long used = 0L;
+        boolean allKnown = true;
+        for (int i = 0; i < N; i++) {
+            Hand h = hands.get(i);
+            if (h != null) {
+                known[2 * i] = h.id1();
+                known[2 * i + 1] = h.id2();
+                used |= h.mask();
+            } else {
+                known[2 * i] = known[2 * i + 1] = -1;
+                allKnown = false;
             }
+        }
 
-            List<String> board5 = new ArrayList<>(board == null ? List.of() : board);
-            for (int k = 0; k < needBoard; k++) board5.add(draw(deck, rnd));
+        int[] board5 = new int[5];
+        int boardCount = 0;
+        long prefixMask = 0L;
+        if (board != null) {
+            for (String c : board) {
+                int id = Cards.parse(c);
+                board5[boardCount++] = id;
+                prefixMask |= 1L << id;
+            }
+        }
+        used |= prefixMask;
 
-            long best = Long.MIN_VALUE;
-            List<Integer> winners = new ArrayList<>(N);
+        // 2) Baraja restante (quitamos cartas usadas) y datos fijos de la simulación
+        Simulation sim = new Simulation(known, board5, boardCount, prefixMask, buildDeckExcluding(used));
 
-            for (int i = 0; i < N; i++) {
-                long sc = PokerHandEvaluator.evaluate7(simHands[i][0], simHands[i][1], board5);
-                if (sc > best) {
-                    best = sc;
-                    winners.clear();
-                    winners.add(i);
-                } else if (sc == best) {
-                    winners.add(i);
+        // Board completo y todas las manos conocidas: basta una evaluación
+        if (boardCount == 5 && allKnown) {
+            Chunk c = new Chunk(sim, new Random(seed));
+            c.run(1);
+            return EquityResult.exact(toMap(names, c.wins, 1), 1);
+        }
+
+        // 3) Simulaciones por lotes
+        final int maxTrials = policy.maxTrials();
+        Chunk[] chunks = newChunks(sim, seed, maxTrials);
+        double[] sum = new double[N];
+        double[] sumSq = new double[N];
+        int done = 0;
+        EquityResult.Stop stop;
+
+        while (true) {
+            int batch = Math.min(policy.batchSize(), maxTrials - done);
+            if (listener == null) {
+                runBatch(chunks, batch, 0, batch);
+            } else {
+                // Tramos crecientes dentro del primer lote; después, uno por lote
+                int from = 0, ran = 0;
+                long step = done == 0 ? FIRST_SNAPSHOT_TRIALS : batch;
+                while (from < batch) {
+                    int to = (int) Math.min(batch, from + step);
+                    ran += runBatch(chunks, batch, from, to);
+                    StoppingPolicy.checkCancelled();
+                    totals(chunks, sum, sumSq);
+                    listener.onSnapshot(result(names, sum, sumSq, done + ran, EquityResult.Stop.RUNNING));
+                    from = to;
+                    step *= 2;
                 }
             }
+            StoppingPolicy.checkCancelled();
+            done += batch;
+            totals(chunks, sum, sumSq);
+
+            if (policy.hasTarget() && maxStdError(sum, sumSq, done) <= policy.targetStdError()) {
+                stop = EquityResult.Stop.TARGET;
+                break;
+            }
+            if (done >= maxTrials) {
+                stop = policy.hasTarget() || policy.hasDeadline()
+                        ? EquityResult.Stop.MAX_TRIALS : EquityResult.Stop.FIXED;
+                break;
+            }
+            if (policy.hasDeadline() && System.nanoTime() - start >= policy.budgetNanos()) {
+                stop = EquityResult.Stop.DEADLINE;
+                break;
+            }
+        }
+
+        return result(names, sum, sumSq, done, stop);
+    }
+
+    private static EquityResult result(List<String> names, double[] sum, double[] sumSq, int done,
+                                       EquityResult.Stop stop) {
+        Map<String, Double> se = new LinkedHashMap<>();
+        for (int i = 0; i < names.size(); i++) se.put(names.get(i), stdError(sum[i], sumSq[i], done));
+        return new EquityResult(toMap(names, sum, done), se, done, stop);
+    }
+
+    /**
+     * Rango contra rango. Si cada rango es una mano concreta o cualquier mano
+     * (CompiledRange.all()), es una simulación normal; si no, se reparte con
+     * RangeSampler (RangeEquityCalculator con el mismo parallelism): muestreo
+     * condicionado con pesos, sin rechazar repartos, así que los rangos estrechos
+     * y solapados (QQ+ contra AK contra JJ+) no hacen más lenta cada prueba.
+     */
+    @Override
+    public EquityResult calcularEquityRangos(
+            List<String> names, List<CompiledRange> ranges, List<String> board, StoppingPolicy policy, long seed) {
+        List<Hand> hands = new ArrayList<>(ranges.size());
+        for (CompiledRange r : ranges) {
+            Hand h = r.singleHand();
+            if (h == null && !(r.size() == Cards.COMBOS && !r.isWeighted()))
+                return new RangeEquityCalculator(parallelism).calcularEquityRangos(names, ranges, board, policy, seed);
+            hands.add(h);
+        }
+        return calcularEquity(names, hands, board, policy, seed);
+    }
 
-            double share = 1.0 / winners.size();
-            for (int w : winners) wins[w] += share;
+    /**
+     * Un bloque por hilo (como mucho uno por prueba). En modo secuencial, un único
+     * java.util.Random(seed); en paralelo, un SplittableRandom por bloque sacados en
+     * orden con split() de SplittableRandom(seed).
+     */
+    private Chunk[] newChunks(Simulation sim, long seed, int maxTrials) {
+        if (parallelism == 1) return new Chunk[] { new Chunk(sim, new Random(seed)) };
+
+        int n = Math.min(parallelism, maxTrials);
+        SplittableRandom root = new SplittableRandom(seed);
+        Chunk[] chunks = new Chunk[n];
+        for (int c = 0; c < n; c++) chunks[c] = new Chunk(sim, root.split());
+        return chunks;
+    }
+
+    /**
+     * Reparte las pruebas [from, to) de un lote de 'batch' entre los bloques (en el
+     * pool fork-join si hay más de uno) y devuelve cuántas se han hecho. Cada bloque
+     * hace la parte proporcional de su cuota del lote, de modo que por tramos o de
+     * una vez hace las mismas pruebas en total.
+     */
+    private static int runBatch(Chunk[] chunks, int batch, int from, int to) {
+        if (chunks.length == 1) {
+            chunks[0].run(to - from);
+            return to - from;
         }
+        int n = chunks.length;
+        int[] counts = new int[n];
+        int ran = 0;
+        for (int c = 0; c < n; c++) {
+            long quota = (long) batch * (c + 1) / n - (long) batch * c / n;
+            counts[c] = (int) (quota * to / batch - quota * from / batch);
+            ran += counts[c];
+        }
+        IntStream.range(0, n).parallel().forEach(c -> chunks[c].run(counts[c]));
+        return ran;
+    }
+
+    /** Suma los acumuladores de todos los bloques, siempre en el mismo orden. */
+    private static void totals(Chunk[] chunks, double[] sum, double[] sumSq) {
+        Arrays.fill(sum, 0.0);
+        Arrays.fill(sumSq, 0.0);
+        for (Chunk c : chunks) {
+            for (int i = 0; i < sum.length; i++) {
+                sum[i] += c.wins[i];
+                sumSq[i] += c.winsSq[i];
+            }
+        }
+    }
 
+    /**
+     * Error estándar de la media, en puntos de equity (0..100).
+     * Cada prueba vale 1, 1/k (empate entre k) o 0; la varianza es la muestral.
+     */
+    private static double stdError(double sum, double sumSq, int n) {
+        if (n < 2) return Double.NaN;
+        double var = Math.max(0.0, (sumSq - sum * sum / n) / (n - 1));
+        return 100.0 * Math.sqrt(var / n);
+    }
+
+    private static double maxStdError(double[] sum, double[] sumSq, int n) {
+        double m = 0.0;
+        for (int i = 0; i < sum.length; i++) m = Math.max(m, stdError(sum[i], sumSq[i], n));
+        return m;
+    }
+
+    private static Map<String, Double> toMap(List<String> names, double[] wins, int trials) {
         Map<String, Double> out = new LinkedHashMap<>();
-        for (int i = 0; i < N; i++) out.put(names.get(i), 100.0 * wins[i] / T);
+        for (int i = 0; i < names.size(); i++) out.put(names.get(i), 100.0 * wins[i] / trials);
         return out;
     }
 
+    /** Datos fijos de una simulación, compartidos por todos los bloques. */
+    private static final class Simulation {
+        final int[] known;
+        final int players;
+        final int boardCount;
+        final int prefixState;
+        final long prefixMask;
+        final int[] deck0;
+
+        Simulation(int[] known, int[] board5, int boardCount, long prefixMask, int[] deck0) {
+            this.known = known;
+            this.players = known.length / 2;
+            this.boardCount = boardCount;
+            // Prefijo: estado del board conocido, igual en todas las pruebas
+            this.prefixState = PokerHandEvaluator.stateOf(board5, 0, boardCount);
+            this.prefixMask = prefixMask;
+            this.deck0 = deck0;
+        }
+    }
+
+    /**
+     * Un flujo de pruebas con su propio generador, baraja y acumuladores.
+     *
+     * Los buffers se reservan al crearlo; run() no crea ningún objeto y se puede
+     * llamar varias veces (un lote cada vez) continuando donde se quedó. La baraja
+     * no se restaura entre pruebas: cada robo es un paso de Fisher-Yates parcial
+     * (intercambio con una posición al azar del resto), y como la baraja sigue siendo
+     * una permutación de las mismas cartas, el resultado es igual de uniforme empiece
+     * en el orden que empiece.
+     */
+    private static final class Chunk {
+        final Simulation sim;
+        final RandomGenerator rnd;
+        final int[] deck;
+        final int[] hole;
+        final int[] winners;
+        // Suma de victorias (empates repartidos) y de sus cuadrados, por jugador
+        final double[] wins;
+        final double[] winsSq;
+
+        Chunk(Simulation sim, RandomGenerator rnd) {
+            this.sim = sim;
+            this.rnd = rnd;
+            this.deck = sim.deck0.clone();
+            this.hole = new int[2 * sim.players];
+            this.winners = new int[sim.players];
+            this.wins = new double[sim.players];
+            this.winsSq = new double[sim.players];
+        }
+
+        void run(int trials) {
+            final int N = sim.players;
+            final int[] known = sim.known;
+            final int deckSize = deck.length;
+
+            for (int t = 0; t < trials; t++) {
+                int pos = 0;
+
+                for (int i = 0; i < 2 * N; i += 2) {
+                    if (known[i] >= 0) {
+                        hole[i] = known[i];
+                        hole[i + 1] = known[i + 1];
+                    } else {
+                        hole[i] = draw(deck, pos++, deckSize, rnd);
+                        hole[i + 1] = draw(deck, pos++, deckSize, rnd);
+                    }
+                }
+
+                // Runout: se añade al prefijo una vez por prueba
+                int boardState = sim.prefixState;
+                long boardMask = sim.prefixMask;
+                for (int k = sim.boardCount; k < 5; k++) {
+                    int c = draw(deck, pos++, deckSize, rnd);
+                    boardState = PokerHandEvaluator.addCard(boardState, c);
+                    boardMask |= 1L << c;
+                }
+
+                long best = Long.MIN_VALUE;
+                int nWinners = 0;
+                for (int i = 0; i < N; i++) {
+                    int c1 = hole[2 * i], c2 = hole[2 * i + 1];
+                    long sc = PokerHandEvaluator.score(
+                            PokerHandEvaluator.addCard(PokerHandEvaluator.addCard(boardState, c1), c2),
+                            boardMask | (1L << c1) | (1L << c2));
+                    if (sc > best) {
+                        best = sc;
+                        nWinners = 0;
+                    }
+                    if (sc == best) winners[nWinners++] = i;
+                }
+
+                double share = 1.0 / nWinners;
+                double shareSq = share * share;
+                for (int w = 0; w < nWinners; w++) {
+                    wins[winners[w]] += share;
+                    winsSq[winners[w]] += shareSq;
+                }
+            }
+        }
+    }
+
     // ======= helpers =======
 
-    private static List<String> buildDeckExcluding(Collection<String> used) {
-        String[] ranks = {"A","K","Q","J","T","9","8","7","6","5","4","3","2"};
-        String[] suits = {"h","d","c","s"};
-        Set<String> U = new HashSet<>(used == null ? List.of() : used);
-        ArrayList<String> deck = new ArrayList<>(52);
-        for (String r : ranks) for (String s : suits) {
-            String c = r + s;
-            if (!U.contains(c)) deck.add(c);
+    /** Ids de las cartas no usadas, en orden A..2 y palos h,d,c,s. */
+    private static int[] buildDeckExcluding(long used) {
+        int[] deck = new int[Cards.COUNT - Long.bitCount(used & Cards.FULL_MASK)];
+        int n = 0;
+        for (int r = 12; r >= 0; r--) for (int s = 0; s < 4; s++) {
+            int c = Cards.of(r, s);
+            if ((used & (1L << c)) == 0) deck[n++] = c;
         }
         return deck;
     }
 
-    private static String draw(ArrayList<String> deck, Random rnd) {
-        int i = rnd.nextInt(deck.size());
-        return deck.remove(i);
+    /**
+     * Paso de Fisher-Yates parcial: elige al azar una carta de deck[pos..size),
+     * la lleva a la posición 'pos' y la devuelve. O(1), sin desplazar el array.
+     */
+    private static int draw(int[] deck, int pos, int size, RandomGenerator rnd) {
+        int j = pos + rnd.nextInt(size - pos);
+        int c = deck[j];
+        deck[j] = deck[pos];
+        deck[pos] = c;
+        return c;
     }
 }
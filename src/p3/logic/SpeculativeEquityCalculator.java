@@ -0,0 +1,232 @@
+package p3.logic;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import p3.model.Cards;
+import p3.model.Hand;
+
+/**
+ * Decorador que calcula por adelantado la siguiente calle.
+ *
+ * Con speculate() se calculan en segundo plano, con 'engine', las equities de
+ * los boards posibles de la siguiente calle (NextStreetEquities): en el flop las 47
+ * cartas del turn, en el turn las del river. Cuando luego llega la consulta de la
+ * calle real (mismos jugadores, manos y política), se responde desde la tabla sin
+ * calcular nada.
+ *
+ * Los boards que solo cambian por un cambio de palos que deja igual cada mano (y
+ * el board) tienen las mismas equities: se calcula uno por grupo y se guarda para
+ * todos. En el preflop los flops son ~17000, así que solo se calculan los
+ * 'maxFlops' grupos más grandes (los más probables, los que más cubren por cálculo).
+ *
+ * Las consultas que no están en la tabla van al delegado (normalmente con caché,
+ * CachingEquityCalculator); 'engine' debe ser el motor sin caché, así lo especulado
+ * se guarda solo en la tabla y no desplaza de la caché las situaciones de verdad.
+ *
+ * El cálculo va en un hilo propio de prioridad mínima, un board tras otro y en
+ * orden aleatorio (con el seed), para que una tabla a medias cubra cartas de todo
+ * tipo. La prioridad de Java no garantiza nada en todos los sistemas (y los bloques
+ * paralelos de los motores van al pool común), así que quien lo usa debe llamar a
+ * cancel() antes de un cálculo de verdad: la tabla se queda con lo que ya tenía.
+ *
+ * Solo se guarda la tabla de la última situación especulada.
+ */
+public class SpeculativeEquityCalculator implements EquityCalculator, AutoCloseable {
+
+    /** Grupos de flops que se calculan como mucho desde el preflop. */
+    public static final int DEFAULT_MAX_FLOPS = 1000;
+
+    private final EquityCalculator delegate;
+    private final EquityCalculator engine;
+    private final int maxFlops;
+    private final ExecutorService executor;
+
+    // Tabla de la última especulación y su cálculo (guardados por this)
+    private NextStreetEquities table;
+    private CompletableFuture<NextStreetEquities> done;
+    private Future<?> running;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /** Especula con el mismo delegado que responde las consultas. */
+    public SpeculativeEquityCalculator(EquityCalculator delegate) {
+        this(delegate, delegate, DEFAULT_MAX_FLOPS);
+    }
+
+    /**
+     * @param delegate responde las consultas que no están en la tabla
+     * @param engine   motor con el que se especula (sin caché)
+     * @param maxFlops grupos de flops calculados como mucho al especular desde el preflop
+     */
+    public SpeculativeEquityCalculator(EquityCalculator delegate, EquityCalculator engine, int maxFlops) {
+        if (delegate == null || engine == null) throw new IllegalArgumentException("delegate y engine no pueden ser null");
+        if (maxFlops < 1) throw new IllegalArgumentException("maxFlops debe ser >= 1");
+        this.delegate = delegate;
+        this.engine = engine;
+        this.maxFlops = maxFlops;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "equity-speculation");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+    }
+
+    @Override
+    public Map<String, Double> calcularEquity(
+            List<String> names, List<Hand> hands, List<String> board, int trials, long seed) {
+        return delegate.calcularEquity(names, hands, board, trials, seed);
+    }
+
+    @Override
+    public EquityResult calcularEquity(
+            List<String> names, List<Hand> hands, List<String> board, StoppingPolicy policy, long seed) {
+        EquityResult r = lookup(names, hands, board, policy);
+        return r != null ? r : delegate.calcularEquity(names, hands, board, policy, seed);
+    }
+
+    @Override
+    public EquityResult calcularEquity(List<String> names, List<Hand> hands, List<String> board,
+                                       StoppingPolicy policy, long seed, EquityListener listener) {
+        EquityResult r = lookup(names, hands, board, policy);
+        return r != null ? r : delegate.calcularEquity(names, hands, board, policy, seed, listener);
+    }
+
+    /**
+     * Empieza a calcular en segundo plano la siguiente calle desde esta situación
+     * (board de 0, 3 o 4 cartas, todas las manos conocidas) con 'policy', la de la
+     * calle siguiente. Si ya se está calculando o está hecha, no repite nada; si no,
+     * sigue desde lo que haya. El futuro se completa con la tabla cuando están todos
+     * los boards que tocan (en el preflop, los de los 'maxFlops' grupos); si se
+     * cancela antes, se queda sin completar.
+     */
+    public synchronized CompletableFuture<NextStreetEquities> speculate(
+            List<String> names, List<Hand> hands, List<String> board, StoppingPolicy policy, long seed) {
+        if (names.size() != hands.size())
+            throw new IllegalArgumentException("names y hands deben tener misma longitud");
+        if (board.size() != 0 && board.size() != 3 && board.size() != 4)
+            throw new IllegalArgumentException("Se especula desde el preflop, el flop o el turn");
+        if (hands.stream().anyMatch(h -> h == null))
+            throw new IllegalArgumentException("Todas las manos deben ser conocidas");
+
+        if (table != null && table.matches(names, hands, board, policy)) {
+            if (table.isComplete() || (running != null && !running.isDone())) return done;
+        } else {
+            table = new NextStreetEquities(names, hands, board, policy);
+        }
+        cancel();
+        NextStreetEquities t = table;
+        CompletableFuture<NextStreetEquities> future = new CompletableFuture<>();
+        done = future;
+        running = executor.submit(() -> fill(t, seed, future));
+        return future;
+    }
+
+    /** Para la especulación en curso (si la hay); la tabla conserva lo ya calculado. */
+    public synchronized void cancel() {
+        if (running != null) running.cancel(true);
+        running = null;
+    }
+
+    /** Tabla de la última especulación (puede estar a medias), o null. */
+    public synchronized NextStreetEquities table() { return table; }
+
+    /** Consultas respondidas desde la tabla. */
+    public long hits() { return hits.get(); }
+
+    /** Consultas que pasaron al delegado. */
+    public long misses() { return misses.get(); }
+
+    @Override public void close() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    private EquityResult lookup(List<String> names, List<Hand> hands, List<String> board, StoppingPolicy policy) {
+        NextStreetEquities t = table();
+        EquityResult r = t == null ? null : t.lookup(names, hands, board, policy);
+        (r != null ? hits : misses).incrementAndGet();
+        return r;
+    }
+
+    /** Calcula los boards que falten de 't', hasta acabar o hasta que lo interrumpan. */
+    private void fill(NextStreetEquities t, long seed, CompletableFuture<NextStreetEquities> future) {
+        List<String> base = t.board();
+        try {
+            for (long[] group : pendingBoards(t, seed)) {
+                if (Thread.currentThread().isInterrupted()) return;
+                List<String> board = new ArrayList<>(base);
+                for (long m = group[0]; m != 0; m &= m - 1) board.add(Cards.code(Long.numberOfTrailingZeros(m)));
+                EquityResult r = engine.calcularEquity(t.names(), t.hands(), board, t.policy(), seed);
+                for (long next : group) t.put(next, r);
+            }
+            future.complete(t);
+        } catch (CancellationException e) {
+            // cancelado: lo calculado se queda en la tabla
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Boards aún sin calcular agrupados por simetría de palos (máscaras de sus cartas
+     * nuevas; se calcula el primero de cada grupo), en orden aleatorio con 'seed'. En
+     * el preflop, solo los 'maxFlops' grupos más grandes.
+     */
+    private List<long[]> pendingBoards(NextStreetEquities t, long seed) {
+        int[] live = new int[Cards.COUNT];
+        int n = 0;
+        for (int c = 0; c < Cards.COUNT; c++) if ((t.deadMask() & (1L << c)) == 0) live[n++] = c;
+
+        long[] boards = new long[t.possible()];
+        int k = 0;
+        if (t.cardsPerBoard() == 1) {
+            for (int i = 0; i < n; i++) boards[k++] = 1L << live[i];
+        } else {
+            for (int a = 0; a < n; a++)
+                for (int b = a + 1; b < n; b++)
+                    for (int c = b + 1; c < n; c++)
+                        boards[k++] = (1L << live[a]) | (1L << live[b]) | (1L << live[c]);
+        }
+
+        SplittableRandom rnd = new SplittableRandom(seed);
+        for (int i = k - 1; i > 0; i--) {
+            int j = rnd.nextInt(i + 1);
+            long tmp = boards[i];
+            boards[i] = boards[j];
+            boards[j] = tmp;
+        }
+
+        // Grupo de cada board: el menor de sus imágenes por las simetrías de la situación
+        int[][] symmetries = SuitCanonicalizer.symmetries(t.hands(), Cards.maskOf(t.board()));
+        Map<Long, List<Long>> byClass = new LinkedHashMap<>();
+        for (int i = 0; i < k; i++) {
+            long key = boards[i];
+            for (int[] perm : symmetries) key = Math.min(key, SuitCanonicalizer.mapMask(boards[i], perm));
+            byClass.computeIfAbsent(key, x -> new ArrayList<>()).add(boards[i]);
+        }
+        List<List<Long>> groups = new ArrayList<>(byClass.values());
+        if (t.cardsPerBoard() == 3) {
+            groups.sort(Comparator.comparingInt((List<Long> g) -> g.size()).reversed());
+            if (groups.size() > maxFlops) groups = groups.subList(0, maxFlops);
+        }
+
+        List<long[]> pending = new ArrayList<>();
+        for (List<Long> g : groups) {
+            if (t.result(g.get(0)) == null) pending.add(g.stream().mapToLong(Long::longValue).toArray());
+        }
+        return pending;
+    }
+}
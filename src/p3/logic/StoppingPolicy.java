@@ -0,0 +1,115 @@
+package p3.logic;
+
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Cuándo parar una simulación Monte Carlo.
+ *
+ * Siempre hay un máximo de pruebas. Además se puede pedir:
+ *  - un error estándar objetivo (en puntos de equity, escala 0..100): se para en
+ *    cuanto el error de todos los jugadores está por debajo;
+ *  - un presupuesto de tiempo: se para en cuanto se agota y se devuelve lo que haya.
+ *
+ * Las pruebas se hacen por lotes de 'batchSize' y los criterios se comprueban al
+ * acabar cada lote (siempre se hace al menos uno). Con solo máximo u objetivo de
+ * error el resultado es reproducible con la misma semilla; con presupuesto de
+ * tiempo el nº de pruebas depende de la máquina.
+ *
+ * Cancelar es parar sin resultado: si se interrumpe el hilo que calcula (por
+ * ejemplo con Future.cancel(true)), los motores lanzan CancellationException al
+ * acabar el lote en curso (ver checkCancelled).
+ */
+public final class StoppingPolicy {
+
+    /** Pruebas por lote por defecto. */
+    public static final int DEFAULT_BATCH = 5_000;
+
+    private final int maxTrials;
+    private final double targetStdError;   // NaN = sin objetivo
+    private final long budgetNanos;        // <= 0 = sin límite de tiempo
+    private final int batchSize;
+
+    private StoppingPolicy(int maxTrials, double targetStdError, long budgetNanos, int batchSize) {
+        if (maxTrials < 1) throw new IllegalArgumentException("maxTrials debe ser >= 1");
+        if (batchSize < 1) throw new IllegalArgumentException("batchSize debe ser >= 1");
+        if (!Double.isNaN(targetStdError) && targetStdError <= 0)
+            throw new IllegalArgumentException("El error objetivo debe ser > 0");
+        this.maxTrials = maxTrials;
+        this.targetStdError = targetStdError;
+        this.budgetNanos = budgetNanos;
+        this.batchSize = batchSize;
+    }
+
+    /** Exactamente 'trials' pruebas, en un solo lote (lo que hacía calcularEquity de siempre). */
+    public static StoppingPolicy fixedTrials(int trials) {
+        int t = Math.max(1, trials);
+        return new StoppingPolicy(t, Double.NaN, 0, t);
+    }
+
+    /**
+     * Hasta que el error estándar de todos los jugadores sea ≤ stdError
+     * (puntos de equity, p. ej. 0.1 = ±0.1%) o se llegue a maxTrials.
+     */
+    public static StoppingPolicy targetStdError(double stdError, int maxTrials) {
+        return new StoppingPolicy(maxTrials, stdError, 0, DEFAULT_BATCH);
+    }
+
+    /** La mejor respuesta posible en 'millis' milisegundos (como mucho maxTrials pruebas). */
+    public static StoppingPolicy deadline(long millis, int maxTrials) {
+        return new StoppingPolicy(maxTrials, Double.NaN, millis * 1_000_000L, DEFAULT_BATCH);
+    }
+
+    /** Esta política con, además, un límite de tiempo. */
+    public StoppingPolicy withDeadline(long millis) {
+        return new StoppingPolicy(maxTrials, targetStdError, millis * 1_000_000L, batchSize);
+    }
+
+    /** Esta política con otro tamaño de lote. */
+    public StoppingPolicy withBatchSize(int batchSize) {
+        return new StoppingPolicy(maxTrials, targetStdError, budgetNanos, batchSize);
+    }
+
+    public int maxTrials() { return maxTrials; }
+    public int batchSize() { return batchSize; }
+
+    /** Error estándar objetivo en puntos de equity (NaN si no hay). */
+    public double targetStdError() { return targetStdError; }
+    public boolean hasTarget() { return !Double.isNaN(targetStdError); }
+
+    /** Presupuesto de tiempo en nanosegundos (0 si no hay). */
+    public long budgetNanos() { return Math.max(0, budgetNanos); }
+    public boolean hasDeadline() { return budgetNanos > 0; }
+
+    /** Lanza CancellationException si el hilo actual está interrumpido (cálculo cancelado). */
+    public static void checkCancelled() {
+        checkCancelled(Thread.currentThread());
+    }
+
+    /**
+     * Igual, pero mirando el hilo que pidió el cálculo: para los bloques que corren
+     * en otros hilos (ForkJoinPool) por cuenta de 'caller'. No borra la interrupción.
+     */
+    public static void checkCancelled(Thread caller) {
+        if (caller.isInterrupted()) throw new CancellationException("Cálculo cancelado");
+    }
+
+    @Override public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof StoppingPolicy)) return false;
+        StoppingPolicy p = (StoppingPolicy) o;
+        return maxTrials == p.maxTrials && budgetNanos() == p.budgetNanos() && batchSize == p.batchSize
+                && Double.compare(targetStdError, p.targetStdError) == 0;
+    }
+
+    @Override public int hashCode() {
+        return Objects.hash(maxTrials, targetStdError, budgetNanos(), batchSize);
+    }
+
+    @Override public String toString() {
+        return "StoppingPolicy{max=" + maxTrials
+                + (hasTarget() ? ", se<=" + targetStdError : "")
+                + (hasDeadline() ? ", " + budgetNanos / 1_000_000L + "ms" : "")
+                + ", batch=" + batchSize + "}";
+    }
+}
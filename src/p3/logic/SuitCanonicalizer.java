@@ -0,0 +1,165 @@
+package p3.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import p3.model.Cards;
+import p3.model.Hand;
+
+/**
+ * Forma canónica de una situación (manos, board, cartas muertas) salvo cambio de palos.
+ *
+ * Los palos no tienen valor en Hold'em: AhKh vs QdQc en 2h7s9d y AsKs vs QhQd en
+ * 2s7c9h son la misma situación y tienen las mismas equities. Se prueban las 24
+ * permutaciones de palos y se queda la que da la codificación menor; dos situaciones
+ * isomorfas dan así la misma clave.
+ *
+ * La codificación es: máscara del board, máscara de muertas y, por jugador (en su
+ * orden, que sí importa), la mano con sus dos cartas ordenadas (-1 si es desconocida).
+ * El orden de las cartas del board y dentro de cada mano no cuenta.
+ */
+public final class SuitCanonicalizer {
+
+    // Las 24 permutaciones de los 4 palos: PERMS[p][palo] = palo nuevo
+    private static final int[][] PERMS = new int[24][];
+
+    static {
+        int n = 0;
+        for (int a = 0; a < 4; a++) for (int b = 0; b < 4; b++) for (int c = 0; c < 4; c++) {
+            int d = 6 - a - b - c;
+            if (a == b || a == c || b == c || d < 0 || d > 3 || d == a || d == b || d == c) continue;
+            PERMS[n++] = new int[] {a, b, c, d};
+        }
+    }
+
+    private static final long SUIT_BITS = (1L << 13) - 1;
+
+    private SuitCanonicalizer() {}
+
+    /** Situación canónica sin cartas muertas. */
+    public static Spot canonicalize(List<Hand> hands, List<String> board) {
+        return canonicalize(hands, board, 0L);
+    }
+
+    /**
+     * @param hands manos por jugador (null = desconocida)
+     * @param board cartas del board (0..5, puede ser null)
+     * @param dead  máscara de cartas muertas (fuera del mazo pero de nadie)
+     */
+    public static Spot canonicalize(List<Hand> hands, List<String> board, long dead) {
+        final int N = hands.size();
+        int[] h1 = new int[N], h2 = new int[N];
+        for (int i = 0; i < N; i++) {
+            Hand h = hands.get(i);
+            h1[i] = h == null ? -1 : h.id1();
+            h2[i] = h == null ? -1 : h.id2();
+        }
+        long boardMask = board == null ? 0L : Cards.maskOf(board);
+
+        long[] best = null;
+        int bestPerm = 0;
+        long[] cur = new long[2 + N];
+        for (int p = 0; p < PERMS.length; p++) {
+            int[] perm = PERMS[p];
+            cur[0] = mapMask(boardMask, perm);
+            cur[1] = mapMask(dead, perm);
+            for (int i = 0; i < N; i++) cur[2 + i] = h1[i] < 0 ? -1 : pair(map(h1[i], perm), map(h2[i], perm));
+            if (best == null || Arrays.compare(cur, best) < 0) {
+                best = cur.clone();
+                bestPerm = p;
+            }
+        }
+        return new Spot(best, PERMS[bestPerm]);
+    }
+
+    /**
+     * Permutaciones de palos que dejan igual cada mano y el board (siempre está la
+     * identidad). Dos boards de la siguiente calle que se pasan uno al otro con una
+     * de ellas dan las mismas equities a cada jugador.
+     */
+    static int[][] symmetries(List<Hand> hands, long boardMask) {
+        List<int[]> out = new ArrayList<>();
+        for (int[] perm : PERMS) {
+            boolean fixed = mapMask(boardMask, perm) == boardMask;
+            for (int i = 0; fixed && i < hands.size(); i++) {
+                Hand h = hands.get(i);
+                fixed = h == null || mapMask(h.mask(), perm) == h.mask();
+            }
+            if (fixed) out.add(perm);
+        }
+        return out.toArray(new int[0][]);
+    }
+
+    /** Carta con el palo cambiado según la permutación. */
+    private static int map(int id, int[] perm) {
+        return Cards.of(Cards.rank(id), perm[Cards.suit(id)]);
+    }
+
+    /** Máscara con los palos cambiados (cada palo son 13 bits seguidos). */
+    static long mapMask(long mask, int[] perm) {
+        long out = 0L;
+        for (int s = 0; s < 4; s++) out |= ((mask >>> (13 * s)) & SUIT_BITS) << (13 * perm[s]);
+        return out;
+    }
+
+    /** Mano como número independiente del orden de las cartas (mayor*64 + menor). */
+    private static long pair(int a, int b) {
+        return a > b ? a * 64L + b : b * 64L + a;
+    }
+
+    /** Situación canónica: clave comparable y las cartas ya con los palos cambiados. */
+    public static final class Spot {
+        private final long[] key;
+        private final int[] perm;
+        private final int hash;
+
+        private Spot(long[] key, int[] perm) {
+            this.key = key;
+            this.perm = perm;
+            this.hash = Arrays.hashCode(key);
+        }
+
+        /** Permutación aplicada: palo original → palo canónico. */
+        public int suitOf(int originalSuit) { return perm[originalSuit]; }
+
+        /** Manos canónicas en el orden de los jugadores (null = desconocida). */
+        public List<Hand> hands() {
+            List<Hand> out = new ArrayList<>(key.length - 2);
+            for (int i = 2; i < key.length; i++) {
+                out.add(key[i] < 0 ? null : Hand.of((int) (key[i] / 64), (int) (key[i] % 64)));
+            }
+            return Collections.unmodifiableList(out);
+        }
+
+        /** Board canónico (de id menor a mayor). */
+        public List<String> board() { return Cards.toCodes(key[0]); }
+
+        /** Cartas muertas canónicas. */
+        public long deadMask() { return key[1]; }
+
+        /** Semilla de 64 bits derivada de la clave (igual para todas las situaciones isomorfas). */
+        public long seed() {
+            long h = 0x9E3779B97F4A7C15L;
+            for (long v : key) {
+                h ^= v;
+                h *= 0xBF58476D1CE4E5B9L;
+                h ^= h >>> 31;
+            }
+            return h;
+        }
+
+        @Override public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Spot)) return false;
+            return Arrays.equals(key, ((Spot) o).key);
+        }
+
+        @Override public int hashCode() { return hash; }
+
+        @Override public String toString() {
+            return "Spot{" + hands() + " | " + board() + (key[1] != 0 ? " | dead=" + Cards.toCodes(key[1]) : "") + "}";
+        }
+    }
+}
@@ -9,31 +9,59 @@ import p3.gui.Phase;
 /**
  * Board de 5 posiciones: flop[0..2], turn[3], river[4].
  * Guarda códigos tipo "Ah","Td"... Vacío = "".
+ * En paralelo guarda los ids 0..51 (-1 = vacío) y la máscara de las cartas
+ * visibles, para que los cálculos no tengan que crear listas.
  */
 public final class Board {
     private final String[] cards = {"", "", "", "", ""};
+    private final int[] ids = {-1, -1, -1, -1, -1};
+    private long mask = 0L;
+    private int count = 0;
 
     /** Limpia todas las cartas del board. */
     public void clear() {
         Arrays.fill(cards, "");
+        Arrays.fill(ids, -1);
+        mask = 0L;
+        count = 0;
     }
 
     /** Establece el flop (3 cartas). */
     public void setFlop(String c1, String c2, String c3) {
         validate(c1); validate(c2); validate(c3);
-        cards[0] = c1; cards[1] = c2; cards[2] = c3;
+        put(0, c1); put(1, c2); put(2, c3);
     }
 
     /** Establece el turn (4ª carta). */
     public void setTurn(String c4) {
         validate(c4);
-        cards[3] = c4;
+        put(3, c4);
     }
 
     /** Establece el river (5ª carta). */
     public void setRiver(String c5) {
         validate(c5);
-        cards[4] = c5;
+        put(4, c5);
+    }
+
+    /** Nº de cartas visibles (sin crear listas). */
+    public int count() {
+        return count;
+    }
+
+    /** Cartas visibles como máscara de 52 bits. */
+    public long mask() {
+        return mask;
+    }
+
+    /**
+     * Copia los ids de las cartas visibles (en orden) en 'out' y devuelve cuántas son.
+     * 'out' debe tener sitio para 5.
+     */
+    public int visibleIds(int[] out) {
+        int n = 0;
+        for (int id : ids) if (id >= 0) out[n++] = id;
+        return n;
     }
 
     /** Devuelve solo las cartas no vacías del board, en orden. */
@@ -50,7 +78,7 @@ public final class Board {
 
     /** Fase deducida por nº de cartas visibles. */
     public Phase phase() {
-        int n = visible().size();
+        int n = count;
         if (n >= 5) return Phase.RIVER;
         if (n == 4)  return Phase.TURN;
         if (n >= 3)  return Phase.FLOP;
@@ -58,6 +86,17 @@ public final class Board {
     }
 
     // ---- helpers ----
+    private void put(int pos, String code) {
+        if (ids[pos] >= 0) {
+            mask &= ~(1L << ids[pos]);
+            count--;
+        }
+        cards[pos] = code;
+        ids[pos] = Cards.parse(code);
+        mask |= 1L << ids[pos];
+        count++;
+    }
+
     private static void validate(String code) {
         if (!CardValidator.isValidCode(code)) {
             throw new IllegalArgumentException("Código de carta inválido en board: " + code);
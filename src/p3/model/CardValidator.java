@@ -1,14 +1,13 @@
 package p3.model;
 
-import java.util.regex.Pattern;
-
 public final class CardValidator {
-    // RANGO: 2-9,T,J,Q,K,A — PALO: h,d,c,s
-    private static final Pattern CODE = Pattern.compile("^[2-9TJQKA][hdcs]$");
+    // RANGO: 2-9,T,J,Q,K,A — PALO: h,d,c,s (sin regex: se mira cada carácter)
 
     private CardValidator() {}
 
     public static boolean isValidCode(String code) {
-        return code != null && CODE.matcher(code).matches();
+        return code != null && code.length() == 2
+                && Cards.RANKS.indexOf(code.charAt(0)) >= 0
+                && Cards.SUITS.indexOf(code.charAt(1)) >= 0;
     }
 }
@@ -0,0 +1,147 @@
+package p3.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Codificación entera de las 52 cartas.
+ *
+ * Cada carta es un int 0..51:  id = palo * 13 + valor
+ *  - valor 0..12 → 2,3,...,9,T,J,Q,K,A
+ *  - palo  0..3  → h, d, c, s
+ *
+ * Con este orden, un long con el bit 'id' encendido por carta guarda
+ * 13 bits seguidos por palo, lo que hace trivial detectar colores.
+ * Ese long (52 bits) es también la forma de guardar conjuntos de cartas
+ * (usadas, muertas, mazo restante...) sin listas ni HashSet.
+ */
+public final class Cards {
+
+    /** Letras de valor en orden creciente (índice = valor). */
+    public static final String RANKS = "23456789TJQKA";
+
+    /** Letras de palo (índice = palo). */
+    public static final String SUITS = "hdcs";
+
+    /** Nº total de cartas del mazo. */
+    public static final int COUNT = 52;
+
+    /** Máscara con las 52 cartas. */
+    public static final long FULL_MASK = (1L << COUNT) - 1;
+
+    /** Nº de combos (manos de dos cartas concretas): C(52,2). */
+    public static final int COMBOS = COUNT * (COUNT - 1) / 2;
+
+    // Cartas de cada combo: COMBO_HI[i] > COMBO_LO[i]
+    private static final int[] COMBO_HI = new int[COMBOS];
+    private static final int[] COMBO_LO = new int[COMBOS];
+
+    // Código textual de cada id ("2h", "3h", ..., "As")
+    private static final String[] CODES = new String[COUNT];
+
+    // Tablas char → valor/palo (-1 si no es válido). Aceptan mayúsculas y minúsculas.
+    private static final int[] RANK_OF_CHAR = new int[128];
+    private static final int[] SUIT_OF_CHAR = new int[128];
+
+    static {
+        Arrays.fill(RANK_OF_CHAR, -1);
+        Arrays.fill(SUIT_OF_CHAR, -1);
+        for (int r = 0; r < 13; r++) {
+            RANK_OF_CHAR[RANKS.charAt(r)] = r;
+            RANK_OF_CHAR[Character.toLowerCase(RANKS.charAt(r))] = r;
+        }
+        for (int s = 0; s < 4; s++) {
+            SUIT_OF_CHAR[SUITS.charAt(s)] = s;
+            SUIT_OF_CHAR[Character.toUpperCase(SUITS.charAt(s))] = s;
+        }
+        for (int id = 0; id < COUNT; id++) {
+            CODES[id] = "" + RANKS.charAt(rank(id)) + SUITS.charAt(suit(id));
+        }
+        for (int hi = 1; hi < COUNT; hi++) {
+            for (int lo = 0; lo < hi; lo++) {
+                COMBO_HI[combo(hi, lo)] = hi;
+                COMBO_LO[combo(hi, lo)] = lo;
+            }
+        }
+    }
+
+    private Cards() {}
+
+    /** Valor 0..12 (2..A) de la carta. */
+    public static int rank(int id) { return id % 13; }
+
+    /** Palo 0..3 (h,d,c,s) de la carta. */
+    public static int suit(int id) { return id / 13; }
+
+    /** Id de la carta con ese valor (0..12) y palo (0..3). */
+    public static int of(int rank, int suit) { return suit * 13 + rank; }
+
+    /** Valor 0..12 del carácter ('2'..'9', 'T', 'J', 'Q', 'K', 'A', también en minúscula); -1 si no lo es. */
+    public static int rankOf(char c) { return c < 128 ? RANK_OF_CHAR[c] : -1; }
+
+    /** Palo 0..3 del carácter ('h', 'd', 'c', 's', también en mayúscula); -1 si no lo es. */
+    public static int suitOf(char c) { return c < 128 ? SUIT_OF_CHAR[c] : -1; }
+
+    /**
+     * "Ah" → id. Lanza IllegalArgumentException si el código no es válido.
+     * No usa expresiones regulares: solo dos accesos a tabla.
+     */
+    public static int parse(String code) {
+        if (code == null || code.length() != 2)
+            throw new IllegalArgumentException("Código de carta inválido: " + code);
+        char rc = code.charAt(0), sc = code.charAt(1);
+        int r = rc < 128 ? RANK_OF_CHAR[rc] : -1;
+        int s = sc < 128 ? SUIT_OF_CHAR[sc] : -1;
+        if (r < 0) throw new IllegalArgumentException("Valor de carta inválido: " + rc);
+        if (s < 0) throw new IllegalArgumentException("Palo de carta inválido: " + sc);
+        return of(r, s);
+    }
+
+    /** id → "Ah". */
+    public static String code(int id) {
+        return CODES[id];
+    }
+
+    // ===== Conjuntos de cartas como long =====
+
+    /** Máscara de una sola carta. */
+    public static long bit(int id) { return 1L << id; }
+
+    /** ¿Está la carta en la máscara? */
+    public static boolean contains(long mask, int id) { return (mask & (1L << id)) != 0; }
+
+    /** Máscara a partir de códigos ("Ah","Kd"...). Ignora null y vacíos. */
+    public static long maskOf(Iterable<String> codes) {
+        long mask = 0L;
+        if (codes == null) return mask;
+        for (String c : codes) {
+            if (c != null && !c.isEmpty()) mask |= 1L << parse(c);
+        }
+        return mask;
+    }
+
+    // ===== Combos (índice 0..1325 de una mano de dos cartas) =====
+
+    /** Índice 0..1325 del combo formado por dos ids distintos (en cualquier orden). */
+    public static int combo(int a, int b) {
+        int hi = Math.max(a, b), lo = Math.min(a, b);
+        return hi * (hi - 1) / 2 + lo;
+    }
+
+    /** Carta de id mayor del combo. */
+    public static int comboHigh(int combo) { return COMBO_HI[combo]; }
+
+    /** Carta de id menor del combo. */
+    public static int comboLow(int combo) { return COMBO_LO[combo]; }
+
+    /** Las dos cartas del combo como máscara. */
+    public static long comboMask(int combo) { return (1L << COMBO_HI[combo]) | (1L << COMBO_LO[combo]); }
+
+    /** Códigos de las cartas de la máscara, de id menor a mayor. */
+    public static List<String> toCodes(long mask) {
+        List<String> out = new ArrayList<>(Long.bitCount(mask));
+        for (long m = mask; m != 0; m &= m - 1) out.add(CODES[Long.numberOfTrailingZeros(m)]);
+        return out;
+    }
+}
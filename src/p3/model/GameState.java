@@ -15,6 +15,7 @@ public final class GameState {
     private final Board board = new Board();
     private Phase phase = Phase.PREFLOP;
     private final List<String> foldedCards = new ArrayList<>();
+    private long foldedMask = 0L;
 
     /** Crea el estado con 6 slots iniciales en null. */
     public GameState() {
@@ -28,6 +29,7 @@ public final class GameState {
         board.clear();
         phase = Phase.PREFLOP;
         foldedCards.clear();
+        foldedMask = 0L;
     }
 
     /** Define/actualiza la mano del jugador 'index' (0..5). Puede ser null. */
@@ -71,17 +73,35 @@ public final class GameState {
         out.addAll(board.visible());
         return out;
     }
-    
+
+    /** Igual que allUsedCards() pero como máscara de 52 bits (sin crear listas). */
+    public long usedMask() {
+        long m = board.mask();
+        for (Hand h : players) {
+            if (h != null) m |= h.mask();
+        }
+        return m;
+    }
+
     public List<String> getFoldedCards() {
         return Collections.unmodifiableList(foldedCards);
     }
 
+    /** Cartas de manos retiradas como máscara de 52 bits. */
+    public long foldedMask() {
+        return foldedMask;
+    }
+
     public void addFoldedHand(Hand hand) {
-        if (hand != null) foldedCards.addAll(hand.asList());
+        if (hand != null) {
+            foldedCards.addAll(hand.asList());
+            foldedMask |= hand.mask();
+        }
     }
 
     public void clearFoldedCards() {
         foldedCards.clear();
+        foldedMask = 0L;
     }
 
     // ---- helpers ----
@@ -2,12 +2,15 @@ package p3.model;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.Objects;
 
 public final class Hand {
     private final String c1;
     private final String c2;
 
+    // Mismas cartas como ids 0..51 (ver Cards), para los cálculos.
+    private final int id1;
+    private final int id2;
+
     public Hand(String c1, String c2) {
         if (!CardValidator.isValidCode(c1) || !CardValidator.isValidCode(c2)) {
             throw new IllegalArgumentException("Código de carta inválido (usa formato como Ah, Kd, Tc, ...)");
@@ -17,6 +20,13 @@ public final class Hand {
         }
         this.c1 = c1;
         this.c2 = c2;
+        this.id1 = Cards.parse(c1);
+        this.id2 = Cards.parse(c2);
+    }
+
+    /** Mano a partir de dos ids 0..51 distintos. */
+    public static Hand of(int id1, int id2) {
+        return new Hand(Cards.code(id1), Cards.code(id2));
     }
 
     /** “AhKd” → new Hand("Ah","Kd") */
@@ -30,6 +40,14 @@ public final class Hand {
     public String card1() { return c1; }
     public String card2() { return c2; }
 
+    /** Id 0..51 de la primera carta. */
+    public int id1() { return id1; }
+    /** Id 0..51 de la segunda carta. */
+    public int id2() { return id2; }
+
+    /** Las dos cartas como máscara de 52 bits. */
+    public long mask() { return (1L << id1) | (1L << id2); }
+
     public List<String> asList() { return Arrays.asList(c1, c2); }
 
     /** “AhKd” */
@@ -39,8 +57,8 @@ public final class Hand {
         if (this == o) return true;
         if (!(o instanceof Hand)) return false;
         Hand hand = (Hand) o;
-        return c1.equals(hand.c1) && c2.equals(hand.c2);
+        return id1 == hand.id1 && id2 == hand.id2;
     }
 
-    @Override public int hashCode() { return Objects.hash(c1, c2); }
+    @Override public int hashCode() { return id1 * 52 + id2; }
 }